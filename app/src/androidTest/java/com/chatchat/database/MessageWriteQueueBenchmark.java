@@ -0,0 +1,87 @@
+package com.chatchat.database;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.chatchat.model.Message;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+
+/**
+ * 消息写入吞吐量对比：逐条事务提交与写入队列组提交
+ * 使用磁盘上的数据库文件，逐条提交时每个事务都要同步一次日志，这正是组提交要摊薄的开销
+ */
+@RunWith(AndroidJUnit4.class)
+public class MessageWriteQueueBenchmark {
+
+    private static final String TAG = "WriteQueueBenchmark";
+    private static final String DATABASE_NAME = "write_queue_benchmark.db";
+    private static final int MESSAGE_COUNT = 2000;
+
+    private Context context;
+    private AppDatabase database;
+    private ExecutorService writeExecutor;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME).build();
+        writeExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        writeExecutor.shutdown();
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void compareRowAndGroupCommit() throws InterruptedException {
+        MessageDao messageDao = database.messageDao();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            messageDao.insertMessageWithConversation(newMessage(i + 1, "row"));
+        }
+        long perRowNanos = System.nanoTime() - start;
+
+        MessageWriteQueue queue = new MessageWriteQueue(messageDao, writeExecutor, MessageWriteQueue.LINGER_MILLIS);
+        CountDownLatch done = new CountDownLatch(MESSAGE_COUNT);
+        AtomicInteger failures = new AtomicInteger();
+        start = System.nanoTime();
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            queue.enqueue(newMessage(MESSAGE_COUNT + i + 1, "grouped"), (message, error) -> {
+                if (error != null) failures.incrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue("写入队列应在超时前完成", done.await(60, TimeUnit.SECONDS));
+        long groupedNanos = System.nanoTime() - start;
+
+        assertEquals(0, failures.get());
+        assertEquals(MESSAGE_COUNT, messageDao.getConversationMessagesAfter(Message.directConversationId("a", "row"), 0, MESSAGE_COUNT * 2).size());
+        assertEquals(MESSAGE_COUNT,
+                messageDao.getConversationMessagesAfter(Message.directConversationId("a", "grouped"), 0, MESSAGE_COUNT * 2).size());
+
+        Log.i(TAG, String.format("per-row: %.0f msg/s, grouped: %.0f msg/s",
+                MESSAGE_COUNT / (perRowNanos / 1e9), MESSAGE_COUNT / (groupedNanos / 1e9)));
+    }
+
+    private static Message newMessage(long messageId, String peerId) {
+        Message message = new Message(messageId, "a", "message " + messageId, Message.MessageType.TEXT);
+        message.setReceiverId(peerId);
+        return message;
+    }
+}
@@ -0,0 +1,11 @@
+package com.chatchat.ai;
+
+/**
+ * AI对话后端
+ * 回复以流式方式返回：每收到一段文本回调 onToken，结束时回调 onComplete 或 onError（只会回调其中一个）。
+ * 调用取消后不再有任何回调
+ */
+public interface AiBackend {
+
+    AiCall stream(AiRequest request, AiStreamListener listener);
+}
@@ -0,0 +1,35 @@
+package com.chatchat.ai;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import com.chatchat.network.ApiClients;
+import com.chatchat.utils.TaskDispatcher;
+
+/**
+ * 按配置选择AI后端：设置了 ai_endpoint 时使用带回复缓存的 SSE 服务端，否则使用本地演示后端
+ * （本地规则本身就是即时的，且模板中含有当前时间，不经过缓存）
+ */
+public final class AiBackends {
+
+    public static final String KEY_AI_ENDPOINT = "ai_endpoint";
+
+    private static final long TIMEOUT_MILLIS = 60_000;
+    private static final long IDLE_TIMEOUT_MILLIS = 15_000;
+
+    private AiBackends() {}
+
+    public static AiBackend create(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences("ChatChatPrefs", Context.MODE_PRIVATE);
+        String endpoint = prefs.getString(KEY_AI_ENDPOINT, null);
+        if (TextUtils.isEmpty(endpoint)) {
+            return new LocalAiBackend(context);
+        }
+        TaskDispatcher dispatcher = TaskDispatcher.getInstance();
+        return new CachingAiBackend(
+                new SseAiBackend(ApiClients.http(), endpoint, prefs.getString("jwt_token", null), TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS),
+                AiResponseCache.getInstance(context),
+                dispatcher.executor(TaskDispatcher.Lane.DB_READ),
+                dispatcher.executor(TaskDispatcher.Lane.DB_WRITE));
+    }
+}
@@ -0,0 +1,11 @@
+package com.chatchat.ai;
+
+/**
+ * 一次进行中的AI回复
+ */
+public interface AiCall {
+
+    void cancel();
+
+    boolean isCanceled();
+}
@@ -0,0 +1,197 @@
+package com.chatchat.ai;
+
+import com.chatchat.database.AiSummaryDao;
+import com.chatchat.database.AppDatabase;
+import com.chatchat.database.MessageDao;
+import com.chatchat.model.AiSummary;
+import com.chatchat.model.Message;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * AI请求上下文构建：滚动摘要 + token 预算内最近的若干条消息
+ * 最近消息按 messageId 倒序取固定条数，从新到旧累加估算的 token 数直到用完预算；
+ * 滑出窗口的消息增量并入 ai_summaries 中的摘要，摘要本身也有预算，超出时丢弃最早的内容。
+ * 每次构建只读取固定数量的行，请求大小与聊天记录的长度无关。
+ * build 只读数据库，可以在读通道上调用；摘要的更新随结果返回，由调用方在写通道上用 saveSummary 写入
+ */
+public class AiContextBuilder {
+
+    public static final int DEFAULT_TOKEN_BUDGET = 2048;
+    static final int SUMMARY_TOKEN_BUDGET = 512;
+    static final int MAX_RECENT_MESSAGES = 40;
+    // Anything older than this many messages before the window would be trimmed from the summary anyway
+    private static final int MAX_FOLD_MESSAGES = 100;
+    private static final int SUMMARY_LINE_CHARS = 80;
+
+    private static final String AI_SENDER_ID = "ai_assistant";
+    private static final String SUMMARY_PREFIX = "以下是之前对话的摘要：\n";
+
+    private final MessageDao messageDao;
+    private final AiSummaryDao summaryDao;
+    private final int tokenBudget;
+
+    public AiContextBuilder(AppDatabase database) {
+        this(database.messageDao(), database.aiSummaryDao(), DEFAULT_TOKEN_BUDGET);
+    }
+
+    public AiContextBuilder(MessageDao messageDao, AiSummaryDao summaryDao, int tokenBudget) {
+        this.messageDao = messageDao;
+        this.summaryDao = summaryDao;
+        this.tokenBudget = tokenBudget;
+    }
+
+    /**
+     * 一次构建的结果：要发送的请求，以及需要写回的新摘要（没有新滑出窗口的消息时为 null）
+     */
+    public static final class Result {
+        private final AiRequest request;
+        private final AiSummary summaryUpdate;
+
+        Result(AiRequest request, AiSummary summaryUpdate) {
+            this.request = request;
+            this.summaryUpdate = summaryUpdate;
+        }
+
+        public AiRequest getRequest() { return request; }
+
+        public AiSummary getSummaryUpdate() { return summaryUpdate; }
+    }
+
+    /**
+     * 构建一个会话的请求；pending 是刚发送、可能还在写入队列中的用户消息，可以为 null
+     */
+    public Result build(String conversationId, Message pending) {
+        List<Message> newestFirst = new ArrayList<>(
+                messageDao.getConversationMessagesBefore(conversationId, Long.MAX_VALUE, MAX_RECENT_MESSAGES));
+        if (pending != null && !containsMessage(newestFirst, pending.getMessageId())) {
+            newestFirst.add(pending);
+            Collections.sort(newestFirst, (a, b) -> Long.compare(b.getMessageId(), a.getMessageId()));
+        }
+
+        int recentBudget = tokenBudget - SUMMARY_TOKEN_BUDGET;
+        List<Message> window = new ArrayList<>();
+        int used = 0;
+        for (Message message : newestFirst) {
+            if (!isContextMessage(message)) continue;
+            int cost = TokenEstimator.estimateMessage(message.getContent());
+            if (window.isEmpty() && cost > recentBudget) {
+                // The newest message is always sent, cut down to the budget if it is too long by itself
+                message = message.copy();
+                message.setContent(truncate(message.getContent(), recentBudget - TokenEstimator.MESSAGE_OVERHEAD));
+                cost = recentBudget;
+            } else if (used + cost > recentBudget) {
+                break;
+            }
+            window.add(message);
+            used += cost;
+        }
+        Collections.reverse(window);
+
+        List<AiRequest.Turn> turns = new ArrayList<>(window.size() + 1);
+        AiSummary summaryUpdate = null;
+        if (!window.isEmpty()) {
+            AiSummary stored = summaryDao.getSummary(conversationId);
+            summaryUpdate = foldSummary(conversationId, stored, window.get(0).getMessageId());
+            AiSummary summary = summaryUpdate != null ? summaryUpdate : stored;
+            if (summary != null && summary.getSummary() != null && !summary.getSummary().isEmpty()) {
+                turns.add(new AiRequest.Turn(AiRequest.ROLE_SYSTEM, SUMMARY_PREFIX + summary.getSummary()));
+            }
+        }
+        for (Message message : window) {
+            turns.add(new AiRequest.Turn(roleOf(message), message.getContent()));
+        }
+        return new Result(new AiRequest(conversationId, turns), summaryUpdate);
+    }
+
+    /**
+     * 写入 build 返回的新摘要，需要在数据库写通道上调用
+     */
+    public void saveSummary(AiSummary summary) {
+        summaryDao.upsertIfNewer(summary);
+    }
+
+    /**
+     * 把摘要覆盖位置之后、窗口起点之前的消息并入摘要，返回新摘要；没有新滑出的消息时返回 null
+     */
+    private AiSummary foldSummary(String conversationId, AiSummary summary, long windowStartMessageId) {
+        long coveredUpTo = summary == null ? 0 : summary.getCoveredUpToMessageId();
+        if (windowStartMessageId <= coveredUpTo) return null;
+
+        List<Message> newestFirst = messageDao.getConversationMessagesBefore(conversationId, windowStartMessageId,
+                MAX_FOLD_MESSAGES);
+        int count = 0;
+        while (count < newestFirst.size() && newestFirst.get(count).getMessageId() > coveredUpTo) {
+            count++;
+        }
+        if (count == 0) return null;
+
+        StringBuilder text = new StringBuilder(summary == null || summary.getSummary() == null ? "" : summary.getSummary());
+        for (int i = count - 1; i >= 0; i--) {
+            Message message = newestFirst.get(i);
+            if (!isContextMessage(message)) continue;
+            if (text.length() > 0) text.append('\n');
+            text.append(AiRequest.ROLE_ASSISTANT.equals(roleOf(message)) ? "AI" : "用户")
+                    .append(": ")
+                    .append(condense(message.getContent()));
+        }
+
+        String trimmed = dropOldestLines(text.toString(), SUMMARY_TOKEN_BUDGET);
+        AiSummary next = new AiSummary();
+        next.setConversationId(conversationId);
+        next.setSummary(trimmed);
+        next.setCoveredUpToMessageId(newestFirst.get(0).getMessageId());
+        next.setTokenEstimate(TokenEstimator.estimate(trimmed));
+        next.setUpdatedAt(System.currentTimeMillis());
+        return next;
+    }
+
+    private static boolean isContextMessage(Message message) {
+        if (message.isRecalled() || message.getContent() == null || message.getContent().isEmpty()) return false;
+        Message.MessageType type = message.getType();
+        return type == Message.MessageType.TEXT || type == Message.MessageType.MARKDOWN
+                || type == Message.MessageType.EMOJI;
+    }
+
+    private static String roleOf(Message message) {
+        return AI_SENDER_ID.equals(message.getSenderId()) ? AiRequest.ROLE_ASSISTANT : AiRequest.ROLE_USER;
+    }
+
+    private static boolean containsMessage(List<Message> messages, long messageId) {
+        for (Message message : messages) {
+            if (message.getMessageId() == messageId) return true;
+        }
+        return false;
+    }
+
+    // One line per message, whitespace collapsed and long content cut off
+    static String condense(String content) {
+        String line = content.trim().replaceAll("\\s+", " ");
+        return line.length() <= SUMMARY_LINE_CHARS ? line : line.substring(0, SUMMARY_LINE_CHARS) + "…";
+    }
+
+    static String dropOldestLines(String text, int tokenBudget) {
+        while (TokenEstimator.estimate(text) > tokenBudget) {
+            int newline = text.indexOf('\n');
+            if (newline < 0) return truncate(text, tokenBudget);
+            text = text.substring(newline + 1);
+        }
+        return text;
+    }
+
+    // Longest prefix that fits the budget
+    static String truncate(String text, int tokenBudget) {
+        int low = 0;
+        int high = text.length();
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (TokenEstimator.estimate(text.subSequence(0, mid)) <= tokenBudget) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return text.substring(0, low);
+    }
+}
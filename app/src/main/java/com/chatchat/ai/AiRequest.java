@@ -0,0 +1,60 @@
+package com.chatchat.ai;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * AI请求：所属会话和按时间顺序排列的对话轮次
+ */
+public class AiRequest {
+
+    public static final String ROLE_SYSTEM = "system";
+    public static final String ROLE_USER = "user";
+    public static final String ROLE_ASSISTANT = "assistant";
+
+    private final String conversationId;
+    private final List<Turn> turns;
+
+    public AiRequest(String conversationId, List<Turn> turns) {
+        this.conversationId = conversationId;
+        this.turns = Collections.unmodifiableList(new ArrayList<>(turns));
+    }
+
+    /**
+     * 只包含一条用户消息的请求
+     */
+    public static AiRequest of(String conversationId, String userText) {
+        return new AiRequest(conversationId, Collections.singletonList(new Turn(ROLE_USER, userText)));
+    }
+
+    public String getConversationId() { return conversationId; }
+
+    public List<Turn> getTurns() { return turns; }
+
+    /**
+     * 最后一条用户消息的内容，没有时返回空字符串
+     */
+    public String getLastUserText() {
+        for (int i = turns.size() - 1; i >= 0; i--) {
+            if (ROLE_USER.equals(turns.get(i).getRole())) {
+                return turns.get(i).getContent();
+            }
+        }
+        return "";
+    }
+
+    public static final class Turn {
+        private final String role;
+        private final String content;
+
+        public Turn(String role, String content) {
+            this.role = role;
+            this.content = content;
+        }
+
+        public String getRole() { return role; }
+
+        public String getContent() { return content; }
+    }
+}
@@ -0,0 +1,238 @@
+package com.chatchat.ai;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+import com.chatchat.database.AiResponseCacheDao;
+import com.chatchat.database.AppDatabase;
+import com.chatchat.model.AiResponseCacheEntry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * AI回复的两级缓存：内存 LRU 在前，ai_response_cache 表在后，两级都按 TTL 失效
+ * 键由规范化的提问文本和上下文哈希计算得到：上下文只取最后一条用户消息之前的 CONTEXT_TURNS 轮对话，
+ * 滚动摘要不参与，否则长会话中几乎不会命中。询问时间、日期、天气、新闻等实时信息的提问不缓存，
+ * 这类回复过几分钟就过时。get/put 会访问数据库，需要在后台线程调用。
+ * get 只读数据库：命中时间先记在内存中，由 queueTouchFlush 合并成一条 UPDATE 交给写执行器
+ */
+public final class AiResponseCache {
+
+    private static final String TAG = "AiResponseCache";
+
+    static final int MAX_MEMORY_ENTRIES = 100;
+    static final int MAX_STORED_ENTRIES = 1000;
+    // Bounds how stale an answer that LIVE_DATA did not recognize as time-dependent can get
+    static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    static final int CONTEXT_TURNS = 2;
+    static final int STATS_LOG_INTERVAL = 20;
+
+    // Matched against the normalized prompt; a false positive only costs a cache miss
+    private static final Pattern LIVE_DATA = Pattern.compile(
+            "几点|时间|日期|几号|今天|今晚|明天|昨天|现在|星期几|周几|天气|新闻|最新|汇率|股价"
+                    + "|\\b(time|date|today|tonight|tomorrow|yesterday|now|weather|news|latest|current)\\b");
+
+    private static volatile AiResponseCache instance;
+
+    private final AiResponseCacheDao dao;
+    private final LruCache<String, Cached> memory = new LruCache<>(MAX_MEMORY_ENTRIES);
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong storedHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    // cacheKey -> latest hit time not yet written to lastHitAt
+    private final Map<String, Long> pendingTouches = new ConcurrentHashMap<>();
+    private final AtomicBoolean touchFlushQueued = new AtomicBoolean();
+
+    public AiResponseCache(AiResponseCacheDao dao) {
+        this.dao = dao;
+    }
+
+    public static AiResponseCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AiResponseCache.class) {
+                if (instance == null) {
+                    instance = new AiResponseCache(AppDatabase.getDatabase(context).aiResponseCacheDao());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 请求的缓存键；没有用户消息或询问实时信息的请求返回 null，不参与缓存
+     */
+    public static String keyFor(AiRequest request) {
+        List<AiRequest.Turn> turns = request.getTurns();
+        int last = turns.size() - 1;
+        while (last >= 0 && !AiRequest.ROLE_USER.equals(turns.get(last).getRole())) {
+            last--;
+        }
+        if (last < 0) return null;
+        String prompt = normalize(turns.get(last).getContent());
+        if (prompt.isEmpty() || LIVE_DATA.matcher(prompt).find()) return null;
+
+        MessageDigest digest = sha256();
+        digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+        int contextTurns = 0;
+        for (int i = last - 1; i >= 0 && contextTurns < CONTEXT_TURNS; i--) {
+            AiRequest.Turn turn = turns.get(i);
+            if (AiRequest.ROLE_SYSTEM.equals(turn.getRole())) continue;
+            // Separators keep ("ab", "c") and ("a", "bc") apart
+            digest.update((byte) 0);
+            digest.update(turn.getRole().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 1);
+            digest.update(normalize(turn.getContent()).getBytes(StandardCharsets.UTF_8));
+            contextTurns++;
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * 规范化提问：兼容字符折叠、忽略大小写、合并空白，并去掉结尾的标点
+     */
+    static String normalize(String text) {
+        if (text == null) return "";
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return normalized.replaceAll("\\s+", " ").replaceAll("[\\p{P}\\s]+$", "").trim();
+    }
+
+    public String get(String key) {
+        long now = System.currentTimeMillis();
+        logStatsPeriodically();
+        Cached cached = memory.get(key);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                memoryHits.incrementAndGet();
+                pendingTouches.put(key, now);
+                return cached.response;
+            }
+            memory.remove(key);
+        }
+        AiResponseCacheEntry entry = dao.getValid(key, now);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        storedHits.incrementAndGet();
+        pendingTouches.put(key, now);
+        memory.put(key, new Cached(entry.getResponse(), entry.getExpiresAt()));
+        return entry.getResponse();
+    }
+
+    /**
+     * 有未写入的命中时间时，向 writeExecutor 提交一次 flushTouches；已有待执行的提交时不重复提交
+     */
+    public void queueTouchFlush(Executor writeExecutor) {
+        if (pendingTouches.isEmpty() || !touchFlushQueued.compareAndSet(false, true)) return;
+        writeExecutor.execute(() -> {
+            touchFlushQueued.set(false);
+            flushTouches();
+        });
+    }
+
+    /**
+     * 把积累的命中时间写入 lastHitAt，一条语句覆盖全部键；需要在写执行器上调用
+     */
+    public void flushTouches() {
+        if (pendingTouches.isEmpty()) return;
+        List<String> keys = new ArrayList<>(pendingTouches.size());
+        long latest = 0;
+        for (Map.Entry<String, Long> touch : pendingTouches.entrySet()) {
+            // A hit recorded after this read keeps its entry for the next flush
+            if (pendingTouches.remove(touch.getKey(), touch.getValue())) {
+                keys.add(touch.getKey());
+                latest = Math.max(latest, touch.getValue());
+            }
+        }
+        if (keys.isEmpty()) return;
+        dao.touchAll(keys, latest);
+    }
+
+    public void put(String key, String response) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + TTL_MILLIS;
+        memory.put(key, new Cached(response, expiresAt));
+        AiResponseCacheEntry entry = new AiResponseCacheEntry();
+        entry.setCacheKey(key);
+        entry.setResponse(response);
+        entry.setCreatedAt(now);
+        entry.setExpiresAt(expiresAt);
+        entry.setLastHitAt(now);
+        // Trimming orders by lastHitAt, so recent hits must be written first
+        flushTouches();
+        pendingTouches.remove(key);
+        dao.putAndTrim(entry, now, MAX_STORED_ENTRIES);
+    }
+
+    public void clear() {
+        memory.evictAll();
+        pendingTouches.clear();
+        dao.clear();
+    }
+
+    public long getMemoryHits() { return memoryHits.get(); }
+
+    public long getStoredHits() { return storedHits.get(); }
+
+    public long getMisses() { return misses.get(); }
+
+    public void resetStats() {
+        memoryHits.set(0);
+        storedHits.set(0);
+        misses.set(0);
+        lookups.set(0);
+    }
+
+    private void logStatsPeriodically() {
+        if (lookups.incrementAndGet() % STATS_LOG_INTERVAL == 0) {
+            Log.i(TAG, toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        long hits = memoryHits.get() + storedHits.get();
+        long total = hits + misses.get();
+        return String.format(Locale.US, "ai cache: %d memory hits, %d stored hits, %d misses (%.1f%% hit rate)",
+                memoryHits.get(), storedHits.get(), misses.get(), total == 0 ? 0.0 : hits * 100.0 / total);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static final class Cached {
+        final String response;
+        final long expiresAt;
+
+        Cached(String response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.chatchat.ai;
+
+/**
+ * 流式回复回调，在后端的工作线程上执行
+ */
+public interface AiStreamListener {
+
+    void onToken(String token);
+
+    /**
+     * 回复结束，fullText 为全部 token 拼接后的文本
+     */
+    void onComplete(String fullText);
+
+    void onError(Throwable error);
+}
@@ -0,0 +1,86 @@
+package com.chatchat.ai;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 带回复缓存的AI后端：命中时直接返回缓存的完整回复，不访问服务端；
+ * 未命中时转给 delegate，完整生成的回复写入缓存。失败或被取消的回复不缓存
+ */
+public class CachingAiBackend implements AiBackend {
+
+    private final AiBackend delegate;
+    private final AiResponseCache cache;
+    private final Executor lookupExecutor;
+    private final Executor writeExecutor;
+
+    public CachingAiBackend(AiBackend delegate, AiResponseCache cache, Executor lookupExecutor,
+                            Executor writeExecutor) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.lookupExecutor = lookupExecutor;
+        this.writeExecutor = writeExecutor;
+    }
+
+    @Override
+    public AiCall stream(AiRequest request, AiStreamListener listener) {
+        String key = AiResponseCache.keyFor(request);
+        if (key == null) {
+            return delegate.stream(request, listener);
+        }
+        CachedCall call = new CachedCall();
+        lookupExecutor.execute(() -> {
+            if (call.canceled) return;
+            String cached = cache.get(key);
+            if (cached != null) {
+                cache.queueTouchFlush(writeExecutor);
+                if (call.canceled) return;
+                listener.onToken(cached);
+                listener.onComplete(cached);
+                return;
+            }
+            call.setDelegate(delegate.stream(request, new AiStreamListener() {
+                @Override
+                public void onToken(String token) {
+                    listener.onToken(token);
+                }
+
+                @Override
+                public void onComplete(String fullText) {
+                    if (!fullText.isEmpty()) {
+                        writeExecutor.execute(() -> cache.put(key, fullText));
+                    }
+                    listener.onComplete(fullText);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    listener.onError(error);
+                }
+            }));
+        });
+        return call;
+    }
+
+    private static final class CachedCall implements AiCall {
+        private volatile boolean canceled;
+        private volatile AiCall delegate;
+
+        void setDelegate(AiCall call) {
+            delegate = call;
+            // cancel() may have run between the lookup and this assignment
+            if (canceled) call.cancel();
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            AiCall call = delegate;
+            if (call != null) call.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.chatchat.ai;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 多模式关键字匹配器（Aho-Corasick 自动机）
+ * 所有规则的关键字编译成一个自动机，匹配时只扫描一遍消息，耗时与规则数量无关。
+ * 每个状态预先记录经失败链可达的最优规则，扫描过程中只需比较，不用回溯输出链。
+ * 匹配不区分大小写；编译后不可变，可以在多个线程间共享
+ */
+public final class IntentMatcher {
+
+    private final List<IntentRule> rules;
+    private final int[] priorities;
+
+    // Node n's transitions are labels/targets[edgeStart[n] .. edgeStart[n + 1]), labels sorted
+    private final int[] edgeStart;
+    private final char[] labels;
+    private final int[] targets;
+    private final int[] fail;
+    private final int[] bestRule;
+
+    private IntentMatcher(List<IntentRule> rules, int[] priorities, int[] edgeStart, char[] labels,
+                          int[] targets, int[] fail, int[] bestRule) {
+        this.rules = rules;
+        this.priorities = priorities;
+        this.edgeStart = edgeStart;
+        this.labels = labels;
+        this.targets = targets;
+        this.fail = fail;
+        this.bestRule = bestRule;
+    }
+
+    public static IntentMatcher compile(List<IntentRule> ruleList) {
+        List<IntentRule> rules = Collections.unmodifiableList(new ArrayList<>(ruleList));
+        int[] priorities = new int[rules.size()];
+        for (int i = 0; i < priorities.length; i++) {
+            priorities[i] = rules.get(i).getPriority();
+        }
+
+        // Build the keyword trie
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> best = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        best.add(-1);
+        for (int ruleIndex = 0; ruleIndex < rules.size(); ruleIndex++) {
+            for (String keyword : rules.get(ruleIndex).getKeywords()) {
+                if (keyword == null || keyword.isEmpty()) continue;
+                int node = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = Character.toLowerCase(keyword.charAt(i));
+                    Integer next = trie.get(node).get(c);
+                    if (next == null) {
+                        next = trie.size();
+                        trie.add(new TreeMap<>());
+                        best.add(-1);
+                        trie.get(node).put(c, next);
+                    }
+                    node = next;
+                }
+                best.set(node, better(priorities, best.get(node), ruleIndex));
+            }
+        }
+
+        // Breadth-first so a node's failure target is always finished before the node itself
+        int nodeCount = trie.size();
+        int[] fail = new int[nodeCount];
+        int[] bestRule = new int[nodeCount];
+        bestRule[0] = best.get(0);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : trie.get(0).values()) {
+            bestRule[child] = best.get(child);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> edge : trie.get(node).entrySet()) {
+                char c = edge.getKey();
+                int child = edge.getValue();
+                int f = fail[node];
+                while (f != 0 && !trie.get(f).containsKey(c)) {
+                    f = fail[f];
+                }
+                Integer target = trie.get(f).get(c);
+                fail[child] = target == null ? 0 : target;
+                bestRule[child] = better(priorities, best.get(child), bestRule[fail[child]]);
+                queue.add(child);
+            }
+        }
+
+        // Flatten the transition maps into sorted arrays
+        int[] edgeStart = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            edgeStart[node + 1] = edgeStart[node] + trie.get(node).size();
+        }
+        char[] labels = new char[edgeStart[nodeCount]];
+        int[] targets = new int[labels.length];
+        for (int node = 0; node < nodeCount; node++) {
+            int index = edgeStart[node];
+            for (Map.Entry<Character, Integer> edge : trie.get(node).entrySet()) {
+                labels[index] = edge.getKey();
+                targets[index] = edge.getValue();
+                index++;
+            }
+        }
+        return new IntentMatcher(rules, priorities, edgeStart, labels, targets, fail, bestRule);
+    }
+
+    /**
+     * 返回命中的最优规则，没有命中时返回 null
+     */
+    public IntentRule match(CharSequence text) {
+        int state = 0;
+        int best = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next < 0 ? 0 : next;
+            best = better(priorities, best, bestRule[state]);
+        }
+        return best < 0 ? null : rules.get(best);
+    }
+
+    public List<IntentRule> getRules() {
+        return rules;
+    }
+
+    private int transition(int node, char c) {
+        int low = edgeStart[node];
+        int high = edgeStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = labels[mid];
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return targets[mid];
+            }
+        }
+        return -1;
+    }
+
+    // Higher priority wins, ties go to the rule defined first
+    private static int better(int[] priorities, int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        if (priorities[a] != priorities[b]) {
+            return priorities[a] > priorities[b] ? a : b;
+        }
+        return Math.min(a, b);
+    }
+}
@@ -0,0 +1,37 @@
+package com.chatchat.ai;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 意图规则：任一关键字出现在消息中即命中；多条规则同时命中时 priority 大的优先，相同时先定义的优先。
+ * reply 是回复模板，支持 {input}（用户消息）和 {time}（当前时间）占位符
+ */
+public class IntentRule {
+
+    private String id;
+    private int priority;
+    private List<String> keywords;
+    private String reply;
+
+    public IntentRule() {}
+
+    public IntentRule(String id, int priority, List<String> keywords, String reply) {
+        this.id = id;
+        this.priority = priority;
+        this.keywords = keywords;
+        this.reply = reply;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public int getPriority() { return priority; }
+    public void setPriority(int priority) { this.priority = priority; }
+
+    public List<String> getKeywords() { return keywords == null ? Collections.emptyList() : keywords; }
+    public void setKeywords(List<String> keywords) { this.keywords = keywords; }
+
+    public String getReply() { return reply; }
+    public void setReply(String reply) { this.reply = reply; }
+}
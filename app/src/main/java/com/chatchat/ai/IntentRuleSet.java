@@ -0,0 +1,93 @@
+package com.chatchat.ai;
+
+import android.content.Context;
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 本地AI回复规则集：从 assets/ai_intents.json 加载并编译，进程内只加载一次
+ * 文件格式为 {"fallback": "...", "rules": [{"id", "priority", "keywords": [...], "reply"}]}
+ */
+public final class IntentRuleSet {
+
+    private static final String TAG = "IntentRuleSet";
+    static final String ASSET_NAME = "ai_intents.json";
+    private static final String DEFAULT_FALLBACK = "我理解您说的是：{input}";
+
+    private static volatile IntentRuleSet instance;
+
+    private final IntentMatcher matcher;
+    private final String fallback;
+
+    public IntentRuleSet(List<IntentRule> rules, String fallback) {
+        this.matcher = IntentMatcher.compile(rules);
+        this.fallback = fallback == null ? DEFAULT_FALLBACK : fallback;
+    }
+
+    /**
+     * 加载规则集；需要读取并编译资源文件，不要在主线程上第一次调用
+     */
+    public static IntentRuleSet getInstance(Context context) {
+        if (instance == null) {
+            synchronized (IntentRuleSet.class) {
+                if (instance == null) {
+                    instance = load(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static IntentRuleSet load(Context context) {
+        try (Reader reader = new InputStreamReader(context.getAssets().open(ASSET_NAME), StandardCharsets.UTF_8)) {
+            return parse(reader);
+        } catch (IOException | JsonParseException e) {
+            Log.e(TAG, "Failed to load " + ASSET_NAME, e);
+            return new IntentRuleSet(Collections.emptyList(), null);
+        }
+    }
+
+    public static IntentRuleSet parse(Reader reader) {
+        RuleFile file = new Gson().fromJson(reader, RuleFile.class);
+        if (file == null) {
+            throw new JsonParseException("Empty rule file");
+        }
+        return new IntentRuleSet(file.rules == null ? Collections.emptyList() : file.rules, file.fallback);
+    }
+
+    public IntentMatcher getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * 按命中的规则生成回复，没有命中时使用兜底模板
+     */
+    public String reply(String input) {
+        IntentRule rule = matcher.match(input);
+        return render(rule == null ? fallback : rule.getReply(), input);
+    }
+
+    static String render(String template, String input) {
+        if (template.indexOf('{') < 0) return template;
+        String reply = template.replace("{input}", input);
+        if (reply.contains("{time}")) {
+            reply = reply.replace("{time}", new SimpleDateFormat("HH:mm", Locale.getDefault()).format(new Date()));
+        }
+        return reply;
+    }
+
+    private static final class RuleFile {
+        String fallback;
+        List<IntentRule> rules;
+    }
+}
@@ -0,0 +1,102 @@
+package com.chatchat.ai;
+
+import android.content.Context;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地演示后端：没有配置服务端地址时使用
+ * 按 IntentRuleSet 中的规则生成回复，并以定时任务逐段推送来模拟流式输出，不占用任何等待线程
+ */
+public class LocalAiBackend implements AiBackend {
+
+    private static final long FIRST_TOKEN_DELAY_MILLIS = 300;
+    private static final long TOKEN_INTERVAL_MILLIS = 40;
+    private static final int CHARS_PER_TOKEN = 2;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "local-ai");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Context context;
+
+    public LocalAiBackend(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public AiCall stream(AiRequest request, AiStreamListener listener) {
+        LocalCall call = new LocalCall(context, request.getLastUserText(), listener);
+        call.start();
+        return call;
+    }
+
+    private static final class LocalCall implements AiCall, Runnable {
+        private final Context context;
+        private final String input;
+        private final AiStreamListener listener;
+        private String reply;
+        private int position;
+        private boolean finished; // Scheduler thread only
+        private volatile boolean canceled;
+        private volatile ScheduledFuture<?> future;
+
+        LocalCall(Context context, String input, AiStreamListener listener) {
+            this.context = context;
+            this.input = input;
+            this.listener = listener;
+        }
+
+        void start() {
+            future = SCHEDULER.scheduleWithFixedDelay(this, FIRST_TOKEN_DELAY_MILLIS, TOKEN_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+
+        // Runs on the scheduler thread, one token per tick
+        @Override
+        public void run() {
+            if (canceled || finished) return;
+            try {
+                if (reply == null) {
+                    // The rule set is loaded on first use, off the caller's thread
+                    reply = IntentRuleSet.getInstance(context).reply(input);
+                }
+                if (position >= reply.length()) {
+                    finish();
+                    listener.onComplete(reply);
+                    return;
+                }
+                int end = Math.min(reply.length(), reply.offsetByCodePoints(position,
+                        Math.min(CHARS_PER_TOKEN, reply.codePointCount(position, reply.length()))));
+                listener.onToken(reply.substring(position, end));
+                position = end;
+            } catch (RuntimeException e) {
+                // A periodic task that throws is silently dropped, which would leave the reply typing forever
+                if (finished) return;
+                finish();
+                listener.onError(e);
+            }
+        }
+
+        private void finish() {
+            finished = true;
+            future.cancel(false);
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) scheduled.cancel(false);
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.chatchat.ai;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * 基于 HTTP Server-Sent Events 的AI后端
+ * 以 POST 发送对话，服务端按 SSE 逐段返回：每个 data 事件是 {"token": "..."}
+ * （也兼容 {"choices":[{"delta":{"content":"..."}}]}），以 data: [DONE] 或连接关闭结束。
+ * 整个回复受 timeoutMillis 限制，两段之间的间隔受 idleTimeoutMillis 限制
+ */
+public class SseAiBackend implements AiBackend {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final String DONE = "[DONE]";
+
+    private final OkHttpClient client;
+    private final String endpoint;
+    private final String authToken;
+    private final Gson gson = new Gson();
+
+    public SseAiBackend(OkHttpClient baseClient, String endpoint, String authToken,
+                        long timeoutMillis, long idleTimeoutMillis) {
+        this.client = baseClient.newBuilder()
+                .callTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(idleTimeoutMillis, TimeUnit.MILLISECONDS)
+                .build();
+        this.endpoint = endpoint;
+        this.authToken = authToken;
+    }
+
+    @Override
+    public AiCall stream(AiRequest request, AiStreamListener listener) {
+        Request.Builder builder = new Request.Builder()
+                .url(endpoint)
+                .header("Accept", "text/event-stream")
+                .post(RequestBody.create(toJson(request), JSON));
+        if (authToken != null) {
+            builder.header("Authorization", "Bearer " + authToken);
+        }
+        SseCall aiCall = new SseCall(client.newCall(builder.build()), listener);
+        aiCall.start();
+        return aiCall;
+    }
+
+    private String toJson(AiRequest request) {
+        JsonArray messages = new JsonArray();
+        for (AiRequest.Turn turn : request.getTurns()) {
+            JsonObject message = new JsonObject();
+            message.addProperty("role", turn.getRole());
+            message.addProperty("content", turn.getContent());
+            messages.add(message);
+        }
+        JsonObject body = new JsonObject();
+        body.addProperty("conversation_id", request.getConversationId());
+        body.addProperty("stream", true);
+        body.add("messages", messages);
+        return gson.toJson(body);
+    }
+
+    /**
+     * 从一个 data 事件中取出文本，无法识别的事件返回 null
+     */
+    String parseToken(String payload) {
+        try {
+            JsonObject event = gson.fromJson(payload, JsonObject.class);
+            if (event == null) return null;
+            if (event.has("token")) {
+                return event.get("token").getAsString();
+            }
+            JsonArray choices = event.getAsJsonArray("choices");
+            if (choices == null || choices.size() == 0) return null;
+            JsonObject delta = choices.get(0).getAsJsonObject().getAsJsonObject("delta");
+            if (delta == null) return null;
+            JsonElement content = delta.get("content");
+            return content == null || content.isJsonNull() ? null : content.getAsString();
+        } catch (RuntimeException e) {
+            // Not JSON, or an unexpected shape such as {"token":null}, {"token":{}} or a non-object choice
+            return null;
+        }
+    }
+
+    private final class SseCall implements AiCall, Callback {
+        private final Call call;
+        private final AiStreamListener listener;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile boolean canceled;
+
+        SseCall(Call call, AiStreamListener listener) {
+            this.call = call;
+            this.listener = listener;
+        }
+
+        void start() {
+            call.enqueue(this);
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            call.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            fail(e);
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            try (ResponseBody body = response.body()) {
+                if (!response.isSuccessful() || body == null) {
+                    fail(new IOException("AI backend returned HTTP " + response.code()));
+                    return;
+                }
+                BufferedSource source = body.source();
+                StringBuilder text = new StringBuilder();
+                StringBuilder data = new StringBuilder();
+                String line;
+                while (!canceled && (line = source.readUtf8Line()) != null) {
+                    if (line.isEmpty()) {
+                        // A blank line ends the event
+                        if (data.length() == 0) continue;
+                        String payload = data.toString();
+                        data.setLength(0);
+                        if (DONE.equals(payload)) break;
+                        String token = parseToken(payload);
+                        if (token != null && !token.isEmpty() && !canceled) {
+                            text.append(token);
+                            listener.onToken(token);
+                        }
+                    } else if (line.startsWith("data:")) {
+                        String value = line.substring(5);
+                        if (value.startsWith(" ")) value = value.substring(1);
+                        if (data.length() > 0) data.append('\n');
+                        data.append(value);
+                    }
+                    // Comments (":") and other fields such as event/id are not used
+                }
+                if (!canceled && finished.compareAndSet(false, true)) {
+                    listener.onComplete(text.toString());
+                }
+            } catch (IOException | RuntimeException e) {
+                // Nothing may escape onto OkHttp's dispatcher thread, the listener must always hear back
+                fail(e);
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (!canceled && finished.compareAndSet(false, true)) {
+                listener.onError(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.chatchat.ai;
+
+/**
+ * 粗略的 token 数估算，不依赖具体模型的分词表
+ * 按常见 BPE 分词的经验值：中日韩字符约 1 token/字，ASCII 约 4 字符/token，其余约 2 字符/token；
+ * 每条消息另加固定的格式开销。宁可略微高估，保证请求不超出预算
+ */
+public final class TokenEstimator {
+
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    private TokenEstimator() {}
+
+    public static int estimate(CharSequence text) {
+        if (text == null) return 0;
+        int ascii = 0;
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                ascii++;
+            } else if (c >= 0x2E80 && c <= 0x9FFF || c >= 0xAC00 && c <= 0xD7AF || c >= 0xF900 && c <= 0xFAFF
+                    || c >= 0xFF00 && c <= 0xFFEF) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (ascii + 3) / 4 + (other + 1) / 2;
+    }
+
+    public static int estimateMessage(CharSequence text) {
+        return estimate(text) + MESSAGE_OVERHEAD;
+    }
+}
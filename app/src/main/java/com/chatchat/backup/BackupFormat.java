@@ -0,0 +1,30 @@
+package com.chatchat.backup;
+
+/**
+ * 聊天记录备份文件格式
+ * 文件头：MAGIC(int) VERSION(int)；随后是若干记录，每条记录为 类型(byte) 长度(int) 内容，
+ * 最后以 RECORD_END 结束，缺少结束记录的文件视为不完整。
+ * 所有整数为大端序，字符串为 长度(int, null 为 -1) + UTF-8 字节，消息类型为 code(byte, null 为 -1)。
+ * 附件以 RECORD_MEDIA（元数据）加若干条 RECORD_MEDIA_DATA（原始字节）写出，位于引用它们的消息之前
+ */
+final class BackupFormat {
+
+    static final int MAGIC = 0x43434250; // "CCBP"
+    static final int VERSION = 1;
+
+    static final byte RECORD_END = 0;
+    static final byte RECORD_USER = 1;
+    static final byte RECORD_GROUP = 2;
+    static final byte RECORD_MEMBER = 3;
+    static final byte RECORD_MESSAGE = 4;
+    static final byte RECORD_MEDIA = 5;
+    static final byte RECORD_MEDIA_DATA = 6;
+
+    static final int MEDIA_CHUNK_SIZE = 64 * 1024;
+
+    static final int FLAG_RECALLED = 1;
+    static final int FLAG_SENT_TO_CLOUD = 1 << 1;
+    static final int FLAG_AI_MESSAGE = 1 << 2;
+
+    private BackupFormat() {}
+}
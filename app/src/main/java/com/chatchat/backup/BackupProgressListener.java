@@ -0,0 +1,8 @@
+package com.chatchat.backup;
+
+/**
+ * 备份进度回调，done/total 为已处理和总记录数，总数未知时 total 为 -1
+ */
+public interface BackupProgressListener {
+    void onProgress(long done, long total);
+}
@@ -0,0 +1,217 @@
+package com.chatchat.backup;
+
+import com.chatchat.database.AppDatabase;
+import com.chatchat.database.BackupDao;
+import com.chatchat.database.MessageArchiver;
+import com.chatchat.model.ArchiveSegment;
+import com.chatchat.model.ChatGroup;
+import com.chatchat.model.GroupMember;
+import com.chatchat.model.MediaBlob;
+import com.chatchat.model.Message;
+import com.chatchat.model.User;
+import com.chatchat.utils.LocalMediaStore;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * 聊天记录导出
+ * 按主键键集分页依次流式写出用户、群组、群成员、附件和消息（包括归档消息），
+ * 任意时刻内存中只有一页数据和固定大小的写缓冲区，与聊天记录总量无关；附件内容分块写出。
+ * 用户的登录令牌和密码不会被导出，本地文件已丢失的附件跳过
+ */
+public class ChatHistoryExporter {
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private final BackupDao backupDao;
+    private final LocalMediaStore mediaStore;
+    private final BackupProgressListener listener;
+    private long total;
+    private long done;
+
+    public ChatHistoryExporter(AppDatabase database, LocalMediaStore mediaStore, BackupProgressListener listener) {
+        this.backupDao = database.backupDao();
+        this.mediaStore = mediaStore;
+        this.listener = listener;
+    }
+
+    /**
+     * 把全部聊天记录写入 channel，返回写出的记录数；channel 会被关闭
+     */
+    public long export(WritableByteChannel channel) throws IOException {
+        total = backupDao.countUsers() + backupDao.countGroups() + backupDao.countMembers()
+                + backupDao.countReferencedMedia() + backupDao.countMessages();
+        done = 0;
+        try (RecordWriter writer = new RecordWriter(channel)) {
+            writer.writeHeader();
+            exportUsers(writer);
+            exportGroups(writer);
+            exportMembers(writer);
+            // Before the messages, so the importer has every blob when the references are counted
+            exportMedia(writer);
+            exportMessages(writer);
+            exportArchivedMessages(writer);
+            writer.begin(BackupFormat.RECORD_END);
+            writer.putLong(done);
+            writer.end();
+        }
+        listener.onProgress(done, total);
+        return done;
+    }
+
+    private void exportUsers(RecordWriter writer) throws IOException {
+        String after = "";
+        List<User> page;
+        do {
+            page = backupDao.getUsersAfter(after, PAGE_SIZE);
+            for (User user : page) {
+                writer.begin(BackupFormat.RECORD_USER);
+                writer.putString(user.getTravelerId());
+                writer.putString(user.getUsername());
+                writer.putString(user.getAvatarUrl());
+                writer.putString(user.getAvatarAccessory());
+                writer.putLong(user.getLastSeen());
+                writer.putString(user.getPublicKey());
+                writer.end();
+                recordWritten();
+            }
+            if (!page.isEmpty()) after = page.get(page.size() - 1).getTravelerId();
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    private void exportGroups(RecordWriter writer) throws IOException {
+        String after = "";
+        List<ChatGroup> page;
+        do {
+            page = backupDao.getGroupsAfter(after, PAGE_SIZE);
+            for (ChatGroup group : page) {
+                writer.begin(BackupFormat.RECORD_GROUP);
+                writer.putString(group.getGroupId());
+                writer.putString(group.getGroupName());
+                writer.putString(group.getGroupAvatarUrl());
+                writer.putString(group.getCreatedBy());
+                writer.putLong(group.getCreatedAt());
+                writer.putString(group.getDescription());
+                writer.end();
+                recordWritten();
+            }
+            if (!page.isEmpty()) after = page.get(page.size() - 1).getGroupId();
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    private void exportMembers(RecordWriter writer) throws IOException {
+        String afterGroupId = "";
+        String afterUserId = "";
+        List<GroupMember> page;
+        do {
+            page = backupDao.getMembersAfter(afterGroupId, afterUserId, PAGE_SIZE);
+            for (GroupMember member : page) {
+                writer.begin(BackupFormat.RECORD_MEMBER);
+                writer.putString(member.getGroupId());
+                writer.putString(member.getUserId());
+                writer.putByte(member.getRole().code);
+                writer.putLong(member.getJoinedAt());
+                writer.end();
+                recordWritten();
+            }
+            if (!page.isEmpty()) {
+                GroupMember last = page.get(page.size() - 1);
+                afterGroupId = last.getGroupId();
+                afterUserId = last.getUserId();
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    private void exportMedia(RecordWriter writer) throws IOException {
+        byte[] chunk = new byte[BackupFormat.MEDIA_CHUNK_SIZE];
+        String after = "";
+        List<MediaBlob> page;
+        do {
+            page = backupDao.getReferencedMediaAfter(after, PAGE_SIZE);
+            for (MediaBlob blob : page) {
+                File file = mediaStore.getMediaFile(blob.getHash());
+                if (!file.exists()) continue;
+                writeMedia(writer, blob, file, chunk);
+                recordWritten();
+            }
+            if (!page.isEmpty()) after = page.get(page.size() - 1).getHash();
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    private void writeMedia(RecordWriter writer, MediaBlob blob, File file, byte[] chunk) throws IOException {
+        writer.begin(BackupFormat.RECORD_MEDIA);
+        writer.putString(blob.getHash());
+        writer.putString(blob.getMimeType());
+        writer.putLong(file.length());
+        writer.end();
+        long remaining = file.length();
+        try (InputStream in = new FileInputStream(file)) {
+            while (remaining > 0) {
+                int read = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+                if (read < 0) throw new IOException("Media file shrank while exporting: " + file);
+                writer.begin(BackupFormat.RECORD_MEDIA_DATA);
+                writer.putBytes(chunk, 0, read);
+                writer.end();
+                remaining -= read;
+            }
+        }
+    }
+
+    private void exportMessages(RecordWriter writer) throws IOException {
+        long after = Long.MIN_VALUE;
+        List<Message> page;
+        do {
+            page = backupDao.getMessagesAfter(after, PAGE_SIZE);
+            for (Message message : page) {
+                writeMessage(writer, message);
+            }
+            if (!page.isEmpty()) after = page.get(page.size() - 1).getMessageId();
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    // Archived messages are exported without restoring them into the hot table
+    private void exportArchivedMessages(RecordWriter writer) throws IOException {
+        String afterConversationId = "";
+        long afterFirstMessageId = Long.MIN_VALUE;
+        ArchiveSegment segment;
+        while ((segment = backupDao.getSegmentAfter(afterConversationId, afterFirstMessageId)) != null) {
+            for (Message message : MessageArchiver.decodeSegment(segment)) {
+                writeMessage(writer, message);
+            }
+            afterConversationId = segment.getConversationId();
+            afterFirstMessageId = segment.getFirstMessageId();
+        }
+    }
+
+    private void writeMessage(RecordWriter writer, Message message) throws IOException {
+        writer.begin(BackupFormat.RECORD_MESSAGE);
+        writer.putLong(message.getMessageId());
+        writer.putLong(message.getClientKey());
+        writer.putString(message.getSenderId());
+        writer.putString(message.getReceiverId());
+        writer.putString(message.getGroupId());
+        writer.putString(message.getConversationId());
+        writer.putString(message.getContent());
+        // type is nullable: MIGRATION_6_7 turns unknown legacy type names into NULL
+        writer.putByte(message.getType() == null ? -1 : message.getType().code);
+        writer.putLong(message.getTimestamp());
+        writer.putByte((message.isRecalled() ? BackupFormat.FLAG_RECALLED : 0)
+                | (message.isSentToCloud() ? BackupFormat.FLAG_SENT_TO_CLOUD : 0)
+                | (message.isAiMessage() ? BackupFormat.FLAG_AI_MESSAGE : 0));
+        writer.putString(message.getMediaUrl());
+        writer.putString(message.getMediaHash());
+        writer.end();
+        recordWritten();
+    }
+
+    private void recordWritten() {
+        if (++done % PROGRESS_INTERVAL == 0) {
+            listener.onProgress(done, total);
+        }
+    }
+}
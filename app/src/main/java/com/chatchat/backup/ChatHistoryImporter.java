@@ -0,0 +1,255 @@
+package com.chatchat.backup;
+
+import com.chatchat.database.AppDatabase;
+import com.chatchat.database.BackupDao;
+import com.chatchat.database.MessageDao;
+import com.chatchat.model.ChatGroup;
+import com.chatchat.model.GroupMember;
+import com.chatchat.model.Message;
+import com.chatchat.model.User;
+import com.chatchat.utils.LocalMediaStore;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 聊天记录导入
+ * 流式读取备份文件，每 BATCH_SIZE 条记录在一个事务中写入；本机已有的数据优先，不会被备份覆盖。
+ * 附件写入临时文件并校验内容哈希后存入媒体库，本机已有的附件跳过。
+ * 备份文件缺少结束记录时抛出 IOException，此前已提交的批次保留（重新导入是幂等的）
+ */
+public class ChatHistoryImporter {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final BackupDao backupDao;
+    private final MessageDao messageDao;
+    private final LocalMediaStore mediaStore;
+    private final BackupProgressListener listener;
+
+    private final List<User> users = new ArrayList<>(BATCH_SIZE);
+    private final List<ChatGroup> groups = new ArrayList<>(BATCH_SIZE);
+    private final List<GroupMember> members = new ArrayList<>(BATCH_SIZE);
+    private final List<Message> messages = new ArrayList<>(BATCH_SIZE);
+    private long done;
+
+    // The attachment being read; mediaOut is null while skipping one this device already has
+    private final MessageDigest mediaDigest = LocalMediaStore.newDigest();
+    private String mediaHash;
+    private String mediaMimeType;
+    private long mediaSize;
+    private long mediaRemaining;
+    private File mediaTempFile;
+    private OutputStream mediaOut;
+
+    public ChatHistoryImporter(AppDatabase database, LocalMediaStore mediaStore, BackupProgressListener listener) {
+        this.backupDao = database.backupDao();
+        this.messageDao = database.messageDao();
+        this.mediaStore = mediaStore;
+        this.listener = listener;
+    }
+
+    /**
+     * 从 channel 读取并导入备份，返回读取的记录数；channel 会被关闭
+     */
+    public long importFrom(ReadableByteChannel channel) throws IOException {
+        done = 0;
+        try (RecordReader reader = new RecordReader(channel)) {
+            reader.readHeader();
+            while (true) {
+                byte type = reader.next();
+                if (mediaRemaining > 0 && type != BackupFormat.RECORD_MEDIA_DATA) {
+                    throw new IOException("Backup media is truncated: " + mediaHash);
+                }
+                switch (type) {
+                    case BackupFormat.RECORD_USER:
+                        users.add(readUser(reader));
+                        if (users.size() == BATCH_SIZE) flushUsers();
+                        break;
+                    case BackupFormat.RECORD_GROUP:
+                        groups.add(readGroup(reader));
+                        if (groups.size() == BATCH_SIZE) flushGroups();
+                        break;
+                    case BackupFormat.RECORD_MEMBER:
+                        members.add(readMember(reader));
+                        if (members.size() == BATCH_SIZE) flushMembers();
+                        break;
+                    case BackupFormat.RECORD_MEDIA:
+                        beginMedia(reader);
+                        break;
+                    case BackupFormat.RECORD_MEDIA_DATA:
+                        appendMedia(reader);
+                        break;
+                    case BackupFormat.RECORD_MESSAGE:
+                        messages.add(readMessage(reader));
+                        if (messages.size() == BATCH_SIZE) flushMessages();
+                        break;
+                    case BackupFormat.RECORD_END:
+                        long expected = reader.getLong();
+                        flushAll();
+                        if (expected != done) {
+                            throw new IOException("Backup record count mismatch: " + done + " of " + expected);
+                        }
+                        listener.onProgress(done, expected);
+                        return done;
+                    default:
+                        // Unknown record types from newer versions are skipped
+                        break;
+                }
+            }
+        } finally {
+            discardMedia();
+        }
+    }
+
+    private void beginMedia(RecordReader reader) throws IOException {
+        mediaHash = reader.getString();
+        mediaMimeType = reader.getString();
+        mediaSize = reader.getLong();
+        mediaRemaining = mediaSize;
+        if (!mediaStore.contains(mediaHash)) {
+            mediaTempFile = mediaStore.createTempFile();
+            mediaDigest.reset();
+            mediaOut = new DigestOutputStream(new FileOutputStream(mediaTempFile), mediaDigest);
+        }
+        if (mediaRemaining == 0) finishMedia();
+    }
+
+    private void appendMedia(RecordReader reader) throws IOException {
+        if (reader.remaining() > mediaRemaining) {
+            throw new IOException("Unexpected media data in backup");
+        }
+        mediaRemaining -= mediaOut != null ? reader.copyRemainingTo(mediaOut) : reader.remaining();
+        if (mediaRemaining == 0) finishMedia();
+    }
+
+    private void finishMedia() throws IOException {
+        if (mediaOut != null) {
+            mediaOut.close();
+            mediaOut = null;
+            try {
+                if (!LocalMediaStore.toHex(mediaDigest.digest()).equals(mediaHash)) {
+                    throw new IOException("Backup media is corrupt: " + mediaHash);
+                }
+                mediaStore.store(mediaTempFile, mediaHash, mediaMimeType, mediaSize);
+            } finally {
+                mediaTempFile.delete();
+                mediaTempFile = null;
+            }
+        }
+        // Counted like the exporter does, one record per attachment
+        done++;
+        listener.onProgress(done, -1);
+    }
+
+    private void discardMedia() throws IOException {
+        if (mediaOut == null) return;
+        try {
+            mediaOut.close();
+        } finally {
+            mediaOut = null;
+            mediaTempFile.delete();
+            mediaTempFile = null;
+        }
+    }
+
+    private User readUser(RecordReader reader) {
+        User user = new User();
+        user.setTravelerId(reader.getString());
+        user.setUsername(reader.getString());
+        user.setAvatarUrl(reader.getString());
+        user.setAvatarAccessory(reader.getString());
+        user.setLastSeen(reader.getLong());
+        user.setPublicKey(reader.getString());
+        return user;
+    }
+
+    private ChatGroup readGroup(RecordReader reader) {
+        ChatGroup group = new ChatGroup();
+        group.setGroupId(reader.getString());
+        group.setGroupName(reader.getString());
+        group.setGroupAvatarUrl(reader.getString());
+        group.setCreatedBy(reader.getString());
+        group.setCreatedAt(reader.getLong());
+        group.setDescription(reader.getString());
+        return group;
+    }
+
+    private GroupMember readMember(RecordReader reader) {
+        GroupMember member = new GroupMember();
+        member.setGroupId(reader.getString());
+        member.setUserId(reader.getString());
+        member.setRole(GroupMember.Role.fromCode(reader.getByte()));
+        member.setJoinedAt(reader.getLong());
+        return member;
+    }
+
+    private Message readMessage(RecordReader reader) {
+        Message message = new Message();
+        message.setMessageId(reader.getLong());
+        message.setClientKey(reader.getLong());
+        message.setSenderId(reader.getString());
+        message.setReceiverId(reader.getString());
+        message.setGroupId(reader.getString());
+        // After the participant setters, which derive their own conversationId
+        message.setConversationId(reader.getString());
+        message.setContent(reader.getString());
+        int type = reader.getByte();
+        message.setType(type < 0 ? null : Message.MessageType.fromCode(type));
+        message.setTimestamp(reader.getLong());
+        int flags = reader.getByte();
+        message.setRecalled((flags & BackupFormat.FLAG_RECALLED) != 0);
+        message.setSentToCloud((flags & BackupFormat.FLAG_SENT_TO_CLOUD) != 0);
+        message.setAiMessage((flags & BackupFormat.FLAG_AI_MESSAGE) != 0);
+        message.setMediaUrl(reader.getString());
+        message.setMediaHash(reader.getString());
+        return message;
+    }
+
+    // Parents before children, so members and messages never reference a batch that is still pending
+    private void flushAll() {
+        flushUsers();
+        flushGroups();
+        flushMembers();
+        flushMessages();
+    }
+
+    private void flushUsers() {
+        if (users.isEmpty()) return;
+        backupDao.insertUsers(users);
+        batchCommitted(users);
+    }
+
+    private void flushGroups() {
+        if (groups.isEmpty()) return;
+        backupDao.importGroups(groups);
+        batchCommitted(groups);
+    }
+
+    private void flushMembers() {
+        flushGroups();
+        if (members.isEmpty()) return;
+        backupDao.insertMembers(members);
+        batchCommitted(members);
+    }
+
+    private void flushMessages() {
+        flushUsers();
+        flushGroups();
+        if (messages.isEmpty()) return;
+        messageDao.importMessagesWithConversations(messages);
+        batchCommitted(messages);
+    }
+
+    private void batchCommitted(List<?> batch) {
+        done += batch.size();
+        batch.clear();
+        listener.onProgress(done, -1);
+    }
+}
@@ -0,0 +1,118 @@
+package com.chatchat.backup;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 带缓冲的记录读取器，与 RecordWriter 对应；同一时间只在内存中保留一条记录
+ */
+final class RecordReader implements Closeable {
+
+    private static final int CHANNEL_BUFFER_SIZE = 256 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE);
+    private ByteBuffer record = ByteBuffer.allocate(4 * 1024);
+
+    RecordReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.limit(0);
+    }
+
+    void readHeader() throws IOException {
+        require(8);
+        int magic = buffer.getInt();
+        int version = buffer.getInt();
+        if (magic != BackupFormat.MAGIC) {
+            throw new IOException("Not a chat history backup");
+        }
+        if (version > BackupFormat.VERSION) {
+            throw new IOException("Unsupported backup version: " + version);
+        }
+    }
+
+    /**
+     * 读入下一条记录并返回其类型
+     */
+    byte next() throws IOException {
+        require(5);
+        byte type = buffer.get();
+        int length = buffer.getInt();
+        if (length < 0) {
+            throw new IOException("Corrupt record length: " + length);
+        }
+        if (record.capacity() < length) {
+            record = ByteBuffer.allocate(Math.max(record.capacity() * 2, length));
+        }
+        record.clear().limit(length);
+        while (record.hasRemaining()) {
+            if (!buffer.hasRemaining()) {
+                require(1);
+            }
+            int chunk = Math.min(record.remaining(), buffer.remaining());
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(slice.position() + chunk);
+            record.put(slice);
+            buffer.position(buffer.position() + chunk);
+        }
+        record.flip();
+        return type;
+    }
+
+    int getInt() {
+        return record.getInt();
+    }
+
+    long getLong() {
+        return record.getLong();
+    }
+
+    int getByte() {
+        return record.get();
+    }
+
+    String getString() {
+        int length = record.getInt();
+        if (length < 0) return null;
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length,
+                StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    int remaining() {
+        return record.remaining();
+    }
+
+    /**
+     * 把当前记录余下的字节写入 out，返回字节数
+     */
+    int copyRemainingTo(OutputStream out) throws IOException {
+        int length = record.remaining();
+        out.write(record.array(), record.arrayOffset() + record.position(), length);
+        record.position(record.limit());
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Makes at least `bytes` bytes available in the channel buffer
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Backup is truncated");
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,108 @@
+package com.chatchat.backup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 带缓冲的记录写入器：记录先写入一个可增长的记录缓冲区，结束时加上类型和长度前缀写入通道缓冲区
+ */
+final class RecordWriter implements Closeable {
+
+    private static final int CHANNEL_BUFFER_SIZE = 256 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE);
+    private ByteBuffer record = ByteBuffer.allocate(4 * 1024);
+    private byte recordType;
+
+    RecordWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    void writeHeader() throws IOException {
+        buffer.putInt(BackupFormat.MAGIC).putInt(BackupFormat.VERSION);
+    }
+
+    void begin(byte type) {
+        recordType = type;
+        record.clear();
+    }
+
+    void putInt(int value) {
+        ensureCapacity(4);
+        record.putInt(value);
+    }
+
+    void putLong(long value) {
+        ensureCapacity(8);
+        record.putLong(value);
+    }
+
+    void putByte(int value) {
+        ensureCapacity(1);
+        record.put((byte) value);
+    }
+
+    void putString(String value) {
+        if (value == null) {
+            putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(4 + bytes.length);
+        record.putInt(bytes.length).put(bytes);
+    }
+
+    // Raw bytes up to the end of the record, no length prefix
+    void putBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        record.put(bytes, offset, length);
+    }
+
+    void end() throws IOException {
+        record.flip();
+        if (buffer.remaining() < 5 + record.remaining()) {
+            flush();
+        }
+        if (buffer.remaining() < 5 + record.remaining()) {
+            // Larger than the whole channel buffer: write the record straight through
+            buffer.put(recordType).putInt(record.remaining());
+            flush();
+            writeFully(record);
+        } else {
+            buffer.put(recordType).putInt(record.remaining()).put(record);
+        }
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (record.remaining() >= bytes) return;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+        record.flip();
+        grown.put(record);
+        record = grown;
+    }
+}
@@ -0,0 +1,39 @@
+package com.chatchat.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import com.chatchat.model.AiResponseCacheEntry;
+import java.util.List;
+
+@Dao
+public interface AiResponseCacheDao {
+    @Query("SELECT * FROM ai_response_cache WHERE cacheKey = :cacheKey AND expiresAt > :now")
+    AiResponseCacheEntry getValid(String cacheKey, long now);
+
+    @Query("UPDATE ai_response_cache SET lastHitAt = :now WHERE cacheKey IN (:cacheKeys) AND lastHitAt < :now")
+    void touchAll(List<String> cacheKeys, long now);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(AiResponseCacheEntry entry);
+
+    @Query("DELETE FROM ai_response_cache WHERE expiresAt <= :now")
+    int deleteExpired(long now);
+
+    // Keeps the maxRows most recently used rows
+    @Query("DELETE FROM ai_response_cache WHERE cacheKey IN (SELECT cacheKey FROM ai_response_cache " +
+            "ORDER BY lastHitAt DESC LIMIT -1 OFFSET :maxRows)")
+    int trimTo(int maxRows);
+
+    @Query("DELETE FROM ai_response_cache")
+    void clear();
+
+    @Transaction
+    default void putAndTrim(AiResponseCacheEntry entry, long now, int maxRows) {
+        upsert(entry);
+        deleteExpired(now);
+        trimTo(maxRows);
+    }
+}
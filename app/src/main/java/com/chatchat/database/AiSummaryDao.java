@@ -0,0 +1,31 @@
+package com.chatchat.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import com.chatchat.model.AiSummary;
+
+@Dao
+public interface AiSummaryDao {
+    @Query("SELECT * FROM ai_summaries WHERE conversationId = :conversationId")
+    AiSummary getSummary(String conversationId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(AiSummary summary);
+
+    /**
+     * 只在新摘要覆盖到更晚的消息时写入，并发构建得到的旧摘要不会覆盖新摘要
+     */
+    @Transaction
+    default void upsertIfNewer(AiSummary summary) {
+        AiSummary current = getSummary(summary.getConversationId());
+        if (current == null || current.getCoveredUpToMessageId() < summary.getCoveredUpToMessageId()) {
+            upsert(summary);
+        }
+    }
+
+    @Query("DELETE FROM ai_summaries WHERE conversationId = :conversationId")
+    void deleteSummary(String conversationId);
+}
@@ -4,15 +4,27 @@ import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.sqlite.db.SupportSQLiteQuery;
 import android.content.Context;
+import android.database.Cursor;
+import android.os.CancellationSignal;
 import com.chatchat.model.User;
 import com.chatchat.model.Message;
 import com.chatchat.model.ChatGroup;
+import com.chatchat.model.MessageFts;
+import com.chatchat.model.Conversation;
+import com.chatchat.model.GroupMember;
+import com.chatchat.model.ReadState;
+import com.chatchat.model.ArchiveSegment;
+import com.chatchat.model.MediaBlob;
+import com.chatchat.model.AiSummary;
+import com.chatchat.model.AiResponseCacheEntry;
+import com.chatchat.model.SyncCursor;
 
 @Database(
-    entities = {User.class, Message.class, ChatGroup.class},
-    version = 1,
-    exportSchema = false
+    entities = {User.class, Message.class, ChatGroup.class, MessageFts.class, Conversation.class, GroupMember.class, ReadState.class, ArchiveSegment.class, MediaBlob.class, AiSummary.class, AiResponseCacheEntry.class, SyncCursor.class},
+    version = 14,
+    exportSchema = true
 )
 @TypeConverters({Converters.class})
 public abstract class AppDatabase extends RoomDatabase {
@@ -21,8 +33,30 @@ public abstract class AppDatabase extends RoomDatabase {
     public abstract UserDao userDao();
     public abstract MessageDao messageDao();
     public abstract ChatGroupDao chatGroupDao();
+    public abstract MessageSearchDao messageSearchDao();
+    public abstract ConversationDao conversationDao();
+    public abstract GroupMemberDao groupMemberDao();
+    public abstract ReadStateDao readStateDao();
+    public abstract MessageArchiveDao messageArchiveDao();
+    public abstract MediaBlobDao mediaBlobDao();
+    public abstract BackupDao backupDao();
+    public abstract AiSummaryDao aiSummaryDao();
+    public abstract AiResponseCacheDao aiResponseCacheDao();
+    public abstract SyncCursorDao syncCursorDao();
+
+    private static final DatabaseStats STATS = new DatabaseStats();
 
     public static AppDatabase getDatabase(final Context context) {
+        if (INSTANCE == null) {
+            return getDatabase(context, DatabaseConfig.defaults());
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * 使用指定参数创建数据库；实例只会创建一次，之后的调用直接返回已有实例
+     */
+    public static AppDatabase getDatabase(final Context context, final DatabaseConfig config) {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
                 if (INSTANCE == null) {
@@ -30,10 +64,57 @@ public abstract class AppDatabase extends RoomDatabase {
                             context.getApplicationContext(),
                             AppDatabase.class,
                             "chatchat_database"
-                    ).build();
+                    )
+                    .setJournalMode(config.journalMode)
+                    .setQueryExecutor(config.queryExecutor)
+                    .setTransactionExecutor(config.transactionExecutor)
+                    .addMigrations(Migrations.ALL)
+                    .build();
                 }
             }
         }
         return INSTANCE;
     }
-}
\ No newline at end of file
+
+    /**
+     * 查询与事务的等待、执行耗时统计
+     */
+    public static DatabaseStats getStats() {
+        return STATS;
+    }
+
+    /**
+     * 消息写入涉及的会话，事务结束后通知
+     */
+    public ConversationChanges getConversationChanges() {
+        return ConversationChanges.get();
+    }
+
+    // Generated DAOs and runInTransaction open every transaction and query through these methods
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void beginTransaction() {
+        long requestedAt = System.nanoTime();
+        super.beginTransaction();
+        STATS.afterBegin(requestedAt);
+        ConversationChanges.get().afterBegin();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void endTransaction() {
+        try {
+            super.endTransaction();
+        } finally {
+            STATS.afterEnd();
+            ConversationChanges.get().afterEnd();
+        }
+    }
+
+    @Override
+    public Cursor query(SupportSQLiteQuery query, CancellationSignal signal) {
+        long requestedAt = System.nanoTime();
+        return STATS.track(super.query(query, signal), requestedAt);
+    }
+}
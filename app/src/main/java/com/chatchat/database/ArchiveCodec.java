@@ -0,0 +1,112 @@
+package com.chatchat.database;
+
+import com.chatchat.model.Message;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 归档段编码：版本号、消息数，随后逐条写入消息字段，整体用 Deflate 压缩
+ * 同一段内 conversationId 相同，只写一次
+ */
+final class ArchiveCodec {
+
+    private static final int VERSION = 2; // 2: adds mediaHash
+
+    private static final int FLAG_RECALLED = 1;
+    private static final int FLAG_SENT_TO_CLOUD = 1 << 1;
+    private static final int FLAG_AI_MESSAGE = 1 << 2;
+
+    private ArchiveCodec() {}
+
+    static byte[] encode(String conversationId, List<Message> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(
+                new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_COMPRESSION)))) {
+            out.writeInt(VERSION);
+            writeString(out, conversationId);
+            out.writeInt(messages.size());
+            for (Message message : messages) {
+                out.writeLong(message.getMessageId());
+                out.writeLong(message.getClientKey());
+                writeString(out, message.getSenderId());
+                writeString(out, message.getReceiverId());
+                writeString(out, message.getGroupId());
+                writeString(out, message.getContent());
+                out.writeInt(message.getType() == null ? -1 : message.getType().code);
+                out.writeLong(message.getTimestamp());
+                writeString(out, message.getMediaUrl());
+                writeString(out, message.getMediaHash());
+                int flags = 0;
+                if (message.isRecalled()) flags |= FLAG_RECALLED;
+                if (message.isSentToCloud()) flags |= FLAG_SENT_TO_CLOUD;
+                if (message.isAiMessage()) flags |= FLAG_AI_MESSAGE;
+                out.writeByte(flags);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<Message> decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(payload)))) {
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported archive version: " + version);
+            }
+            String conversationId = readString(in);
+            int count = in.readInt();
+            List<Message> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Message message = new Message();
+                message.setMessageId(in.readLong());
+                message.setClientKey(in.readLong());
+                message.setSenderId(readString(in));
+                message.setReceiverId(readString(in));
+                message.setGroupId(readString(in));
+                message.setConversationId(conversationId);
+                message.setContent(readString(in));
+                int type = in.readInt();
+                message.setType(type < 0 ? null : Message.MessageType.fromCode(type));
+                message.setTimestamp(in.readLong());
+                message.setMediaUrl(readString(in));
+                if (version >= 2) {
+                    message.setMediaHash(readString(in));
+                }
+                int flags = in.readByte();
+                message.setRecalled((flags & FLAG_RECALLED) != 0);
+                message.setSentToCloud((flags & FLAG_SENT_TO_CLOUD) != 0);
+                message.setAiMessage((flags & FLAG_AI_MESSAGE) != 0);
+                messages.add(message);
+            }
+            return messages;
+        }
+    }
+
+    // Length-prefixed UTF-8, -1 for null; writeUTF would cap content at 64 KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
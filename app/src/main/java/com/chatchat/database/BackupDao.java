@@ -0,0 +1,84 @@
+package com.chatchat.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import com.chatchat.model.ArchiveSegment;
+import com.chatchat.model.ChatGroup;
+import com.chatchat.model.GroupMember;
+import com.chatchat.model.MediaBlob;
+import com.chatchat.model.Message;
+import com.chatchat.model.User;
+import java.util.List;
+
+/**
+ * 备份导出/导入使用的查询：所有读取都按主键键集分页，内存占用与数据量无关
+ */
+@Dao
+public interface BackupDao {
+
+    @Query("SELECT COUNT(*) FROM users")
+    long countUsers();
+
+    @Query("SELECT COUNT(*) FROM chat_groups")
+    long countGroups();
+
+    @Query("SELECT COUNT(*) FROM group_members")
+    long countMembers();
+
+    @Query("SELECT (SELECT COUNT(*) FROM messages) + (SELECT COALESCE(SUM(messageCount), 0) FROM message_archive)")
+    long countMessages();
+
+    @Query("SELECT COUNT(*) FROM media_blobs WHERE refCount > 0")
+    long countReferencedMedia();
+
+    @Query("SELECT * FROM users WHERE travelerId > :afterId ORDER BY travelerId ASC LIMIT :limit")
+    List<User> getUsersAfter(String afterId, int limit);
+
+    @Query("SELECT * FROM chat_groups WHERE groupId > :afterId ORDER BY groupId ASC LIMIT :limit")
+    List<ChatGroup> getGroupsAfter(String afterId, int limit);
+
+    @Query("SELECT * FROM group_members WHERE groupId > :afterGroupId " +
+            "OR (groupId = :afterGroupId AND userId > :afterUserId) ORDER BY groupId ASC, userId ASC LIMIT :limit")
+    List<GroupMember> getMembersAfter(String afterGroupId, String afterUserId, int limit);
+
+    // Unreferenced blobs are about to be collected, they are not backed up
+    @Query("SELECT * FROM media_blobs WHERE refCount > 0 AND hash > :afterHash ORDER BY hash ASC LIMIT :limit")
+    List<MediaBlob> getReferencedMediaAfter(String afterHash, int limit);
+
+    @Query("SELECT * FROM messages WHERE messageId > :afterId ORDER BY messageId ASC LIMIT :limit")
+    List<Message> getMessagesAfter(long afterId, int limit);
+
+    // One segment at a time, payloads can be large
+    @Query("SELECT * FROM message_archive WHERE conversationId > :afterConversationId " +
+            "OR (conversationId = :afterConversationId AND firstMessageId > :afterFirstMessageId) " +
+            "ORDER BY conversationId ASC, firstMessageId ASC LIMIT 1")
+    ArchiveSegment getSegmentAfter(String afterConversationId, long afterFirstMessageId);
+
+    // Rows that already exist on this device win over the backup
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertUsers(List<User> users);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertGroups(List<ChatGroup> groups);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertMembers(List<GroupMember> members);
+
+    @Query("INSERT OR IGNORE INTO conversations (conversationId, groupId, lastMessageTime) " +
+            "VALUES ('g:' || :groupId, :groupId, :createdAt)")
+    void ensureGroupConversation(String groupId, long createdAt);
+
+    /**
+     * 导入一批群组，同时写入会话摘要
+     */
+    @Transaction
+    default void importGroups(List<ChatGroup> groups) {
+        insertGroups(groups);
+        for (ChatGroup group : groups) {
+            ensureGroupConversation(group.getGroupId(), group.getCreatedAt());
+        }
+    }
+}
@@ -4,9 +4,13 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import androidx.room.Upsert;
 import androidx.room.Delete;
 import com.chatchat.model.ChatGroup;
+import com.chatchat.model.GroupMember;
+import com.chatchat.model.SyncCursor;
 import java.util.List;
 
 @Dao
@@ -14,6 +18,61 @@ public interface ChatGroupDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertChatGroup(ChatGroup chatGroup);
 
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertChatGroups(List<ChatGroup> chatGroups);
+
+    @Upsert
+    void upsertChatGroup(ChatGroup chatGroup);
+
+    @Upsert
+    void upsertChatGroups(List<ChatGroup> chatGroups);
+
+    // A new group shows up in the chat list right away, before its first message
+    @Query("INSERT OR IGNORE INTO conversations (conversationId, groupId, lastMessageTime) " +
+            "VALUES ('g:' || :groupId, :groupId, :createdAt)")
+    void ensureGroupConversation(String groupId, long createdAt);
+
+    // Lives here rather than in GroupMemberDao so group creation is a single transaction
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertGroupMembers(List<GroupMember> members);
+
+    /**
+     * 创建群组，同时写入成员关系和会话摘要
+     */
+    @Transaction
+    default void createChatGroup(ChatGroup chatGroup, List<GroupMember> members) {
+        insertChatGroup(chatGroup);
+        insertGroupMembers(members);
+        ensureGroupConversation(chatGroup.getGroupId(), chatGroup.getCreatedAt());
+    }
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertChatGroupIfAbsent(ChatGroup chatGroup);
+
+    // Local columns (last message, unread count) are left alone
+    @Query("UPDATE chat_groups SET groupName = :groupName, groupAvatarUrl = :groupAvatarUrl, " +
+            "description = :description WHERE groupId = :groupId")
+    void updateGroupProfile(String groupId, String groupName, String groupAvatarUrl, String description);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void saveSyncCursor(SyncCursor cursor);
+
+    /**
+     * 应用一页拉取到的群组变更；每个群组带有完整的成员列表，替换本地的成员关系。游标在同一个事务中前移
+     */
+    @Transaction
+    default void applyPulledGroups(List<ChatGroup> groups, List<GroupMember> members, SyncCursor cursor) {
+        for (ChatGroup group : groups) {
+            insertChatGroupIfAbsent(group);
+            updateGroupProfile(group.getGroupId(), group.getGroupName(), group.getGroupAvatarUrl(),
+                    group.getDescription());
+            ensureGroupConversation(group.getGroupId(), group.getCreatedAt());
+            deleteGroupMembers(group.getGroupId());
+        }
+        insertGroupMembers(members);
+        saveSyncCursor(cursor);
+    }
+
     @Update
     void updateChatGroup(ChatGroup chatGroup);
 
@@ -30,8 +89,24 @@ public interface ChatGroupDao {
     void updateUnreadCount(String groupId, int count);
 
     @Query("UPDATE chat_groups SET lastMessageId = :messageId, lastMessageTime = :time WHERE groupId = :groupId")
-    void updateLastMessage(String groupId, String messageId, long time);
+    void updateLastMessage(String groupId, long messageId, long time);
 
     @Query("DELETE FROM chat_groups WHERE groupId = :groupId")
     void deleteChatGroupById(String groupId);
+
+    @Query("DELETE FROM group_members WHERE groupId = :groupId")
+    void deleteGroupMembers(String groupId);
+
+    @Query("DELETE FROM conversations WHERE conversationId = 'g:' || :groupId")
+    void deleteGroupConversation(String groupId);
+
+    /**
+     * 删除群组及其成员关系和会话摘要
+     */
+    @Transaction
+    default void deleteChatGroupCompletely(String groupId) {
+        deleteGroupMembers(groupId);
+        deleteGroupConversation(groupId);
+        deleteChatGroupById(groupId);
+    }
 }
\ No newline at end of file
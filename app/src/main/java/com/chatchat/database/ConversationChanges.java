@@ -0,0 +1,69 @@
+package com.chatchat.database;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 按会话报告消息变更；InvalidationTracker 只报告表名，按会话缓存的仓库据此只清除受影响的会话。
+ * 写入消息的 DAO 事务记下涉及的会话，同一线程上最外层的事务结束后一次性通知监听者。
+ * 回滚的事务同样会通知，多清除一次缓存不影响正确性；只改同步标记的写入（markMessagesAsSynced）不报告
+ */
+public final class ConversationChanges {
+
+    public interface Listener {
+        // Runs on the writing thread right after its transaction ended, keep it short
+        void onConversationsChanged(Set<String> conversationIds);
+    }
+
+    private static final ConversationChanges INSTANCE = new ConversationChanges();
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Pending> pending = ThreadLocal.withInitial(Pending::new);
+
+    private ConversationChanges() {}
+
+    static ConversationChanges get() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 由 DAO 的写入方法调用；不在事务中时立即通知
+     */
+    static void changed(String conversationId) {
+        if (conversationId == null) return;
+        Pending state = INSTANCE.pending.get();
+        state.conversationIds.add(conversationId);
+        if (state.depth == 0) INSTANCE.publish(state);
+    }
+
+    void afterBegin() {
+        pending.get().depth++;
+    }
+
+    void afterEnd() {
+        Pending state = pending.get();
+        if (state.depth > 0 && --state.depth == 0 && !state.conversationIds.isEmpty()) {
+            publish(state);
+        }
+    }
+
+    private void publish(Pending state) {
+        Set<String> conversationIds = Collections.unmodifiableSet(state.conversationIds);
+        state.conversationIds = new HashSet<>();
+        for (Listener listener : listeners) {
+            listener.onConversationsChanged(conversationIds);
+        }
+    }
+
+    private static final class Pending {
+        int depth;
+        Set<String> conversationIds = new HashSet<>();
+    }
+}
@@ -0,0 +1,47 @@
+package com.chatchat.database;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import com.chatchat.model.Conversation;
+import com.chatchat.model.ConversationSummary;
+import java.util.List;
+
+@Dao
+public interface ConversationDao {
+
+    String SUMMARY_COLUMNS = "c.conversationId, c.groupId, " +
+            "CASE WHEN c.groupId IS NULL THEN (CASE WHEN c.userId1 = :userId THEN c.userId2 ELSE c.userId1 END) END AS peerId, " +
+            "COALESCE(g.groupName, u.username) AS title, " +
+            "c.lastMessagePreview, c.lastMessageTime, " +
+            "(SELECT COUNT(*) FROM messages m WHERE m.conversationId = c.conversationId " +
+            "AND m.messageId > IFNULL((SELECT r.lastReadMessageId FROM read_state r " +
+            "WHERE r.userId = :userId AND r.conversationId = c.conversationId), 0) " +
+            "AND m.senderId != :userId) AS unreadCount, " +
+            "IFNULL(u.isOnline, 0) AS peerOnline";
+
+    String SUMMARY_JOINS = "FROM conversations c " +
+            "LEFT JOIN chat_groups g ON g.groupId = c.groupId " +
+            "LEFT JOIN users u ON c.groupId IS NULL " +
+            "AND u.travelerId = (CASE WHEN c.userId1 = :userId THEN c.userId2 ELSE c.userId1 END) ";
+
+    @Query("SELECT * FROM conversations WHERE conversationId = :conversationId")
+    Conversation getConversationById(String conversationId);
+
+    /**
+     * 聊天列表的一页，按 (lastMessageTime, conversationId) 键集分页；首页传 Long.MAX_VALUE 和 ""
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " " + SUMMARY_JOINS +
+            "WHERE (c.userId1 = :userId OR c.userId2 = :userId " +
+            "OR EXISTS (SELECT 1 FROM group_members gm WHERE gm.groupId = c.groupId AND gm.userId = :userId)) " +
+            "AND c.conversationId != :excludedConversationId " +
+            "AND (c.lastMessageTime < :beforeTime OR (c.lastMessageTime = :beforeTime AND c.conversationId < :beforeConversationId)) " +
+            "ORDER BY c.lastMessageTime DESC, c.conversationId DESC LIMIT :limit")
+    List<ConversationSummary> getConversationSummaries(String userId, String excludedConversationId,
+                                                       long beforeTime, String beforeConversationId, int limit);
+
+    @Query("SELECT " + SUMMARY_COLUMNS + " " + SUMMARY_JOINS + "WHERE c.conversationId = :conversationId")
+    ConversationSummary getConversationSummary(String userId, String conversationId);
+
+    @Query("DELETE FROM conversations WHERE conversationId = :conversationId")
+    void deleteConversationById(String conversationId);
+}
@@ -1,33 +1,31 @@
 package com.chatchat.database;
 
 import androidx.room.TypeConverter;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.chatchat.model.GroupMember;
 import com.chatchat.model.Message;
-import java.lang.reflect.Type;
-import java.util.List;
 
+/**
+ * Room 类型转换
+ * 每读一行都会调用一次，所以这里不使用反射：枚举保存为固定的整数 code
+ */
 public class Converters {
-    private static Gson gson = new Gson();
-
     @TypeConverter
-    public static String fromStringList(List<String> value) {
-        return gson.toJson(value);
+    public static Integer fromMemberRole(GroupMember.Role role) {
+        return role == null ? null : role.code;
     }
 
     @TypeConverter
-    public static List<String> toStringList(String value) {
-        Type listType = new TypeToken<List<String>>() {}.getType();
-        return gson.fromJson(value, listType);
+    public static GroupMember.Role toMemberRole(Integer code) {
+        return code == null ? null : GroupMember.Role.fromCode(code);
     }
 
     @TypeConverter
-    public static String fromMessageType(Message.MessageType type) {
-        return type.name();
+    public static Integer fromMessageType(Message.MessageType type) {
+        return type == null ? null : type.code;
     }
 
     @TypeConverter
-    public static Message.MessageType toMessageType(String type) {
-        return Message.MessageType.valueOf(type);
+    public static Message.MessageType toMessageType(Integer code) {
+        return code == null ? null : Message.MessageType.fromCode(code);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+package com.chatchat.database;
+
+import androidx.room.RoomDatabase;
+import com.chatchat.utils.TaskDispatcher;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据库构建参数
+ * 默认使用 WAL 日志模式：读连接与唯一的写连接互不阻塞。
+ * 读并发度由查询线程池大小决定（框架的 WAL 连接池本身不对应用开放配置）。
+ * 未指定执行器时使用 TaskDispatcher 的数据库读/写通道，与应用自己提交的数据库任务共用线程
+ */
+public final class DatabaseConfig {
+
+    public static final int DEFAULT_READ_POOL_SIZE = TaskDispatcher.DB_READ_POOL_SIZE;
+
+    final RoomDatabase.JournalMode journalMode;
+    final int readPoolSize;
+    final Executor queryExecutor;
+    final Executor transactionExecutor;
+
+    private DatabaseConfig(Builder builder) {
+        this.journalMode = builder.journalMode;
+        this.readPoolSize = builder.readPoolSize;
+        if (builder.queryExecutor != null) {
+            this.queryExecutor = builder.queryExecutor;
+        } else if (builder.readPoolSize == DEFAULT_READ_POOL_SIZE) {
+            this.queryExecutor = TaskDispatcher.getInstance().executor(TaskDispatcher.Lane.DB_READ);
+        } else {
+            this.queryExecutor = Executors.newFixedThreadPool(builder.readPoolSize, namedThreadFactory("db-read"));
+        }
+        this.transactionExecutor = builder.transactionExecutor != null
+                ? builder.transactionExecutor
+                : TaskDispatcher.getInstance().executor(TaskDispatcher.Lane.DB_WRITE);
+    }
+
+    public static DatabaseConfig defaults() {
+        return new Builder().build();
+    }
+
+    public RoomDatabase.JournalMode getJournalMode() { return journalMode; }
+
+    public int getReadPoolSize() { return readPoolSize; }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static class Builder {
+        private RoomDatabase.JournalMode journalMode = RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING;
+        private int readPoolSize = DEFAULT_READ_POOL_SIZE;
+        private Executor queryExecutor;
+        private Executor transactionExecutor;
+
+        public Builder setJournalMode(RoomDatabase.JournalMode journalMode) {
+            this.journalMode = journalMode;
+            return this;
+        }
+
+        /**
+         * 并发读线程数，仅在未指定 queryExecutor 时生效
+         */
+        public Builder setReadPoolSize(int readPoolSize) {
+            if (readPoolSize < 1) {
+                throw new IllegalArgumentException("readPoolSize must be at least 1");
+            }
+            this.readPoolSize = readPoolSize;
+            return this;
+        }
+
+        public Builder setQueryExecutor(Executor queryExecutor) {
+            this.queryExecutor = queryExecutor;
+            return this;
+        }
+
+        /**
+         * 写事务执行器，应当是串行的：SQLite 同一时刻只允许一个写者
+         */
+        public Builder setTransactionExecutor(Executor transactionExecutor) {
+            this.transactionExecutor = transactionExecutor;
+            return this;
+        }
+
+        public DatabaseConfig build() {
+            return new DatabaseConfig(this);
+        }
+    }
+}
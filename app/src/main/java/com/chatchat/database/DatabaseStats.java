@@ -0,0 +1,81 @@
+package com.chatchat.database;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import com.chatchat.utils.LaneStats;
+
+/**
+ * 数据库语句统计，在 AppDatabase 的事务和查询入口处计时，同步调用和任意线程上的调用都会被记录
+ * 事务：wait 为 beginTransaction 阻塞的时间，即等待写锁（其它线程的写事务）的时间；run 为持有写锁的时间。
+ * 查询：wait 为 query() 本身的耗时（取连接、编译语句），run 为从返回游标到关闭游标的耗时（逐行读取结果）。
+ * 任务在执行器中的排队时间由 TaskDispatcher 各通道自己的 LaneStats 记录
+ */
+public final class DatabaseStats {
+
+    private final LaneStats queries = new LaneStats("query");
+    private final LaneStats transactions = new LaneStats("transaction");
+
+    // Only the outermost transaction on a thread takes the lock: {depth, lock acquired at, wait nanos}
+    private final ThreadLocal<long[]> openTransaction = ThreadLocal.withInitial(() -> new long[3]);
+
+    public LaneStats getQueries() { return queries; }
+
+    public LaneStats getTransactions() { return transactions; }
+
+    public void reset() {
+        queries.reset();
+        transactions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return queries + "\n" + transactions;
+    }
+
+    /**
+     * beginTransaction 返回后调用，requestedAt 为调用 beginTransaction 之前的 System.nanoTime()
+     */
+    void afterBegin(long requestedAt) {
+        long[] state = openTransaction.get();
+        if (state[0]++ == 0) {
+            long now = System.nanoTime();
+            state[1] = now;
+            state[2] = now - requestedAt;
+        }
+    }
+
+    void afterEnd() {
+        long[] state = openTransaction.get();
+        if (state[0] > 0 && --state[0] == 0) {
+            transactions.record(state[2], System.nanoTime() - state[1]);
+        }
+    }
+
+    /**
+     * 包装查询返回的游标，关闭时记录耗时
+     */
+    Cursor track(Cursor cursor, long requestedAt) {
+        return new TimedCursor(cursor, requestedAt, System.nanoTime());
+    }
+
+    private final class TimedCursor extends CursorWrapper {
+        private final long requestedAt;
+        private final long returnedAt;
+        private boolean recorded;
+
+        TimedCursor(Cursor cursor, long requestedAt, long returnedAt) {
+            super(cursor);
+            this.requestedAt = requestedAt;
+            this.returnedAt = returnedAt;
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            if (!recorded) {
+                recorded = true;
+                queries.record(returnedAt - requestedAt, System.nanoTime() - returnedAt);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.chatchat.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import com.chatchat.model.ChatGroup;
+import com.chatchat.model.GroupMember;
+import java.util.List;
+
+@Dao
+public interface GroupMemberDao {
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertMember(GroupMember member);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertMembers(List<GroupMember> members);
+
+    @Query("SELECT EXISTS(SELECT 1 FROM group_members WHERE groupId = :groupId AND userId = :userId)")
+    boolean isMember(String groupId, String userId);
+
+    @Query("SELECT * FROM group_members WHERE groupId = :groupId AND userId = :userId")
+    GroupMember getMember(String groupId, String userId);
+
+    // Counted on the primary key index, the member rows themselves are never read
+    @Query("SELECT COUNT(*) FROM group_members WHERE groupId = :groupId")
+    int getMemberCount(String groupId);
+
+    // Keyset pagination on userId; pass "" for the first page
+    @Query("SELECT * FROM group_members WHERE groupId = :groupId AND userId > :afterUserId " +
+            "ORDER BY userId ASC LIMIT :limit")
+    List<GroupMember> getMembersAfter(String groupId, String afterUserId, int limit);
+
+    // role is stored as Role.code, 2 = MEMBER
+    @Query("SELECT * FROM group_members WHERE groupId = :groupId AND role != 2 ORDER BY userId ASC")
+    List<GroupMember> getAdmins(String groupId);
+
+    @Query("SELECT groupId FROM group_members WHERE userId = :userId")
+    List<String> getGroupIdsForUser(String userId);
+
+    @Query("SELECT g.* FROM chat_groups g JOIN group_members m ON m.groupId = g.groupId " +
+            "WHERE m.userId = :userId ORDER BY g.lastMessageTime DESC")
+    List<ChatGroup> getGroupsForUser(String userId);
+
+    @Query("UPDATE group_members SET role = :role WHERE groupId = :groupId AND userId = :userId")
+    void updateRole(String groupId, String userId, GroupMember.Role role);
+
+    @Query("DELETE FROM group_members WHERE groupId = :groupId AND userId = :userId")
+    void removeMember(String groupId, String userId);
+
+    @Query("DELETE FROM group_members WHERE groupId = :groupId")
+    void removeAllMembers(String groupId);
+}
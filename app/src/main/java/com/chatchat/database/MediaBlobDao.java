@@ -0,0 +1,31 @@
+package com.chatchat.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import com.chatchat.model.MediaBlob;
+import java.util.List;
+
+@Dao
+public interface MediaBlobDao {
+    // A blob that is already stored keeps its row and reference count
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertIfAbsent(MediaBlob blob);
+
+    @Query("SELECT * FROM media_blobs WHERE hash = :hash")
+    MediaBlob getByHash(String hash);
+
+    // Unreferenced blobs get a grace period so an import is not collected before its message is written
+    @Query("SELECT * FROM media_blobs WHERE refCount <= 0 AND importedAt < :importedBefore")
+    List<MediaBlob> getUnreferenced(long importedBefore);
+
+    @Query("UPDATE media_blobs SET importedAt = :importedAt WHERE hash = :hash")
+    int touch(String hash, long importedAt);
+
+    @Query("DELETE FROM media_blobs WHERE hash = :hash AND refCount <= 0")
+    int deleteIfUnreferenced(String hash);
+
+    @Query("SELECT COALESCE(SUM(size), 0) FROM media_blobs")
+    long getTotalSize();
+}
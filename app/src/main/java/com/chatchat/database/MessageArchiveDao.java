@@ -0,0 +1,65 @@
+package com.chatchat.database;
+
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import com.chatchat.model.ArchiveSegment;
+import com.chatchat.model.Message;
+import java.util.List;
+
+@Dao
+public interface MessageArchiveDao {
+
+    // Message ids are time-ordered, so "older than" is a range on the primary key.
+    // Unsynced messages stay hot because CloudSyncWorker reads them from the messages table
+    @Query("SELECT DISTINCT conversationId FROM messages WHERE messageId < :cutoffMessageId " +
+            "AND isSentToCloud = 1 AND conversationId IS NOT NULL")
+    List<String> getConversationsWithColdMessages(long cutoffMessageId);
+
+    @Query("SELECT * FROM messages WHERE conversationId = :conversationId AND messageId < :cutoffMessageId " +
+            "AND isSentToCloud = 1 ORDER BY messageId ASC LIMIT :limit")
+    List<Message> getColdMessages(String conversationId, long cutoffMessageId, int limit);
+
+    @Insert(onConflict = OnConflictStrategy.ABORT)
+    void insertSegment(ArchiveSegment segment);
+
+    @Query("DELETE FROM messages WHERE messageId IN (:messageIds)")
+    void deleteMessages(List<Long> messageIds);
+
+    /**
+     * 写入归档段并从消息表删除对应消息
+     */
+    @Transaction
+    default void archive(ArchiveSegment segment, List<Long> messageIds) {
+        insertSegment(segment);
+        deleteMessages(messageIds);
+        ConversationChanges.changed(segment.getConversationId());
+    }
+
+    @Query("SELECT * FROM message_archive WHERE conversationId = :conversationId " +
+            "AND firstMessageId < :beforeMessageId ORDER BY firstMessageId DESC LIMIT 1")
+    ArchiveSegment getSegmentBefore(String conversationId, long beforeMessageId);
+
+    @Query("SELECT COUNT(*) FROM message_archive")
+    int getSegmentCount();
+
+    // Lives here rather than in MessageDao so a restore is a single transaction
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertRestoredMessages(List<Message> messages);
+
+    @Delete
+    void deleteSegment(ArchiveSegment segment);
+
+    /**
+     * 把归档段中的消息放回消息表并删除该段
+     */
+    @Transaction
+    default void restore(ArchiveSegment segment, List<Message> messages) {
+        insertRestoredMessages(messages);
+        deleteSegment(segment);
+        ConversationChanges.changed(segment.getConversationId());
+    }
+}
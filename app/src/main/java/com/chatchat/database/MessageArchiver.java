@@ -0,0 +1,106 @@
+package com.chatchat.database;
+
+import android.database.Cursor;
+import android.util.Log;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import com.chatchat.model.ArchiveSegment;
+import com.chatchat.model.Message;
+import com.chatchat.utils.MessageIdGenerator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 冷消息归档
+ * 早于指定时间且已同步的消息按会话压缩成归档段，移出消息表，会话查询和索引只覆盖近期消息。
+ * 用户向上翻到消息表的开头时，MessagePagingSource 会把前一个归档段恢复回消息表，
+ * 之后的归档任务会再次把它们移出。归档中的消息不参与全文搜索
+ */
+public class MessageArchiver {
+
+    private static final String TAG = "MessageArchiver";
+
+    static final int SEGMENT_SIZE = 500;
+    private static final int VACUUM_PAGES = 2048;
+
+    private final AppDatabase database;
+    private final MessageArchiveDao archiveDao;
+
+    public MessageArchiver(AppDatabase database) {
+        this.database = database;
+        this.archiveDao = database.messageArchiveDao();
+    }
+
+    /**
+     * 归档所有早于 now - maxAgeMillis 的消息，返回归档的消息数
+     */
+    public int archiveOlderThan(long maxAgeMillis) throws IOException {
+        long cutoffMessageId = MessageIdGenerator.compose(System.currentTimeMillis() - maxAgeMillis, 0, 0);
+        int archived = 0;
+        for (String conversationId : archiveDao.getConversationsWithColdMessages(cutoffMessageId)) {
+            List<Message> batch;
+            while (!(batch = archiveDao.getColdMessages(conversationId, cutoffMessageId, SEGMENT_SIZE)).isEmpty()) {
+                ArchiveSegment segment = new ArchiveSegment();
+                segment.setConversationId(conversationId);
+                segment.setFirstMessageId(batch.get(0).getMessageId());
+                segment.setLastMessageId(batch.get(batch.size() - 1).getMessageId());
+                segment.setMessageCount(batch.size());
+                segment.setPayload(ArchiveCodec.encode(conversationId, batch));
+                segment.setCreatedAt(System.currentTimeMillis());
+
+                List<Long> messageIds = new ArrayList<>(batch.size());
+                for (Message message : batch) {
+                    messageIds.add(message.getMessageId());
+                }
+                archiveDao.archive(segment, messageIds);
+                archived += batch.size();
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * 恢复会话中 messageId 之前最近的一个归档段，没有可恢复的段时返回 false
+     */
+    public boolean restoreBefore(String conversationId, long beforeMessageId) {
+        ArchiveSegment segment = archiveDao.getSegmentBefore(conversationId, beforeMessageId);
+        if (segment == null) {
+            return false;
+        }
+        try {
+            archiveDao.restore(segment, ArchiveCodec.decode(segment.getPayload()));
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Corrupt archive segment " + conversationId + "/" + segment.getFirstMessageId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 解码归档段中的消息，不修改数据库
+     */
+    public static List<Message> decodeSegment(ArchiveSegment segment) throws IOException {
+        return ArchiveCodec.decode(segment.getPayload());
+    }
+
+    /**
+     * 回收归档后留下的空闲页
+     * 旧数据库不是增量 auto_vacuum 模式，第一次调用时切换模式并执行一次完整 VACUUM
+     */
+    public void incrementalVacuum() {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        try (Cursor cursor = db.query("PRAGMA auto_vacuum")) {
+            if (cursor.moveToFirst() && cursor.getInt(0) != 2) {
+                db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+                db.execSQL("VACUUM");
+                return;
+            }
+        }
+        // incremental_vacuum frees pages as its result rows are stepped through
+        try (Cursor cursor = db.query("PRAGMA incremental_vacuum(" + VACUUM_PAGES + ")")) {
+            while (cursor.moveToNext()) {
+                // drain
+            }
+        }
+    }
+}
@@ -1,19 +1,247 @@
 package com.chatchat.database;
 
+import android.util.Log;
+import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import androidx.room.Upsert;
 import androidx.room.Delete;
+import com.chatchat.model.Conversation;
 import com.chatchat.model.Message;
+import com.chatchat.model.SyncCursor;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Dao
 public interface MessageDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertMessage(Message message);
 
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertMessages(List<Message> messages);
+
+    @Upsert
+    void upsertMessage(Message message);
+
+    @Upsert
+    void upsertMessages(List<Message> messages);
+
+    // Lives here rather than in ChatGroupDao so message writes can update their group in the same transaction
+    @Query("UPDATE chat_groups SET lastMessageId = :messageId, lastMessageTime = :time " +
+            "WHERE groupId = :groupId AND lastMessageTime <= :time")
+    void updateGroupLastMessageIfNewer(String groupId, long messageId, long time);
+
+    // The conversations summary table is maintained by the same transactions that write messages
+    @Query("INSERT OR IGNORE INTO conversations (conversationId, groupId, userId1, userId2, lastMessageTime) " +
+            "VALUES (:conversationId, :groupId, :userId1, :userId2, 0)")
+    void ensureConversation(String conversationId, String groupId, String userId1, String userId2);
+
+    @Query("UPDATE conversations SET lastMessageId = :messageId, lastMessagePreview = :preview, " +
+            "lastSenderId = :senderId, lastMessageTime = :time " +
+            "WHERE conversationId = :conversationId AND lastMessageTime <= :time")
+    void updateConversationLastMessageIfNewer(String conversationId, long messageId, String preview,
+                                              String senderId, long time);
+
+    @Query("UPDATE conversations SET lastMessagePreview = :preview WHERE lastMessageId = :messageId " +
+            "AND conversationId = (SELECT conversationId FROM messages WHERE messageId = :messageId)")
+    void updateConversationPreviewFor(long messageId, String preview);
+
+    default void updateConversationWith(Message message) {
+        ConversationChanges.changed(message.getConversationId());
+        String groupId = message.getGroupId();
+        ensureConversation(message.getConversationId(), groupId,
+                groupId == null ? message.getSenderId() : null, groupId == null ? message.getReceiverId() : null);
+        updateConversationLastMessageIfNewer(message.getConversationId(), message.getMessageId(),
+                Conversation.previewOf(message), message.getSenderId(), message.getTimestamp());
+        if (groupId != null) {
+            updateGroupLastMessageIfNewer(groupId, message.getMessageId(), message.getTimestamp());
+        }
+    }
+
+    // Media reference counts are kept in the same transaction as the message write
+    @Query("UPDATE media_blobs SET refCount = refCount + 1 WHERE hash = :hash")
+    void acquireMedia(String hash);
+
+    @Query("UPDATE media_blobs SET refCount = refCount - 1 WHERE hash = :hash")
+    void releaseMedia(String hash);
+
+    /**
+     * 按写入前后的媒体哈希调整引用计数：新写入的消息引用一次，重复写入同一条消息只在哈希变化时调整，
+     * 所以同一条消息无论写入多少次都只占一个引用。previous 为写入前的同一条消息，没有时为 null
+     */
+    default void updateMediaReferences(Message previous, Message message) {
+        String before = previous == null ? null : previous.getMediaHash();
+        String after = message.getMediaHash();
+        if (Objects.equals(before, after)) return;
+        if (before != null) releaseMedia(before);
+        if (after != null) acquireMedia(after);
+    }
+
+    /**
+     * 为要写入的消息确认ID。clientKey 标识同一条消息：本地已有同一条消息时沿用它的ID（写入时可能被改过）并返回它。
+     * 否则两台设备选到同一个节点号并在同一毫秒发送时，ID 可能已被另一条消息占用，
+     * 这时改用之后第一个空闲的ID（仍在同一毫秒内，顺序不变），两条消息都保留，返回 null
+     */
+    default Message claimMessageId(Message message) {
+        Message existing = getMessageByClientKey(message.getClientKey());
+        if (existing != null) {
+            message.setMessageId(existing.getMessageId());
+            return existing;
+        }
+        long messageId = message.getMessageId();
+        while (getMessageById(messageId) != null) {
+            messageId++;
+        }
+        if (messageId != message.getMessageId()) {
+            Log.w("MessageDao", "Message id " + message.getMessageId() + " is taken by another message, using "
+                    + messageId);
+            message.setMessageId(messageId);
+        }
+        return null;
+    }
+
+    /**
+     * 写入一条本地发送的消息并更新所属会话，一次事务只提交一次
+     */
+    @Transaction
+    default void insertMessageWithConversation(Message message) {
+        Message previous = claimMessageId(message);
+        insertMessage(message);
+        updateMediaReferences(previous, message);
+        updateConversationWith(message);
+    }
+
+    /**
+     * 批量写入本地消息并更新各自的会话，整批只提交一次；每个会话只用其中最新的一条更新摘要
+     */
+    @Transaction
+    default void insertMessagesWithConversations(List<Message> messages) {
+        Map<String, Message> newestByConversation = new HashMap<>();
+        for (Message message : messages) {
+            // One row at a time: two colliding messages in the same batch must not claim the same free id
+            Message previous = claimMessageId(message);
+            insertMessage(message);
+            updateMediaReferences(previous, message);
+            Message newest = newestByConversation.get(message.getConversationId());
+            if (newest == null || message.getMessageId() > newest.getMessageId()) {
+                newestByConversation.put(message.getConversationId(), message);
+            }
+        }
+        for (Message newest : newestByConversation.values()) {
+            updateConversationWith(newest);
+        }
+    }
+
+    /**
+     * 删除消息并释放它引用的本地媒体
+     */
+    @Transaction
+    default void deleteMessageAndReleaseMedia(long messageId) {
+        Message message = getMessageById(messageId);
+        if (message == null) return;
+        deleteMessageById(messageId);
+        ConversationChanges.changed(message.getConversationId());
+        if (message.getMediaHash() != null) {
+            releaseMedia(message.getMediaHash());
+        }
+    }
+
+    /**
+     * 撤回消息，如果它是会话的最后一条消息则同时更新列表预览
+     */
+    @Transaction
+    default void recallMessageWithConversation(long messageId) {
+        recallMessage(messageId);
+        Message message = getMessageById(messageId);
+        if (message != null) {
+            ConversationChanges.changed(message.getConversationId());
+            updateConversationPreviewFor(messageId, Conversation.previewOf(message));
+        }
+    }
+
+    /**
+     * 批量写入（或更新）消息并更新各自的会话，整批在一个事务中提交，适用于同步导入
+     * 未读数由已读位置计算，这里不需要区分新旧消息；本地已有的消息按 clientKey 识别，见 claimMessageId
+     */
+    @Transaction
+    default void upsertMessagesWithConversations(List<Message> messages) {
+        for (Message message : messages) {
+            // One row at a time: two colliding messages in the same batch must not claim the same free id
+            Message previous = claimMessageId(message);
+            upsertMessage(message);
+            updateMediaReferences(previous, message);
+        }
+
+        // Only the newest message of each conversation needs to touch the summary tables
+        Map<String, Message> newestByConversation = new HashMap<>();
+        for (Message message : messages) {
+            Message newest = newestByConversation.get(message.getConversationId());
+            if (newest == null || message.getMessageId() > newest.getMessageId()) {
+                newestByConversation.put(message.getConversationId(), message);
+            }
+        }
+        for (Message newest : newestByConversation.values()) {
+            updateConversationWith(newest);
+        }
+    }
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertMessageIfAbsent(Message message);
+
+    @Query("SELECT EXISTS(SELECT 1 FROM message_archive WHERE conversationId = :conversationId " +
+            "AND firstMessageId <= :messageId AND lastMessageId >= :messageId)")
+    boolean isArchived(String conversationId, long messageId);
+
+    /**
+     * 导入一批备份或拉取到的消息：本地已有（包括已归档）的消息保持不变，只写入缺少的消息，整批在一个事务中提交。
+     * 本地已有的消息按 clientKey 识别；与本地另一条消息ID相同的消息会换用新的ID写入，见 claimMessageId
+     */
+    @Transaction
+    default void importMessagesWithConversations(List<Message> messages) {
+        Map<String, Message> newestByConversation = new HashMap<>();
+        for (Message message : messages) {
+            if (isArchived(message.getConversationId(), message.getMessageId())) continue;
+            if (claimMessageId(message) != null || insertMessageIfAbsent(message) == -1) continue;
+            updateMediaReferences(null, message);
+            Message newest = newestByConversation.get(message.getConversationId());
+            if (newest == null || message.getMessageId() > newest.getMessageId()) {
+                newestByConversation.put(message.getConversationId(), message);
+            }
+        }
+        for (Message newest : newestByConversation.values()) {
+            updateConversationWith(newest);
+        }
+    }
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void saveSyncCursor(SyncCursor cursor);
+
+    /**
+     * 应用一页拉取到的消息：缺少的消息写入，本地已有的只同步撤回状态；游标在同一个事务中前移
+     */
+    @Transaction
+    default void applyPulledMessages(List<Message> messages, SyncCursor cursor) {
+        importMessagesWithConversations(messages);
+        for (Message message : messages) {
+            // A recall made on another device has to reach the copy already stored here; ids are the local ones now.
+            // The server already has it, so unlike a local recall the row stays synced
+            if (!message.isRecalled()) continue;
+            applyPulledRecall(message.getMessageId());
+            Message stored = getMessageById(message.getMessageId());
+            if (stored != null) {
+                ConversationChanges.changed(stored.getConversationId());
+                updateConversationPreviewFor(stored.getMessageId(), Conversation.previewOf(stored));
+            }
+        }
+        saveSyncCursor(cursor);
+    }
+
     @Update
     void updateMessage(Message message);
 
@@ -21,32 +249,58 @@ public interface MessageDao {
     void deleteMessage(Message message);
 
     @Query("SELECT * FROM messages WHERE messageId = :messageId")
-    Message getMessageById(String messageId);
+    Message getMessageById(long messageId);
+
+    @Query("SELECT * FROM messages WHERE clientKey = :clientKey")
+    Message getMessageByClientKey(long clientKey);
+
+    // Direct, AI and group chats all resolve to a conversationId and share the same indexed range scan
+    @Query("SELECT * FROM messages WHERE conversationId = :conversationId ORDER BY messageId ASC")
+    List<Message> getConversationMessages(String conversationId);
+
+    default List<Message> getDirectMessages(String userId1, String userId2) {
+        return getConversationMessages(Message.directConversationId(userId1, userId2));
+    }
+
+    default List<Message> getGroupMessages(String groupId) {
+        return getConversationMessages(Message.groupConversationId(groupId));
+    }
 
-    @Query("SELECT * FROM messages WHERE (senderId = :userId1 AND receiverId = :userId2) OR (senderId = :userId2 AND receiverId = :userId1) ORDER BY timestamp ASC")
-    List<Message> getDirectMessages(String userId1, String userId2);
+    // Keyset pagination: message ids are time-ordered, so the id alone is the cursor and pages never use OFFSET
+    @Query("SELECT * FROM messages WHERE conversationId = :conversationId AND messageId < :messageId " +
+            "ORDER BY messageId DESC LIMIT :limit")
+    List<Message> getConversationMessagesBefore(String conversationId, long messageId, int limit);
 
-    @Query("SELECT * FROM messages WHERE groupId = :groupId ORDER BY timestamp ASC")
-    List<Message> getGroupMessages(String groupId);
+    @Query("SELECT * FROM messages WHERE conversationId = :conversationId AND messageId > :messageId " +
+            "ORDER BY messageId ASC LIMIT :limit")
+    List<Message> getConversationMessagesAfter(String conversationId, long messageId, int limit);
 
-    @Query("SELECT * FROM messages WHERE receiverId = :userId AND isRead = 0")
-    List<Message> getUnreadMessages(String userId);
+    // Observable window of one conversation, bounds inclusive; re-emits whenever the messages table changes
+    @Query("SELECT * FROM messages WHERE conversationId = :conversationId " +
+            "AND messageId BETWEEN :startMessageId AND :endMessageId ORDER BY messageId ASC")
+    LiveData<List<Message>> observeConversationRange(String conversationId, long startMessageId, long endMessageId);
 
-    @Query("UPDATE messages SET isRead = 1 WHERE receiverId = :userId AND senderId = :senderId")
-    void markMessagesAsRead(String userId, String senderId);
+    // A recall changes the synced row, so it has to be uploaded again
+    @Query("UPDATE messages SET isRecalled = 1, isSentToCloud = 0 WHERE messageId = :messageId AND isRecalled = 0")
+    void recallMessage(long messageId);
 
-    @Query("UPDATE messages SET isRecalled = 1 WHERE messageId = :messageId")
-    void recallMessage(String messageId);
+    @Query("UPDATE messages SET isRecalled = 1 WHERE messageId = :messageId AND isRecalled = 0")
+    void applyPulledRecall(long messageId);
 
-    @Query("SELECT * FROM messages WHERE isSentToCloud = 0")
-    List<Message> getUnsyncedMessages();
+    // The isSentToCloud index carries the rowid, so this is a range scan in messageId order
+    @Query("SELECT * FROM messages WHERE isSentToCloud = 0 AND messageId > :afterMessageId " +
+            "ORDER BY messageId ASC LIMIT :limit")
+    List<Message> getUnsyncedMessagesAfter(long afterMessageId, int limit);
 
-    @Query("UPDATE messages SET isSentToCloud = 1 WHERE messageId = :messageId")
-    void markMessageAsSynced(String messageId);
+    // One statement, so a whole uploaded batch is marked in a single transaction.
+    // Only rows still in the uploaded recall state are marked; a recall committed while the batch was in flight stays unsynced
+    @Query("UPDATE messages SET isSentToCloud = 1 WHERE messageId IN (:messageIds) AND isRecalled = :uploadedRecalled")
+    int markMessagesAsSynced(List<Long> messageIds, boolean uploadedRecalled);
 
     @Query("DELETE FROM messages WHERE messageId = :messageId")
-    void deleteMessageById(String messageId);
+    void deleteMessageById(long messageId);
 
-    @Query("SELECT * FROM messages WHERE ((senderId = :userId AND receiverId = 'ai_assistant') OR (senderId = 'ai_assistant' AND receiverId = :userId)) ORDER BY timestamp ASC")
-    List<Message> getAiMessages(String userId);
+    default List<Message> getAiMessages(String userId) {
+        return getDirectMessages(userId, "ai_assistant");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.chatchat.database;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import com.chatchat.model.Message;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 消息分页数据源
+ * 以 messageId（按时间递增）作为键集游标分页读取单个会话的消息，每一页都按时间正序返回。
+ * 单聊、AI聊天和群聊都通过 conversationId 走同一条索引查询。
+ * 指定 readerId 时，观察到的消息会按 readerId 的已读位置计算 isRead；
+ * 指定 archiver 时，翻到消息表开头后可以用 restoreBefore 恢复更早的归档消息。
+ * 加载方法只读，可以在并发的读通道上调用；restoreBefore 是写事务，需要在写通道上调用
+ */
+public class MessagePagingSource {
+
+    private final MessageDao messageDao;
+    private final ReadStateDao readStateDao;
+    private final MessageArchiver archiver;
+    private final String conversationId;
+    private final String readerId;
+
+    public MessagePagingSource(MessageDao messageDao, String conversationId) {
+        this(messageDao, null, null, conversationId, null);
+    }
+
+    public MessagePagingSource(MessageDao messageDao, ReadStateDao readStateDao, MessageArchiver archiver,
+                               String conversationId, String readerId) {
+        this.messageDao = messageDao;
+        this.readStateDao = readStateDao;
+        this.archiver = archiver;
+        this.conversationId = conversationId;
+        this.readerId = readerId;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    /**
+     * 加载最新的一页消息
+     */
+    public List<Message> loadLatest(int pageSize) {
+        return loadBefore(Long.MAX_VALUE, pageSize);
+    }
+
+    /**
+     * 加载早于anchor的一页消息
+     */
+    public List<Message> loadBefore(Message anchor, int pageSize) {
+        return loadBefore(anchor.getMessageId(), pageSize);
+    }
+
+    private List<Message> loadBefore(long beforeMessageId, int pageSize) {
+        List<Message> page = messageDao.getConversationMessagesBefore(conversationId, beforeMessageId, pageSize);
+        Collections.reverse(page);
+        return page;
+    }
+
+    /**
+     * 是否可能有归档消息需要恢复
+     */
+    public boolean canRestore() {
+        return archiver != null;
+    }
+
+    /**
+     * 消息表中早于 beforeMessageId（Long.MAX_VALUE 表示最新一页）的消息不满一页时，
+     * 逐段恢复更早的归档直到够一页或没有更多归档；返回是否恢复了消息
+     */
+    public boolean restoreBefore(long beforeMessageId, int pageSize) {
+        if (archiver == null) return false;
+        boolean restored = false;
+        List<Message> page = messageDao.getConversationMessagesBefore(conversationId, beforeMessageId, pageSize);
+        while (page.size() < pageSize) {
+            long oldest = page.isEmpty() ? beforeMessageId : page.get(page.size() - 1).getMessageId();
+            if (!archiver.restoreBefore(conversationId, oldest)) break;
+            restored = true;
+            page = messageDao.getConversationMessagesBefore(conversationId, beforeMessageId, pageSize);
+        }
+        return restored;
+    }
+
+    /**
+     * 加载晚于anchor的一页消息
+     */
+    public List<Message> loadAfter(Message anchor, int pageSize) {
+        return messageDao.getConversationMessagesAfter(conversationId, anchor.getMessageId(), pageSize);
+    }
+
+    /**
+     * 观察 [start, end] 区间内的消息，end 为 Long.MAX_VALUE 时表示一直到最新消息
+     * 任何对消息表的写入（包括同步任务和其他页面）都会触发重新查询
+     */
+    public LiveData<List<Message>> observeRange(long startMessageId, long endMessageId) {
+        LiveData<List<Message>> rows = messageDao.observeConversationRange(conversationId, startMessageId, endMessageId);
+        if (readerId == null) {
+            return rows;
+        }
+        return new ReadMarker(rows, readStateDao.observeLastReadMessageId(readerId, conversationId));
+    }
+
+    /**
+     * 把已读位置合并到消息上。只有已读位置变化时，状态改变的消息会被复制一份，
+     * 这样列表差异计算能识别出这些条目，而其他条目保持原对象不变
+     */
+    private static final class ReadMarker extends MediatorLiveData<List<Message>> {
+        private List<Message> rows;
+        private long lastReadMessageId;
+
+        ReadMarker(LiveData<List<Message>> rowsSource, LiveData<Long> lastReadSource) {
+            addSource(rowsSource, newRows -> {
+                // Fresh objects from Room, safe to mark in place
+                for (Message message : newRows) {
+                    message.setRead(message.getMessageId() <= lastReadMessageId);
+                }
+                rows = newRows;
+                setValue(newRows);
+            });
+            addSource(lastReadSource, lastRead -> {
+                lastReadMessageId = lastRead == null ? 0 : lastRead;
+                if (rows == null) return;
+                List<Message> marked = new ArrayList<>(rows.size());
+                for (Message message : rows) {
+                    boolean read = message.getMessageId() <= lastReadMessageId;
+                    if (message.isRead() != read) {
+                        message = message.copy();
+                        message.setRead(read);
+                    }
+                    marked.add(message);
+                }
+                rows = marked;
+                setValue(marked);
+            });
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.chatchat.database;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import com.chatchat.model.MessageSearchResult;
+import java.util.List;
+
+@Dao
+public interface MessageSearchDao {
+
+    // offsets() yields four space-separated integers per matched token, so this is the number of hits
+    String MATCH_COUNT = "(length(offsets(messages_fts)) - length(replace(offsets(messages_fts), ' ', '')) + 1) / 4";
+
+    String RESULT_COLUMNS = "m.messageId, m.conversationId, m.senderId, m.receiverId, m.groupId, m.timestamp, " +
+            "snippet(messages_fts, '\u0002', '\u0003', '…', -1, 16) AS snippet, " +
+            MATCH_COUNT + " AS matchCount";
+
+    @Query("SELECT " + RESULT_COLUMNS + " FROM messages_fts JOIN messages m ON m.rowid = messages_fts.docid " +
+            "WHERE messages_fts MATCH :query AND m.isRecalled = 0 " +
+            "ORDER BY matchCount DESC, m.timestamp DESC LIMIT :limit OFFSET :offset")
+    List<MessageSearchResult> search(String query, int limit, int offset);
+
+    @Query("SELECT " + RESULT_COLUMNS + " FROM messages_fts JOIN messages m ON m.rowid = messages_fts.docid " +
+            "WHERE messages_fts MATCH :query AND m.conversationId = :conversationId AND m.isRecalled = 0 " +
+            "ORDER BY matchCount DESC, m.timestamp DESC LIMIT :limit OFFSET :offset")
+    List<MessageSearchResult> searchInConversation(String query, String conversationId, int limit, int offset);
+}
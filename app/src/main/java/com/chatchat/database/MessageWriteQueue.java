@@ -0,0 +1,146 @@
+package com.chatchat.database;
+
+import android.content.Context;
+import android.util.Log;
+import com.chatchat.model.Message;
+import com.chatchat.utils.TaskDispatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息写入队列（组提交）
+ * 短时间内到达的消息合并到同一个事务中写入：第一条消息入队后最多等待 LINGER_MILLIS，
+ * 或攒满 MAX_BATCH_SIZE 条立即提交。每个事务最多 MAX_BATCH_SIZE 条，写线程忙时积压的消息分多个事务依次提交。
+ * 事务在串行的数据库写通道上执行，WAL 模式下不阻塞读。
+ * 每条消息在所在批次提交后回调一次
+ */
+public class MessageWriteQueue {
+
+    private static final String TAG = "MessageWriteQueue";
+
+    public static final int MAX_BATCH_SIZE = 200;
+    public static final long LINGER_MILLIS = 5;
+
+    /**
+     * 写入完成回调，在数据库写线程上执行；error 为 null 表示写入成功
+     */
+    public interface Callback {
+        void onComplete(Message message, Throwable error);
+    }
+
+    private static volatile MessageWriteQueue instance;
+
+    private final MessageDao messageDao;
+    private final Executor writeExecutor;
+    private final ScheduledExecutorService timer;
+    private final long lingerMillis;
+
+    private final Object lock = new Object();
+    // Guarded by lock
+    private List<Message> pending = new ArrayList<>();
+    private List<Callback> callbacks = new ArrayList<>();
+    // A timer or a flush task will pick up the pending messages
+    private boolean flushScheduled;
+    // A flush task is waiting on the write executor; at most one at a time
+    private boolean flushQueued;
+
+    public MessageWriteQueue(MessageDao messageDao, Executor writeExecutor, long lingerMillis) {
+        this.messageDao = messageDao;
+        this.writeExecutor = writeExecutor;
+        this.lingerMillis = lingerMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-write-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static MessageWriteQueue getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MessageWriteQueue.class) {
+                if (instance == null) {
+                    instance = new MessageWriteQueue(AppDatabase.getDatabase(context).messageDao(),
+                            TaskDispatcher.getInstance().executor(TaskDispatcher.Lane.DB_WRITE), LINGER_MILLIS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void enqueue(Message message) {
+        enqueue(message, null);
+    }
+
+    /**
+     * 加入一条待写入的消息，callback 可以为 null
+     */
+    public void enqueue(Message message, Callback callback) {
+        synchronized (lock) {
+            pending.add(message);
+            callbacks.add(callback);
+            if (pending.size() >= MAX_BATCH_SIZE) {
+                // Full batch: commit now rather than waiting for the timer
+                flushScheduled = true;
+                queueFlush();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                timer.schedule(() -> {
+                    synchronized (lock) {
+                        queueFlush();
+                    }
+                }, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Caller holds lock
+    private void queueFlush() {
+        if (flushQueued) return;
+        flushQueued = true;
+        writeExecutor.execute(this::flush);
+    }
+
+    private void flush() {
+        List<Message> batch;
+        List<Callback> batchCallbacks;
+        synchronized (lock) {
+            flushQueued = false;
+            if (pending.isEmpty()) return;
+            if (pending.size() <= MAX_BATCH_SIZE) {
+                batch = pending;
+                batchCallbacks = callbacks;
+                pending = new ArrayList<>();
+                callbacks = new ArrayList<>();
+                flushScheduled = false;
+            } else {
+                batch = new ArrayList<>(pending.subList(0, MAX_BATCH_SIZE));
+                batchCallbacks = new ArrayList<>(callbacks.subList(0, MAX_BATCH_SIZE));
+                pending.subList(0, MAX_BATCH_SIZE).clear();
+                callbacks.subList(0, MAX_BATCH_SIZE).clear();
+                // The rest goes in the next transaction, behind whatever else is waiting on the write lane
+                queueFlush();
+            }
+        }
+
+        Throwable error = null;
+        try {
+            messageDao.insertMessagesWithConversations(batch);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to write " + batch.size() + " messages", e);
+            error = e;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Callback callback = batchCallbacks.get(i);
+            if (callback == null) continue;
+            try {
+                callback.onComplete(batch.get(i), error);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Write callback failed", e);
+            }
+        }
+    }
+}
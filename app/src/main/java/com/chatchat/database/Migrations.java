@@ -0,0 +1,470 @@
+package com.chatchat.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import com.chatchat.model.GroupMember;
+import com.chatchat.utils.MessageIdGenerator;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * 数据库版本迁移
+ * 每次修改实体结构都需要在这里添加对应的迁移，并同步提升 AppDatabase 的版本号
+ */
+public final class Migrations {
+
+    // memberIds/adminIds were stored as JSON until 5 -> 6 moved them into group_members
+    private static final Type LEGACY_STRING_LIST_TYPE = new TypeToken<List<String>>() {}.getType();
+
+    private Migrations() {}
+
+    /**
+     * 1 -> 2: 为消息表的热点查询添加索引
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_senderId_receiverId_timestamp_messageId` " +
+                    "ON `messages` (`senderId`, `receiverId`, `timestamp`, `messageId`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_groupId_timestamp_messageId` " +
+                    "ON `messages` (`groupId`, `timestamp`, `messageId`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_receiverId_isRead` " +
+                    "ON `messages` (`receiverId`, `isRead`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_isSentToCloud` " +
+                    "ON `messages` (`isSentToCloud`)");
+        }
+    };
+
+    /**
+     * 2 -> 3: 新增 conversationId 列并回填，单聊/群聊查询统一走 (conversationId, timestamp, messageId) 索引
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `messages` ADD COLUMN `conversationId` TEXT");
+            database.execSQL("UPDATE `messages` SET `conversationId` = 'g:' || `groupId` " +
+                    "WHERE `groupId` IS NOT NULL");
+            // Must match Message.directConversationId(): the smaller id (BINARY order) comes first
+            database.execSQL("UPDATE `messages` SET `conversationId` = " +
+                    "'d:' || min(`senderId`, `receiverId`) || ':' || max(`senderId`, `receiverId`) " +
+                    "WHERE `groupId` IS NULL AND `senderId` IS NOT NULL AND `receiverId` IS NOT NULL");
+
+            database.execSQL("DROP INDEX IF EXISTS `index_messages_senderId_receiverId_timestamp_messageId`");
+            database.execSQL("DROP INDEX IF EXISTS `index_messages_groupId_timestamp_messageId`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_conversationId_timestamp_messageId` " +
+                    "ON `messages` (`conversationId`, `timestamp`, `messageId`)");
+        }
+    };
+
+    /**
+     * 3 -> 4: 新增消息全文索引 messages_fts 及其同步触发器，并为已有消息建立索引
+     * 建表和触发器语句必须与 Room 为 MessageFts 生成的语句一致
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `messages_fts` " +
+                    "USING FTS4(`content` TEXT, tokenize=icu, content=`messages`)");
+            createMessageFtsTriggers(database);
+            database.execSQL("INSERT INTO `messages_fts`(`messages_fts`) VALUES ('rebuild')");
+        }
+    };
+
+    /**
+     * 4 -> 5: 新增会话摘要表 conversations，并按每个会话的最后一条消息回填
+     * 迁移时不知道当前登录用户，未读数从 0 开始
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `conversations` (`conversationId` TEXT NOT NULL, " +
+                    "`groupId` TEXT, `userId1` TEXT, `userId2` TEXT, `lastMessageId` TEXT, " +
+                    "`lastMessagePreview` TEXT, `lastSenderId` TEXT, `lastMessageTime` INTEGER NOT NULL, " +
+                    "`unreadCount` INTEGER NOT NULL, PRIMARY KEY(`conversationId`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_conversations_lastMessageTime_conversationId` " +
+                    "ON `conversations` (`lastMessageTime`, `conversationId`)");
+
+            // Bare columns next to max() come from the row holding the maximum, i.e. the newest message.
+            // The preview mapping must match Conversation.previewOf()
+            database.execSQL("INSERT OR IGNORE INTO `conversations` (`conversationId`, `groupId`, `userId1`, " +
+                    "`userId2`, `lastMessageId`, `lastMessagePreview`, `lastSenderId`, `lastMessageTime`, `unreadCount`) " +
+                    "SELECT `conversationId`, `groupId`, " +
+                    "CASE WHEN `groupId` IS NULL THEN `senderId` END, " +
+                    "CASE WHEN `groupId` IS NULL THEN `receiverId` END, " +
+                    "`messageId`, " +
+                    "CASE WHEN `isRecalled` THEN '消息已撤回' " +
+                    "WHEN `type` = 'IMAGE' THEN '[图片]' " +
+                    "WHEN `type` = 'VOICE' THEN '[语音]' " +
+                    "WHEN `type` = 'CHART' THEN '[图表]' " +
+                    "WHEN `type` = 'CONTACT_CARD' THEN '[名片]' " +
+                    "ELSE IFNULL(substr(`content`, 1, 100), '') END, " +
+                    "`senderId`, max(`timestamp`), 0 " +
+                    "FROM `messages` WHERE `conversationId` IS NOT NULL GROUP BY `conversationId`");
+            // Groups without any message yet
+            database.execSQL("INSERT OR IGNORE INTO `conversations` (`conversationId`, `groupId`, " +
+                    "`lastMessageTime`, `unreadCount`) " +
+                    "SELECT 'g:' || `groupId`, `groupId`, max(`createdAt`, `lastMessageTime`), 0 FROM `chat_groups`");
+        }
+    };
+
+    /**
+     * 5 -> 6: 群成员从 chat_groups 的 memberIds/adminIds JSON 列拆分到 group_members 表
+     * JSON 在 Java 中解析（json1 扩展并非所有设备都有），随后重建 chat_groups 去掉这两列
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `group_members` (`groupId` TEXT NOT NULL, " +
+                    "`userId` TEXT NOT NULL, `role` TEXT NOT NULL, `joinedAt` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`groupId`, `userId`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_group_members_userId_groupId` " +
+                    "ON `group_members` (`userId`, `groupId`)");
+
+            try (Cursor cursor = database.query("SELECT `groupId`, `createdBy`, `createdAt`, `memberIds`, `adminIds` " +
+                    "FROM `chat_groups`")) {
+                while (cursor.moveToNext()) {
+                    String groupId = cursor.getString(0);
+                    String createdBy = cursor.getString(1);
+                    long createdAt = cursor.getLong(2);
+                    List<String> memberIds = cursor.isNull(3) ? null : parseLegacyStringList(cursor.getString(3));
+                    List<String> adminIds = cursor.isNull(4) ? null : parseLegacyStringList(cursor.getString(4));
+
+                    // Highest role first: later inserts of the same user are ignored
+                    if (createdBy != null) {
+                        insertMember(database, groupId, createdBy, GroupMember.Role.OWNER, createdAt);
+                    }
+                    if (adminIds != null) {
+                        for (String userId : adminIds) {
+                            insertMember(database, groupId, userId, GroupMember.Role.ADMIN, createdAt);
+                        }
+                    }
+                    if (memberIds != null) {
+                        for (String userId : memberIds) {
+                            insertMember(database, groupId, userId, GroupMember.Role.MEMBER, createdAt);
+                        }
+                    }
+                }
+            }
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `chat_groups_new` (`groupId` TEXT NOT NULL, " +
+                    "`groupName` TEXT, `groupAvatarUrl` TEXT, `createdBy` TEXT, `createdAt` INTEGER NOT NULL, " +
+                    "`description` TEXT, `lastMessageId` TEXT, `lastMessageTime` INTEGER NOT NULL, " +
+                    "`unreadCount` INTEGER NOT NULL, PRIMARY KEY(`groupId`))");
+            database.execSQL("INSERT INTO `chat_groups_new` (`groupId`, `groupName`, `groupAvatarUrl`, `createdBy`, " +
+                    "`createdAt`, `description`, `lastMessageId`, `lastMessageTime`, `unreadCount`) " +
+                    "SELECT `groupId`, `groupName`, `groupAvatarUrl`, `createdBy`, `createdAt`, `description`, " +
+                    "`lastMessageId`, `lastMessageTime`, `unreadCount` FROM `chat_groups`");
+            database.execSQL("DROP TABLE `chat_groups`");
+            database.execSQL("ALTER TABLE `chat_groups_new` RENAME TO `chat_groups`");
+        }
+
+        private void insertMember(SupportSQLiteDatabase database, String groupId, String userId,
+                                  GroupMember.Role role, long joinedAt) {
+            if (userId == null) return;
+            ContentValues values = new ContentValues();
+            values.put("groupId", groupId);
+            values.put("userId", userId);
+            // Version 6 stored roles by name, MIGRATION_6_7 converts them to codes
+            values.put("role", role.name());
+            values.put("joinedAt", joinedAt);
+            database.insert("group_members", SQLiteDatabase.CONFLICT_IGNORE, values);
+        }
+    };
+
+    /**
+     * 6 -> 7: messages.type 与 group_members.role 由枚举名改为整数 code，两张表都需要重建
+     * 重建消息表时保留 rowid，messages_fts 的 docid 仍然有效，只需要重新创建同步触发器
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `messages_new` (`messageId` TEXT NOT NULL, " +
+                    "`senderId` TEXT, `receiverId` TEXT, `groupId` TEXT, `conversationId` TEXT, `content` TEXT, " +
+                    "`type` INTEGER, `timestamp` INTEGER NOT NULL, `isRead` INTEGER NOT NULL, " +
+                    "`isRecalled` INTEGER NOT NULL, `mediaUrl` TEXT, `isSentToCloud` INTEGER NOT NULL, " +
+                    "`isAiMessage` INTEGER NOT NULL, PRIMARY KEY(`messageId`))");
+            // Codes must match Message.MessageType
+            database.execSQL("INSERT INTO `messages_new` (`rowid`, `messageId`, `senderId`, `receiverId`, `groupId`, " +
+                    "`conversationId`, `content`, `type`, `timestamp`, `isRead`, `isRecalled`, `mediaUrl`, " +
+                    "`isSentToCloud`, `isAiMessage`) " +
+                    "SELECT `rowid`, `messageId`, `senderId`, `receiverId`, `groupId`, `conversationId`, `content`, " +
+                    "CASE `type` WHEN 'TEXT' THEN 0 WHEN 'IMAGE' THEN 1 WHEN 'VOICE' THEN 2 WHEN 'EMOJI' THEN 3 " +
+                    "WHEN 'MARKDOWN' THEN 4 WHEN 'CHART' THEN 5 WHEN 'CONTACT_CARD' THEN 6 END, " +
+                    "`timestamp`, `isRead`, `isRecalled`, `mediaUrl`, `isSentToCloud`, `isAiMessage` FROM `messages`");
+            database.execSQL("DROP TABLE `messages`");
+            database.execSQL("ALTER TABLE `messages_new` RENAME TO `messages`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_conversationId_timestamp_messageId` " +
+                    "ON `messages` (`conversationId`, `timestamp`, `messageId`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_receiverId_isRead` " +
+                    "ON `messages` (`receiverId`, `isRead`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_isSentToCloud` " +
+                    "ON `messages` (`isSentToCloud`)");
+            createMessageFtsTriggers(database);
+
+            // Codes must match GroupMember.Role
+            database.execSQL("CREATE TABLE IF NOT EXISTS `group_members_new` (`groupId` TEXT NOT NULL, " +
+                    "`userId` TEXT NOT NULL, `role` INTEGER NOT NULL, `joinedAt` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`groupId`, `userId`))");
+            database.execSQL("INSERT INTO `group_members_new` (`groupId`, `userId`, `role`, `joinedAt`) " +
+                    "SELECT `groupId`, `userId`, CASE `role` WHEN 'OWNER' THEN 0 WHEN 'ADMIN' THEN 1 ELSE 2 END, " +
+                    "`joinedAt` FROM `group_members`");
+            database.execSQL("DROP TABLE `group_members`");
+            database.execSQL("ALTER TABLE `group_members_new` RENAME TO `group_members`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_group_members_userId_groupId` " +
+                    "ON `group_members` (`userId`, `groupId`)");
+        }
+    };
+
+    /**
+     * 7 -> 8: messageId 由随机 UUID 字符串改为按时间递增的 64 位整数（同时成为 rowid），新增标识消息的 clientKey
+     * 旧消息按 (timestamp, messageId) 顺序用保留节点号重新编号，引用消息的列一并换算，全文索引按新 rowid 重建
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TEMP TABLE `message_id_map` (`oldId` TEXT NOT NULL PRIMARY KEY, " +
+                    "`newId` INTEGER NOT NULL)");
+            SupportSQLiteStatement insertMapping = database.compileStatement(
+                    "INSERT INTO `message_id_map` (`oldId`, `newId`) VALUES (?, ?)");
+            try (Cursor cursor = database.query("SELECT `messageId`, `timestamp` FROM `messages` " +
+                    "ORDER BY `timestamp` ASC, `messageId` ASC")) {
+                long lastTimestamp = Long.MIN_VALUE;
+                long sequence = 0;
+                while (cursor.moveToNext()) {
+                    long timestamp = Math.max(cursor.getLong(1), MessageIdGenerator.EPOCH);
+                    if (timestamp <= lastTimestamp) {
+                        timestamp = lastTimestamp;
+                        sequence++;
+                        if (sequence > MessageIdGenerator.maxSequence()) {
+                            timestamp++;
+                            sequence = 0;
+                        }
+                    } else {
+                        sequence = 0;
+                    }
+                    lastTimestamp = timestamp;
+
+                    insertMapping.bindString(1, cursor.getString(0));
+                    insertMapping.bindLong(2, MessageIdGenerator.compose(timestamp,
+                            MessageIdGenerator.MIGRATION_NODE, sequence));
+                    insertMapping.executeInsert();
+                    insertMapping.clearBindings();
+                }
+            }
+
+            // Existing messages get random 64-bit client keys; SQLite's random() has the full range
+            database.execSQL("CREATE TABLE IF NOT EXISTS `messages_new` (`messageId` INTEGER NOT NULL, " +
+                    "`clientKey` INTEGER NOT NULL, " +
+                    "`senderId` TEXT, `receiverId` TEXT, `groupId` TEXT, `conversationId` TEXT, `content` TEXT, " +
+                    "`type` INTEGER, `timestamp` INTEGER NOT NULL, `isRead` INTEGER NOT NULL, " +
+                    "`isRecalled` INTEGER NOT NULL, `mediaUrl` TEXT, `isSentToCloud` INTEGER NOT NULL, " +
+                    "`isAiMessage` INTEGER NOT NULL, PRIMARY KEY(`messageId`))");
+            database.execSQL("INSERT INTO `messages_new` (`messageId`, `clientKey`, `senderId`, `receiverId`, " +
+                    "`groupId`, `conversationId`, `content`, `type`, `timestamp`, `isRead`, `isRecalled`, " +
+                    "`mediaUrl`, `isSentToCloud`, `isAiMessage`) " +
+                    "SELECT map.`newId`, random(), m.`senderId`, m.`receiverId`, m.`groupId`, m.`conversationId`, " +
+                    "m.`content`, m.`type`, m.`timestamp`, m.`isRead`, m.`isRecalled`, m.`mediaUrl`, " +
+                    "m.`isSentToCloud`, m.`isAiMessage` " +
+                    "FROM `messages` m JOIN `message_id_map` map ON map.`oldId` = m.`messageId`");
+            database.execSQL("DROP TABLE `messages`");
+            database.execSQL("ALTER TABLE `messages_new` RENAME TO `messages`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_conversationId_messageId` " +
+                    "ON `messages` (`conversationId`, `messageId`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_receiverId_isRead` " +
+                    "ON `messages` (`receiverId`, `isRead`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_isSentToCloud` " +
+                    "ON `messages` (`isSentToCloud`)");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_messages_clientKey` " +
+                    "ON `messages` (`clientKey`)");
+            createMessageFtsTriggers(database);
+            database.execSQL("INSERT INTO `messages_fts`(`messages_fts`) VALUES ('rebuild')");
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `conversations_new` (`conversationId` TEXT NOT NULL, " +
+                    "`groupId` TEXT, `userId1` TEXT, `userId2` TEXT, `lastMessageId` INTEGER, " +
+                    "`lastMessagePreview` TEXT, `lastSenderId` TEXT, `lastMessageTime` INTEGER NOT NULL, " +
+                    "`unreadCount` INTEGER NOT NULL, PRIMARY KEY(`conversationId`))");
+            database.execSQL("INSERT INTO `conversations_new` (`conversationId`, `groupId`, `userId1`, `userId2`, " +
+                    "`lastMessageId`, `lastMessagePreview`, `lastSenderId`, `lastMessageTime`, `unreadCount`) " +
+                    "SELECT c.`conversationId`, c.`groupId`, c.`userId1`, c.`userId2`, map.`newId`, " +
+                    "c.`lastMessagePreview`, c.`lastSenderId`, c.`lastMessageTime`, c.`unreadCount` " +
+                    "FROM `conversations` c LEFT JOIN `message_id_map` map ON map.`oldId` = c.`lastMessageId`");
+            database.execSQL("DROP TABLE `conversations`");
+            database.execSQL("ALTER TABLE `conversations_new` RENAME TO `conversations`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_conversations_lastMessageTime_conversationId` " +
+                    "ON `conversations` (`lastMessageTime`, `conversationId`)");
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `chat_groups_new` (`groupId` TEXT NOT NULL, " +
+                    "`groupName` TEXT, `groupAvatarUrl` TEXT, `createdBy` TEXT, `createdAt` INTEGER NOT NULL, " +
+                    "`description` TEXT, `lastMessageId` INTEGER, `lastMessageTime` INTEGER NOT NULL, " +
+                    "`unreadCount` INTEGER NOT NULL, PRIMARY KEY(`groupId`))");
+            database.execSQL("INSERT INTO `chat_groups_new` (`groupId`, `groupName`, `groupAvatarUrl`, `createdBy`, " +
+                    "`createdAt`, `description`, `lastMessageId`, `lastMessageTime`, `unreadCount`) " +
+                    "SELECT g.`groupId`, g.`groupName`, g.`groupAvatarUrl`, g.`createdBy`, g.`createdAt`, " +
+                    "g.`description`, map.`newId`, g.`lastMessageTime`, g.`unreadCount` " +
+                    "FROM `chat_groups` g LEFT JOIN `message_id_map` map ON map.`oldId` = g.`lastMessageId`");
+            database.execSQL("DROP TABLE `chat_groups`");
+            database.execSQL("ALTER TABLE `chat_groups_new` RENAME TO `chat_groups`");
+
+            database.execSQL("DROP TABLE `message_id_map`");
+        }
+    };
+
+    /**
+     * 8 -> 9: 已读状态改为每个 (用户, 会话) 一行的已读位置 read_state
+     * 由 messages.isRead 回填接收方的已读位置，然后重建 messages（去掉 isRead）和 conversations（去掉 unreadCount）。
+     * messageId 就是 rowid，重建后全文索引仍然有效
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `read_state` (`userId` TEXT NOT NULL, " +
+                    "`conversationId` TEXT NOT NULL, `lastReadMessageId` INTEGER NOT NULL, " +
+                    "`updatedAt` INTEGER NOT NULL, PRIMARY KEY(`userId`, `conversationId`))");
+            database.execSQL("INSERT OR IGNORE INTO `read_state` (`userId`, `conversationId`, `lastReadMessageId`, " +
+                    "`updatedAt`) SELECT `receiverId`, `conversationId`, max(`messageId`), max(`timestamp`) " +
+                    "FROM `messages` WHERE `isRead` = 1 AND `receiverId` IS NOT NULL AND `conversationId` IS NOT NULL " +
+                    "GROUP BY `receiverId`, `conversationId`");
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `messages_new` (`messageId` INTEGER NOT NULL, " +
+                    "`clientKey` INTEGER NOT NULL, " +
+                    "`senderId` TEXT, `receiverId` TEXT, `groupId` TEXT, `conversationId` TEXT, `content` TEXT, " +
+                    "`type` INTEGER, `timestamp` INTEGER NOT NULL, `isRecalled` INTEGER NOT NULL, " +
+                    "`mediaUrl` TEXT, `isSentToCloud` INTEGER NOT NULL, `isAiMessage` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`messageId`))");
+            database.execSQL("INSERT INTO `messages_new` (`messageId`, `clientKey`, `senderId`, `receiverId`, " +
+                    "`groupId`, `conversationId`, `content`, `type`, `timestamp`, `isRecalled`, `mediaUrl`, " +
+                    "`isSentToCloud`, `isAiMessage`) SELECT `messageId`, `clientKey`, `senderId`, `receiverId`, " +
+                    "`groupId`, `conversationId`, `content`, `type`, `timestamp`, `isRecalled`, `mediaUrl`, " +
+                    "`isSentToCloud`, `isAiMessage` FROM `messages`");
+            database.execSQL("DROP TABLE `messages`");
+            database.execSQL("ALTER TABLE `messages_new` RENAME TO `messages`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_conversationId_messageId` " +
+                    "ON `messages` (`conversationId`, `messageId`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_isSentToCloud` " +
+                    "ON `messages` (`isSentToCloud`)");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_messages_clientKey` " +
+                    "ON `messages` (`clientKey`)");
+            createMessageFtsTriggers(database);
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `conversations_new` (`conversationId` TEXT NOT NULL, " +
+                    "`groupId` TEXT, `userId1` TEXT, `userId2` TEXT, `lastMessageId` INTEGER, " +
+                    "`lastMessagePreview` TEXT, `lastSenderId` TEXT, `lastMessageTime` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`conversationId`))");
+            database.execSQL("INSERT INTO `conversations_new` (`conversationId`, `groupId`, `userId1`, `userId2`, " +
+                    "`lastMessageId`, `lastMessagePreview`, `lastSenderId`, `lastMessageTime`) " +
+                    "SELECT `conversationId`, `groupId`, `userId1`, `userId2`, `lastMessageId`, " +
+                    "`lastMessagePreview`, `lastSenderId`, `lastMessageTime` FROM `conversations`");
+            database.execSQL("DROP TABLE `conversations`");
+            database.execSQL("ALTER TABLE `conversations_new` RENAME TO `conversations`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_conversations_lastMessageTime_conversationId` " +
+                    "ON `conversations` (`lastMessageTime`, `conversationId`)");
+        }
+    };
+
+    /**
+     * 9 -> 10: 新增冷消息归档表 message_archive
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `message_archive` (`conversationId` TEXT NOT NULL, " +
+                    "`firstMessageId` INTEGER NOT NULL, `lastMessageId` INTEGER NOT NULL, " +
+                    "`messageCount` INTEGER NOT NULL, `payload` BLOB, `createdAt` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`conversationId`, `firstMessageId`))");
+        }
+    };
+
+    /**
+     * 10 -> 11: 新增本地媒体表 media_blobs，消息通过 mediaHash 引用媒体内容
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `media_blobs` (`hash` TEXT NOT NULL, `mimeType` TEXT, " +
+                    "`size` INTEGER NOT NULL, `width` INTEGER NOT NULL, `height` INTEGER NOT NULL, " +
+                    "`hasThumbnail` INTEGER NOT NULL, `refCount` INTEGER NOT NULL, `importedAt` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`hash`))");
+            database.execSQL("ALTER TABLE `messages` ADD COLUMN `mediaHash` TEXT");
+        }
+    };
+
+    /**
+     * 11 -> 12: 新增AI会话摘要表 ai_summaries
+     */
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `ai_summaries` (`conversationId` TEXT NOT NULL, " +
+                    "`summary` TEXT, `coveredUpToMessageId` INTEGER NOT NULL, `tokenEstimate` INTEGER NOT NULL, " +
+                    "`updatedAt` INTEGER NOT NULL, PRIMARY KEY(`conversationId`))");
+        }
+    };
+
+    /**
+     * 12 -> 13: 新增AI回复缓存表 ai_response_cache
+     */
+    static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `ai_response_cache` (`cacheKey` TEXT NOT NULL, " +
+                    "`response` TEXT, `createdAt` INTEGER NOT NULL, `expiresAt` INTEGER NOT NULL, " +
+                    "`lastHitAt` INTEGER NOT NULL, PRIMARY KEY(`cacheKey`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_ai_response_cache_expiresAt` " +
+                    "ON `ai_response_cache` (`expiresAt`)");
+        }
+    };
+
+    /**
+     * 13 -> 14: 新增拉取同步游标表 sync_cursors
+     */
+    static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `sync_cursors` (`stream` TEXT NOT NULL, `cursor` TEXT, " +
+                    "`updatedAt` INTEGER NOT NULL, PRIMARY KEY(`stream`))");
+        }
+    };
+
+    /**
+     * messages_fts 的内容同步触发器，语句必须与 Room 为 MessageFts 生成的一致
+     */
+    private static void createMessageFtsTriggers(SupportSQLiteDatabase database) {
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_messages_fts_BEFORE_UPDATE " +
+                "BEFORE UPDATE ON `messages` BEGIN DELETE FROM `messages_fts` WHERE `docid`=OLD.`rowid`; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_messages_fts_BEFORE_DELETE " +
+                "BEFORE DELETE ON `messages` BEGIN DELETE FROM `messages_fts` WHERE `docid`=OLD.`rowid`; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_messages_fts_AFTER_UPDATE " +
+                "AFTER UPDATE ON `messages` BEGIN INSERT INTO `messages_fts`(`docid`, `content`) " +
+                "VALUES (NEW.`rowid`, NEW.`content`); END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_messages_fts_AFTER_INSERT " +
+                "AFTER INSERT ON `messages` BEGIN INSERT INTO `messages_fts`(`docid`, `content`) " +
+                "VALUES (NEW.`rowid`, NEW.`content`); END");
+    }
+
+    private static List<String> parseLegacyStringList(String json) {
+        return new Gson().fromJson(json, LEGACY_STRING_LIST_TYPE);
+    }
+
+    static final Migration[] ALL = {
+            MIGRATION_1_2,
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            MIGRATION_7_8,
+            MIGRATION_8_9,
+            MIGRATION_9_10,
+            MIGRATION_10_11,
+            MIGRATION_11_12,
+            MIGRATION_12_13,
+            MIGRATION_13_14
+    };
+}
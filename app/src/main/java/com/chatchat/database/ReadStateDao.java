@@ -0,0 +1,56 @@
+package com.chatchat.database;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import com.chatchat.model.ReadState;
+
+@Dao
+public interface ReadStateDao {
+
+    @Query("SELECT * FROM read_state WHERE userId = :userId AND conversationId = :conversationId")
+    ReadState getReadState(String userId, String conversationId);
+
+    @Query("SELECT lastReadMessageId FROM read_state WHERE userId = :userId AND conversationId = :conversationId")
+    LiveData<Long> observeLastReadMessageId(String userId, String conversationId);
+
+    @Query("INSERT OR IGNORE INTO read_state (userId, conversationId, lastReadMessageId, updatedAt) " +
+            "VALUES (:userId, :conversationId, 0, 0)")
+    void ensureReadState(String userId, String conversationId);
+
+    // Watermarks only move forward, a late or duplicate receipt never un-reads messages
+    @Query("UPDATE read_state SET lastReadMessageId = :messageId, updatedAt = :updatedAt " +
+            "WHERE userId = :userId AND conversationId = :conversationId AND lastReadMessageId < :messageId")
+    void advanceReadState(String userId, String conversationId, long messageId, long updatedAt);
+
+    @Query("SELECT MAX(messageId) FROM messages WHERE conversationId = :conversationId")
+    Long getNewestMessageId(String conversationId);
+
+    /**
+     * 把 userId 在会话中的已读位置推进到 messageId，只写一行
+     */
+    @Transaction
+    default void markReadUpTo(String userId, String conversationId, long messageId) {
+        ensureReadState(userId, conversationId);
+        advanceReadState(userId, conversationId, messageId, System.currentTimeMillis());
+    }
+
+    /**
+     * 把整个会话标记为已读，不论有多少条未读消息都只写一行
+     */
+    @Transaction
+    default void markConversationRead(String userId, String conversationId) {
+        Long newest = getNewestMessageId(conversationId);
+        if (newest != null) {
+            markReadUpTo(userId, conversationId, newest);
+        }
+    }
+
+    // Range scan on (conversationId, messageId) starting after the watermark; only unread rows are visited
+    @Query("SELECT COUNT(*) FROM messages WHERE conversationId = :conversationId " +
+            "AND messageId > IFNULL((SELECT lastReadMessageId FROM read_state " +
+            "WHERE userId = :userId AND conversationId = :conversationId), 0) " +
+            "AND senderId != :userId")
+    int countUnread(String userId, String conversationId);
+}
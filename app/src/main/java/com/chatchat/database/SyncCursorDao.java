@@ -0,0 +1,18 @@
+package com.chatchat.database;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import com.chatchat.model.SyncCursor;
+
+/**
+ * 游标只在这里读取；写入发生在各 DAO 应用拉取结果的事务中，与数据一起提交
+ */
+@Dao
+public interface SyncCursorDao {
+    @Query("SELECT * FROM sync_cursors WHERE stream = :stream")
+    SyncCursor getCursor(String stream);
+
+    // The next pull starts over from the beginning of every stream
+    @Query("DELETE FROM sync_cursors")
+    void clear();
+}
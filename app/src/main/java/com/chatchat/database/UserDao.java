@@ -4,8 +4,10 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 import androidx.room.Delete;
+import com.chatchat.model.SyncCursor;
 import com.chatchat.model.User;
 import java.util.List;
 
@@ -37,4 +39,29 @@ public interface UserDao {
 
     @Query("DELETE FROM users WHERE travelerId = :travelerId")
     void deleteUserById(String travelerId);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertUserIfAbsent(User user);
+
+    // Only profile columns; the login token, password and online state stay local
+    @Query("UPDATE users SET username = :username, avatarUrl = :avatarUrl, avatarAccessory = :avatarAccessory, " +
+            "publicKey = :publicKey, lastSeen = MAX(lastSeen, :lastSeen) WHERE travelerId = :travelerId")
+    void updateProfile(String travelerId, String username, String avatarUrl, String avatarAccessory,
+                       String publicKey, long lastSeen);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void saveSyncCursor(SyncCursor cursor);
+
+    /**
+     * 应用一页拉取到的用户资料，游标在同一个事务中前移
+     */
+    @Transaction
+    default void applyPulledProfiles(List<User> users, SyncCursor cursor) {
+        for (User user : users) {
+            insertUserIfAbsent(user);
+            updateProfile(user.getTravelerId(), user.getUsername(), user.getAvatarUrl(), user.getAvatarAccessory(),
+                    user.getPublicKey(), user.getLastSeen());
+        }
+        saveSyncCursor(cursor);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.chatchat.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * AI回复缓存条目：键是规范化的提问和上下文哈希的 SHA-256，expiresAt 之后视为失效
+ */
+@Entity(
+    tableName = "ai_response_cache",
+    indices = {@Index("expiresAt")}
+)
+public class AiResponseCacheEntry {
+    @PrimaryKey
+    @NonNull
+    private String cacheKey;
+    private String response;
+    private long createdAt;
+    private long expiresAt;
+    private long lastHitAt; // used to evict the least recently used rows once the table is full
+
+    // Getters and Setters
+    @NonNull
+    public String getCacheKey() { return cacheKey; }
+    public void setCacheKey(@NonNull String cacheKey) { this.cacheKey = cacheKey; }
+
+    public String getResponse() { return response; }
+    public void setResponse(String response) { this.response = response; }
+
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    public long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(long expiresAt) { this.expiresAt = expiresAt; }
+
+    public long getLastHitAt() { return lastHitAt; }
+    public void setLastHitAt(long lastHitAt) { this.lastHitAt = lastHitAt; }
+}
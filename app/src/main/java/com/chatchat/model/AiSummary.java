@@ -0,0 +1,37 @@
+package com.chatchat.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * AI会话的滚动摘要：已经滑出上下文窗口的较早消息压缩成的文本
+ * coveredUpToMessageId 之前（含）的消息都已并入摘要，之后只需增量合并新滑出的消息
+ */
+@Entity(tableName = "ai_summaries")
+public class AiSummary {
+    @PrimaryKey
+    @NonNull
+    private String conversationId;
+    private String summary;
+    private long coveredUpToMessageId;
+    private int tokenEstimate;
+    private long updatedAt;
+
+    // Getters and Setters
+    @NonNull
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(@NonNull String conversationId) { this.conversationId = conversationId; }
+
+    public String getSummary() { return summary; }
+    public void setSummary(String summary) { this.summary = summary; }
+
+    public long getCoveredUpToMessageId() { return coveredUpToMessageId; }
+    public void setCoveredUpToMessageId(long coveredUpToMessageId) { this.coveredUpToMessageId = coveredUpToMessageId; }
+
+    public int getTokenEstimate() { return tokenEstimate; }
+    public void setTokenEstimate(int tokenEstimate) { this.tokenEstimate = tokenEstimate; }
+
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+}
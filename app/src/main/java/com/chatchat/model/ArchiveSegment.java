@@ -0,0 +1,42 @@
+package com.chatchat.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * 冷消息归档段：同一会话中一段连续的旧消息，压缩后整体保存为一行
+ * 段内消息的 messageId 范围为 [firstMessageId, lastMessageId]
+ */
+@Entity(
+    tableName = "message_archive",
+    primaryKeys = {"conversationId", "firstMessageId"}
+)
+public class ArchiveSegment {
+    @NonNull
+    private String conversationId;
+    private long firstMessageId;
+    private long lastMessageId;
+    private int messageCount;
+    private byte[] payload; // see ArchiveCodec
+    private long createdAt;
+
+    // Getters and Setters
+    @NonNull
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(@NonNull String conversationId) { this.conversationId = conversationId; }
+
+    public long getFirstMessageId() { return firstMessageId; }
+    public void setFirstMessageId(long firstMessageId) { this.firstMessageId = firstMessageId; }
+
+    public long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(long lastMessageId) { this.lastMessageId = lastMessageId; }
+
+    public int getMessageCount() { return messageCount; }
+    public void setMessageCount(int messageCount) { this.messageCount = messageCount; }
+
+    public byte[] getPayload() { return payload; }
+    public void setPayload(byte[] payload) { this.payload = payload; }
+
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+}
@@ -4,8 +4,10 @@ import androidx.annotation.NonNull;
 import androidx.room.Entity;
 import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
-import java.util.List;
 
+/**
+ * 群组信息；成员关系保存在 group_members 表中
+ */
 @Entity(tableName = "chat_groups")
 public class ChatGroup {
     @PrimaryKey
@@ -16,9 +18,7 @@ public class ChatGroup {
     private String createdBy;
     private long createdAt;
     private String description;
-    private List<String> memberIds;
-    private List<String> adminIds;
-    private String lastMessageId;
+    private Long lastMessageId;
     private long lastMessageTime;
     private int unreadCount;
 
@@ -54,14 +54,8 @@ public class ChatGroup {
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
-    public List<String> getMemberIds() { return memberIds; }
-    public void setMemberIds(List<String> memberIds) { this.memberIds = memberIds; }
-
-    public List<String> getAdminIds() { return adminIds; }
-    public void setAdminIds(List<String> adminIds) { this.adminIds = adminIds; }
-
-    public String getLastMessageId() { return lastMessageId; }
-    public void setLastMessageId(String lastMessageId) { this.lastMessageId = lastMessageId; }
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
 
     public long getLastMessageTime() { return lastMessageTime; }
     public void setLastMessageTime(long lastMessageTime) { this.lastMessageTime = lastMessageTime; }
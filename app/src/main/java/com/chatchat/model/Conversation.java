@@ -0,0 +1,87 @@
+package com.chatchat.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * 会话摘要（物化表）
+ * 每次写入、撤回消息时同步维护，聊天列表只需要按 lastMessageTime 读取这一张表；未读数由 read_state 计算
+ */
+@Entity(
+    tableName = "conversations",
+    indices = {
+        @Index(value = {"lastMessageTime", "conversationId"})
+    }
+)
+public class Conversation {
+    @PrimaryKey
+    @NonNull
+    private String conversationId;
+    private String groupId; // null for direct conversations
+    private String userId1; // the two participants of a direct conversation, in no particular order
+    private String userId2;
+    private Long lastMessageId;
+    private String lastMessagePreview;
+    private String lastSenderId;
+    private long lastMessageTime;
+
+    // Constructors
+    public Conversation() {}
+
+    @Ignore
+    public Conversation(@NonNull String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    /**
+     * 聊天列表中显示的消息预览
+     */
+    public static String previewOf(Message message) {
+        if (message.isRecalled()) {
+            return "消息已撤回";
+        }
+        switch (message.getType()) {
+            case IMAGE:
+                return "[图片]";
+            case VOICE:
+                return "[语音]";
+            case CHART:
+                return "[图表]";
+            case CONTACT_CARD:
+                return "[名片]";
+            default:
+                String content = message.getContent();
+                if (content == null) return "";
+                return content.length() > 100 ? content.substring(0, 100) : content;
+        }
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(@NonNull String conversationId) { this.conversationId = conversationId; }
+
+    public String getGroupId() { return groupId; }
+    public void setGroupId(String groupId) { this.groupId = groupId; }
+
+    public String getUserId1() { return userId1; }
+    public void setUserId1(String userId1) { this.userId1 = userId1; }
+
+    public String getUserId2() { return userId2; }
+    public void setUserId2(String userId2) { this.userId2 = userId2; }
+
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
+
+    public String getLastMessagePreview() { return lastMessagePreview; }
+    public void setLastMessagePreview(String lastMessagePreview) { this.lastMessagePreview = lastMessagePreview; }
+
+    public String getLastSenderId() { return lastSenderId; }
+    public void setLastSenderId(String lastSenderId) { this.lastSenderId = lastSenderId; }
+
+    public long getLastMessageTime() { return lastMessageTime; }
+    public void setLastMessageTime(long lastMessageTime) { this.lastMessageTime = lastMessageTime; }
+}
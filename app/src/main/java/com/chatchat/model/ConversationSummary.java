@@ -0,0 +1,40 @@
+package com.chatchat.model;
+
+/**
+ * 聊天列表条目：会话摘要加上对端用户或群组的显示信息，由一条联表查询得到
+ */
+public class ConversationSummary {
+    private String conversationId;
+    private String groupId;
+    private String peerId; // null for group conversations
+    private String title;
+    private String lastMessagePreview;
+    private long lastMessageTime;
+    private int unreadCount;
+    private boolean peerOnline;
+
+    // Getters and Setters
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+
+    public String getGroupId() { return groupId; }
+    public void setGroupId(String groupId) { this.groupId = groupId; }
+
+    public String getPeerId() { return peerId; }
+    public void setPeerId(String peerId) { this.peerId = peerId; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getLastMessagePreview() { return lastMessagePreview; }
+    public void setLastMessagePreview(String lastMessagePreview) { this.lastMessagePreview = lastMessagePreview; }
+
+    public long getLastMessageTime() { return lastMessageTime; }
+    public void setLastMessageTime(long lastMessageTime) { this.lastMessageTime = lastMessageTime; }
+
+    public int getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(int unreadCount) { this.unreadCount = unreadCount; }
+
+    public boolean isPeerOnline() { return peerOnline; }
+    public void setPeerOnline(boolean peerOnline) { this.peerOnline = peerOnline; }
+}
@@ -0,0 +1,80 @@
+package com.chatchat.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+
+/**
+ * 群成员关系
+ * 主键 (groupId, userId) 支持按群分页和成员判断，userId 索引支持反查“我加入的群”
+ */
+@Entity(
+    tableName = "group_members",
+    primaryKeys = {"groupId", "userId"},
+    indices = {
+        @Index(value = {"userId", "groupId"})
+    }
+)
+public class GroupMember {
+    @NonNull
+    private String groupId;
+    @NonNull
+    private String userId;
+    @NonNull
+    private Role role;
+    private long joinedAt;
+
+    /**
+     * 成员角色；数据库中保存 code，已有的 code 不能修改
+     */
+    public enum Role {
+        OWNER(0), ADMIN(1), MEMBER(2);
+
+        private static final Role[] BY_CODE = {OWNER, ADMIN, MEMBER};
+
+        public final int code;
+
+        Role(int code) {
+            this.code = code;
+        }
+
+        public static Role fromCode(int code) {
+            if (code < 0 || code >= BY_CODE.length) {
+                throw new IllegalArgumentException("Unknown member role code: " + code);
+            }
+            return BY_CODE[code];
+        }
+    }
+
+    // Constructors
+    public GroupMember() {}
+
+    @Ignore
+    public GroupMember(@NonNull String groupId, @NonNull String userId, @NonNull Role role) {
+        this.groupId = groupId;
+        this.userId = userId;
+        this.role = role;
+        this.joinedAt = System.currentTimeMillis();
+    }
+
+    public boolean isAdmin() {
+        return role == Role.OWNER || role == Role.ADMIN;
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getGroupId() { return groupId; }
+    public void setGroupId(@NonNull String groupId) { this.groupId = groupId; }
+
+    @NonNull
+    public String getUserId() { return userId; }
+    public void setUserId(@NonNull String userId) { this.userId = userId; }
+
+    @NonNull
+    public Role getRole() { return role; }
+    public void setRole(@NonNull Role role) { this.role = role; }
+
+    public long getJoinedAt() { return joinedAt; }
+    public void setJoinedAt(long joinedAt) { this.joinedAt = joinedAt; }
+}
@@ -0,0 +1,49 @@
+package com.chatchat.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * 本地媒体文件，以内容的 SHA-256 为键，同一份内容只保存一次
+ * refCount 为引用该文件的消息数，降到 0 后由清理任务删除
+ */
+@Entity(tableName = "media_blobs")
+public class MediaBlob {
+    @PrimaryKey
+    @NonNull
+    private String hash; // lowercase hex SHA-256 of the content
+    private String mimeType;
+    private long size;
+    private int width; // 0 for non-image media
+    private int height;
+    private boolean hasThumbnail;
+    private int refCount;
+    private long importedAt; // refreshed on every import, protects fresh blobs from collection
+
+    // Getters and Setters
+    @NonNull
+    public String getHash() { return hash; }
+    public void setHash(@NonNull String hash) { this.hash = hash; }
+
+    public String getMimeType() { return mimeType; }
+    public void setMimeType(String mimeType) { this.mimeType = mimeType; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public int getWidth() { return width; }
+    public void setWidth(int width) { this.width = width; }
+
+    public int getHeight() { return height; }
+    public void setHeight(int height) { this.height = height; }
+
+    public boolean isHasThumbnail() { return hasThumbnail; }
+    public void setHasThumbnail(boolean hasThumbnail) { this.hasThumbnail = hasThumbnail; }
+
+    public int getRefCount() { return refCount; }
+    public void setRefCount(int refCount) { this.refCount = refCount; }
+
+    public long getImportedAt() { return importedAt; }
+    public void setImportedAt(long importedAt) { this.importedAt = importedAt; }
+}
@@ -1,37 +1,98 @@
 package com.chatchat.model;
 
-import androidx.annotation.NonNull;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
-
-@Entity(tableName = "messages")
+import java.security.SecureRandom;
+
+@Entity(
+    tableName = "messages",
+    indices = {
+        @Index(value = {"conversationId", "messageId"}),
+        @Index(value = {"isSentToCloud"}),
+        @Index(value = {"clientKey"}, unique = true)
+    }
+)
 public class Message {
+    private static final SecureRandom CLIENT_KEYS = new SecureRandom();
+
     @PrimaryKey
-    @NonNull
-    private String messageId;
+    private long messageId; // time-ordered, see MessageIdGenerator
+    private long clientKey; // random, drawn once where the message is created; see MessageDao.claimMessageId
     private String senderId;
     private String receiverId; // null for group messages
     private String groupId; // null for direct messages
+    private String conversationId; // derived from groupId or the sender/receiver pair
     private String content;
     private MessageType type;
     private long timestamp;
-    private boolean isRead;
+    @Ignore
+    private boolean isRead; // computed from the reader's ReadState, not stored
     private boolean isRecalled;
     private String mediaUrl;
+    private String mediaHash; // local copy in LocalMediaStore, null when not stored locally
     private boolean isSentToCloud;
     private boolean isAiMessage;
 
+    /**
+     * 消息类型；数据库中保存 code，新增类型只能追加新的 code，已有的 code 不能修改
+     */
     public enum MessageType {
-        TEXT, IMAGE, VOICE, EMOJI, MARKDOWN, CHART, CONTACT_CARD
+        TEXT(0), IMAGE(1), VOICE(2), EMOJI(3), MARKDOWN(4), CHART(5), CONTACT_CARD(6);
+
+        private static final MessageType[] BY_CODE = new MessageType[7];
+
+        static {
+            for (MessageType type : values()) {
+                BY_CODE[type.code] = type;
+            }
+        }
+
+        public final int code;
+
+        MessageType(int code) {
+            this.code = code;
+        }
+
+        public static MessageType fromCode(int code) {
+            if (code < 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+                throw new IllegalArgumentException("Unknown message type code: " + code);
+            }
+            return BY_CODE[code];
+        }
     }
 
     // Constructors
     public Message() {}
 
+    /**
+     * 浅拷贝，用于在不修改原对象的情况下改变计算出的状态（如 isRead）
+     */
+    public Message copy() {
+        Message copy = new Message();
+        copy.messageId = messageId;
+        copy.clientKey = clientKey;
+        copy.senderId = senderId;
+        copy.receiverId = receiverId;
+        copy.groupId = groupId;
+        copy.conversationId = conversationId;
+        copy.content = content;
+        copy.type = type;
+        copy.timestamp = timestamp;
+        copy.isRead = isRead;
+        copy.isRecalled = isRecalled;
+        copy.mediaUrl = mediaUrl;
+        copy.mediaHash = mediaHash;
+        copy.isSentToCloud = isSentToCloud;
+        copy.isAiMessage = isAiMessage;
+        return copy;
+    }
+
     @Ignore
-    public Message(String messageId, String senderId, String content, MessageType type) {
+    public Message(long messageId, String senderId, String content, MessageType type) {
         this.messageId = messageId;
+        this.clientKey = newClientKey();
         this.senderId = senderId;
         this.content = content;
         this.type = type;
@@ -42,18 +103,44 @@ public class Message {
         this.isAiMessage = false;
     }
 
+    /**
+     * 新消息的标识：在各设备之间和ID被重新分配后都不变，0 保留为无效值
+     */
+    public static long newClientKey() {
+        long key;
+        do {
+            key = CLIENT_KEYS.nextLong();
+        } while (key == 0);
+        return key;
+    }
+
     // Getters and Setters
-    public String getMessageId() { return messageId; }
-    public void setMessageId(String messageId) { this.messageId = messageId; }
+    public long getMessageId() { return messageId; }
+    public void setMessageId(long messageId) { this.messageId = messageId; }
+
+    public long getClientKey() { return clientKey; }
+    public void setClientKey(long clientKey) { this.clientKey = clientKey; }
 
     public String getSenderId() { return senderId; }
-    public void setSenderId(String senderId) { this.senderId = senderId; }
+    public void setSenderId(String senderId) {
+        this.senderId = senderId;
+        updateConversationId();
+    }
 
     public String getReceiverId() { return receiverId; }
-    public void setReceiverId(String receiverId) { this.receiverId = receiverId; }
+    public void setReceiverId(String receiverId) {
+        this.receiverId = receiverId;
+        updateConversationId();
+    }
 
     public String getGroupId() { return groupId; }
-    public void setGroupId(String groupId) { this.groupId = groupId; }
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+        updateConversationId();
+    }
+
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
 
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
@@ -73,9 +160,52 @@ public class Message {
     public String getMediaUrl() { return mediaUrl; }
     public void setMediaUrl(String mediaUrl) { this.mediaUrl = mediaUrl; }
 
+    public String getMediaHash() { return mediaHash; }
+    public void setMediaHash(String mediaHash) { this.mediaHash = mediaHash; }
+
     public boolean isSentToCloud() { return isSentToCloud; }
     public void setSentToCloud(boolean sentToCloud) { isSentToCloud = sentToCloud; }
 
     public boolean isAiMessage() { return isAiMessage; }
     public void setAiMessage(boolean aiMessage) { isAiMessage = aiMessage; }
+
+    private void updateConversationId() {
+        if (groupId != null) {
+            conversationId = groupConversationId(groupId);
+        } else if (senderId != null && receiverId != null) {
+            conversationId = directConversationId(senderId, receiverId);
+        }
+    }
+
+    /**
+     * 群聊会话ID
+     */
+    public static String groupConversationId(String groupId) {
+        return "g:" + groupId;
+    }
+
+    /**
+     * 单聊（含AI助手）会话ID，与参数顺序无关
+     * 排序规则与 SQLite 的 BINARY 排序一致（按码点比较），迁移时可直接用 min()/max() 回填
+     */
+    public static String directConversationId(String userId1, String userId2) {
+        return compareCodePoints(userId1, userId2) <= 0
+                ? "d:" + userId1 + ":" + userId2
+                : "d:" + userId2 + ":" + userId1;
+    }
+
+    private static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.chatchat.model;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * 消息全文索引
+ * 外部内容表指向 messages，由 Room 生成的触发器保持同步；
+ * 使用 ICU 分词器，中文按词典切词而不是整句作为一个词
+ */
+@Fts4(contentEntity = Message.class, tokenizer = FtsOptions.TOKENIZER_ICU)
+@Entity(tableName = "messages_fts")
+public class MessageFts {
+    private String content;
+
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+}
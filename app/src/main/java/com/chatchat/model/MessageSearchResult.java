@@ -0,0 +1,44 @@
+package com.chatchat.model;
+
+/**
+ * 消息搜索结果
+ * snippet 中命中的词用 MessageSearchResult.HIGHLIGHT_START / HIGHLIGHT_END 包裹
+ */
+public class MessageSearchResult {
+    public static final char HIGHLIGHT_START = '\u0002';
+    public static final char HIGHLIGHT_END = '\u0003';
+
+    private long messageId;
+    private String conversationId;
+    private String senderId;
+    private String receiverId;
+    private String groupId;
+    private long timestamp;
+    private String snippet;
+    private int matchCount;
+
+    // Getters and Setters
+    public long getMessageId() { return messageId; }
+    public void setMessageId(long messageId) { this.messageId = messageId; }
+
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+
+    public String getSenderId() { return senderId; }
+    public void setSenderId(String senderId) { this.senderId = senderId; }
+
+    public String getReceiverId() { return receiverId; }
+    public void setReceiverId(String receiverId) { this.receiverId = receiverId; }
+
+    public String getGroupId() { return groupId; }
+    public void setGroupId(String groupId) { this.groupId = groupId; }
+
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+    public String getSnippet() { return snippet; }
+    public void setSnippet(String snippet) { this.snippet = snippet; }
+
+    public int getMatchCount() { return matchCount; }
+    public void setMatchCount(int matchCount) { this.matchCount = matchCount; }
+}
@@ -0,0 +1,48 @@
+package com.chatchat.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+/**
+ * 已读位置：用户在某个会话中已读到的最后一条消息
+ * messageId 按时间递增，所以 messageId 不大于 lastReadMessageId 的消息都视为已读
+ */
+@Entity(
+    tableName = "read_state",
+    primaryKeys = {"userId", "conversationId"}
+)
+public class ReadState {
+    @NonNull
+    private String userId;
+    @NonNull
+    private String conversationId;
+    private long lastReadMessageId;
+    private long updatedAt;
+
+    // Constructors
+    public ReadState() {}
+
+    @Ignore
+    public ReadState(@NonNull String userId, @NonNull String conversationId, long lastReadMessageId) {
+        this.userId = userId;
+        this.conversationId = conversationId;
+        this.lastReadMessageId = lastReadMessageId;
+        this.updatedAt = System.currentTimeMillis();
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getUserId() { return userId; }
+    public void setUserId(@NonNull String userId) { this.userId = userId; }
+
+    @NonNull
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(@NonNull String conversationId) { this.conversationId = conversationId; }
+
+    public long getLastReadMessageId() { return lastReadMessageId; }
+    public void setLastReadMessageId(long lastReadMessageId) { this.lastReadMessageId = lastReadMessageId; }
+
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,40 @@
+package com.chatchat.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * 拉取同步的游标：每个数据流（消息、群组、用户资料）一行，cursor 是服务端返回的不透明位置
+ * 游标与对应页的数据在同一个事务中写入，中断后从最后提交的位置继续
+ */
+@Entity(tableName = "sync_cursors")
+public class SyncCursor {
+    @PrimaryKey
+    @NonNull
+    private String stream;
+    private String cursor;
+    private long updatedAt;
+
+    // Constructors
+    public SyncCursor() {}
+
+    @Ignore
+    public SyncCursor(@NonNull String stream, String cursor) {
+        this.stream = stream;
+        this.cursor = cursor;
+        this.updatedAt = System.currentTimeMillis();
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getStream() { return stream; }
+    public void setStream(@NonNull String stream) { this.stream = stream; }
+
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+}
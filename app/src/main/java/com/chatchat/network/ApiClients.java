@@ -0,0 +1,60 @@
+package com.chatchat.network;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import com.google.gson.GsonBuilder;
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 网络客户端：全应用共用一个 OkHttpClient（连接池和调度线程），各接口在其上派生自己的配置
+ */
+public final class ApiClients {
+
+    public static final String KEY_CLOUD_ENDPOINT = "cloud_endpoint";
+
+    private static volatile OkHttpClient sharedClient;
+
+    private ApiClients() {}
+
+    public static OkHttpClient http() {
+        if (sharedClient == null) {
+            synchronized (ApiClients.class) {
+                if (sharedClient == null) {
+                    sharedClient = new OkHttpClient();
+                }
+            }
+        }
+        return sharedClient;
+    }
+
+    /**
+     * 云端同步接口；没有配置 cloud_endpoint 时返回 null
+     */
+    public static CloudSyncApi cloudSync(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences("ChatChatPrefs", Context.MODE_PRIVATE);
+        String endpoint = prefs.getString(KEY_CLOUD_ENDPOINT, null);
+        if (TextUtils.isEmpty(endpoint)) return null;
+        return cloudSync(http(), endpoint, prefs.getString("jwt_token", null));
+    }
+
+    public static CloudSyncApi cloudSync(OkHttpClient baseClient, String endpoint, String authToken) {
+        OkHttpClient.Builder client = baseClient.newBuilder();
+        if (authToken != null) {
+            client.addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                    .header("Authorization", "Bearer " + authToken)
+                    .build()));
+        }
+        client.addInterceptor(new GzipRequestInterceptor());
+        return new Retrofit.Builder()
+                .baseUrl(endpoint.endsWith("/") ? endpoint : endpoint + "/")
+                .client(client.build())
+                .addConverterFactory(GsonConverterFactory.create(new GsonBuilder()
+                        .registerTypeAdapterFactory(new SyncPageAdapterFactory())
+                        .create()))
+                .build()
+                .create(CloudSyncApi.class);
+    }
+}
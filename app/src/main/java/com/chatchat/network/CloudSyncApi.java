@@ -0,0 +1,27 @@
+package com.chatchat.network;
+
+import retrofit2.Call;
+import retrofit2.http.Body;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+import retrofit2.http.Query;
+
+/**
+ * 云端消息同步接口
+ */
+public interface CloudSyncApi {
+
+    // 2xx means every message in the batch has been stored
+    @POST("messages/batch")
+    Call<Void> uploadMessages(@Body UploadBatch batch);
+
+    // Changes after cursor, oldest first; a null cursor starts from the beginning of the stream
+    @GET("sync/messages")
+    Call<SyncPage<MessagePayload>> pullMessages(@Query("cursor") String cursor, @Query("limit") int limit);
+
+    @GET("sync/groups")
+    Call<SyncPage<GroupPayload>> pullGroups(@Query("cursor") String cursor, @Query("limit") int limit);
+
+    @GET("sync/users")
+    Call<SyncPage<UserPayload>> pullUsers(@Query("cursor") String cursor, @Query("limit") int limit);
+}
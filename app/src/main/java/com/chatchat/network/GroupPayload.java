@@ -0,0 +1,58 @@
+package com.chatchat.network;
+
+import com.chatchat.model.ChatGroup;
+import com.chatchat.model.GroupMember;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 拉取同步中的群组变更：群组资料和变更后完整的成员列表
+ */
+public class GroupPayload {
+
+    public String groupId;
+    public String groupName;
+    public String groupAvatarUrl;
+    public String createdBy;
+    public long createdAt;
+    public String description;
+    public List<Member> members;
+
+    public ChatGroup toGroup() {
+        ChatGroup group = new ChatGroup();
+        group.setGroupId(groupId);
+        group.setGroupName(groupName);
+        group.setGroupAvatarUrl(groupAvatarUrl);
+        group.setCreatedBy(createdBy);
+        group.setCreatedAt(createdAt);
+        group.setLastMessageTime(createdAt);
+        group.setDescription(description);
+        return group;
+    }
+
+    public List<GroupMember> toMembers() {
+        List<GroupMember> result = new ArrayList<>();
+        if (members == null) return result;
+        for (Member member : members) {
+            GroupMember groupMember = new GroupMember(groupId, member.userId, roleOf(member.role));
+            groupMember.setJoinedAt(member.joinedAt);
+            result.add(groupMember);
+        }
+        return result;
+    }
+
+    // A role added by a newer client gets the least privileges here
+    private static GroupMember.Role roleOf(int code) {
+        try {
+            return GroupMember.Role.fromCode(code);
+        } catch (IllegalArgumentException e) {
+            return GroupMember.Role.MEMBER;
+        }
+    }
+
+    public static class Member {
+        public String userId;
+        public int role; // GroupMember.Role code
+        public long joinedAt;
+    }
+}
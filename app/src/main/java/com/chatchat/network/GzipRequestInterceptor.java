@@ -0,0 +1,36 @@
+package com.chatchat.network;
+
+import java.io.IOException;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * 用 gzip 压缩请求体并设置 Content-Encoding
+ * 压缩结果先写入内存再发送，请求带有准确的 Content-Length；只用于大小有上限的批量请求
+ */
+public final class GzipRequestInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request original = chain.request();
+        RequestBody body = original.body();
+        if (body == null || original.header("Content-Encoding") != null) {
+            return chain.proceed(original);
+        }
+        Buffer compressed = new Buffer();
+        try (BufferedSink gzip = Okio.buffer(new GzipSink(compressed))) {
+            body.writeTo(gzip);
+        }
+        Request request = original.newBuilder()
+                .header("Content-Encoding", "gzip")
+                .method(original.method(), RequestBody.create(compressed.readByteString(), body.contentType()))
+                .build();
+        return chain.proceed(request);
+    }
+}
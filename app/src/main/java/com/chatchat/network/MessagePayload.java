@@ -0,0 +1,73 @@
+package com.chatchat.network;
+
+import com.chatchat.model.Message;
+
+/**
+ * 云端同步接口中的消息格式；只包含需要跨设备同步的字段，已读状态不参与同步。
+ * mediaHash 是媒体内容的哈希，其它设备据此复用已有的本地副本
+ */
+public class MessagePayload {
+
+    public long messageId;
+    public long clientKey; // identifies the message, the id may differ between devices
+    public String senderId;
+    public String receiverId;
+    public String groupId;
+    public String conversationId;
+    public String content;
+    public int type;
+    public long timestamp;
+    public boolean recalled;
+    public String mediaUrl;
+    public String mediaHash;
+    public boolean aiMessage;
+
+    public static MessagePayload from(Message message) {
+        MessagePayload payload = new MessagePayload();
+        payload.messageId = message.getMessageId();
+        payload.clientKey = message.getClientKey();
+        payload.senderId = message.getSenderId();
+        payload.receiverId = message.getReceiverId();
+        payload.groupId = message.getGroupId();
+        payload.conversationId = message.getConversationId();
+        payload.content = message.getContent();
+        payload.type = message.getType() == null ? Message.MessageType.TEXT.code : message.getType().code;
+        payload.timestamp = message.getTimestamp();
+        payload.recalled = message.isRecalled();
+        payload.mediaUrl = message.getMediaUrl();
+        payload.mediaHash = message.getMediaHash();
+        payload.aiMessage = message.isAiMessage();
+        return payload;
+    }
+
+    /**
+     * 拉取到的消息已经在云端，写入本地时直接标记为已同步
+     */
+    public Message toMessage() {
+        Message message = new Message();
+        message.setMessageId(messageId);
+        message.setClientKey(clientKey);
+        message.setSenderId(senderId);
+        message.setReceiverId(receiverId);
+        message.setGroupId(groupId);
+        if (conversationId != null) message.setConversationId(conversationId);
+        message.setContent(content);
+        message.setType(typeOf(type));
+        message.setTimestamp(timestamp);
+        message.setRecalled(recalled);
+        message.setMediaUrl(mediaUrl);
+        message.setMediaHash(mediaHash);
+        message.setAiMessage(aiMessage);
+        message.setSentToCloud(true);
+        return message;
+    }
+
+    // A type added by a newer client is shown as text instead of failing the page
+    private static Message.MessageType typeOf(int code) {
+        try {
+            return Message.MessageType.fromCode(code);
+        } catch (IllegalArgumentException e) {
+            return Message.MessageType.TEXT;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.chatchat.network;
+
+import java.util.List;
+
+/**
+ * 拉取同步的一页结果：items 是游标之后的变更，nextCursor 是这一页之后的位置，hasMore 表示还有后续页。
+ * skipped 是这一页中无法解析而被丢弃的条目数，由 SyncPageAdapterFactory 填写，不在接口数据中
+ */
+public class SyncPage<T> {
+
+    public List<T> items;
+    public String nextCursor;
+    public boolean hasMore;
+    public transient int skipped;
+}
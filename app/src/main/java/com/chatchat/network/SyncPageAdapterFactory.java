@@ -0,0 +1,93 @@
+package com.chatchat.network;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+
+/**
+ * SyncPage 的 Gson 适配：items 逐条解析，无法映射到载荷类型的条目计入 skipped 并跳过，
+ * 一条格式错误的变更不会让整页（以及之后的游标）无法提交
+ */
+final class SyncPageAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != SyncPage.class) return null;
+        Type itemType = type.getType() instanceof ParameterizedType
+                ? ((ParameterizedType) type.getType()).getActualTypeArguments()[0] : Object.class;
+        return (TypeAdapter<T>) new PageAdapter<>(gson, gson.getAdapter(TypeToken.get(itemType)));
+    }
+
+    private static final class PageAdapter<I> extends TypeAdapter<SyncPage<I>> {
+        private final Gson gson;
+        private final TypeAdapter<I> itemAdapter;
+
+        PageAdapter(Gson gson, TypeAdapter<I> itemAdapter) {
+            this.gson = gson;
+            this.itemAdapter = itemAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, SyncPage<I> page) throws IOException {
+            if (page == null) {
+                out.nullValue();
+                return;
+            }
+            JsonObject json = new JsonObject();
+            JsonArray items = new JsonArray();
+            if (page.items != null) {
+                for (I item : page.items) items.add(itemAdapter.toJsonTree(item));
+            }
+            json.add("items", items);
+            json.addProperty("nextCursor", page.nextCursor);
+            json.addProperty("hasMore", page.hasMore);
+            gson.toJson(json, out);
+        }
+
+        @Override
+        public SyncPage<I> read(JsonReader in) throws IOException {
+            JsonElement tree = gson.getAdapter(JsonElement.class).read(in);
+            if (tree == null || tree.isJsonNull()) return null;
+            if (!tree.isJsonObject()) throw new JsonParseException("Sync page is not an object");
+            JsonObject json = tree.getAsJsonObject();
+            SyncPage<I> page = new SyncPage<>();
+            page.nextCursor = string(json.get("nextCursor"));
+            JsonElement hasMore = json.get("hasMore");
+            page.hasMore = hasMore != null && !hasMore.isJsonNull() && hasMore.getAsBoolean();
+            JsonElement items = json.get("items");
+            page.items = new ArrayList<>();
+            if (items != null && items.isJsonArray()) {
+                for (JsonElement element : items.getAsJsonArray()) {
+                    I item = null;
+                    try {
+                        item = itemAdapter.fromJsonTree(element);
+                    } catch (RuntimeException e) {
+                        // Wrong field types (e.g. a string where a number belongs) in this one item
+                    }
+                    if (item == null) {
+                        page.skipped++;
+                    } else {
+                        page.items.add(item);
+                    }
+                }
+            }
+            return page;
+        }
+
+        private static String string(JsonElement element) {
+            return element == null || element.isJsonNull() ? null : element.getAsString();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.chatchat.network;
+
+import java.util.List;
+
+/**
+ * 一批待上传的消息；服务端按 messageId 去重，重复上传同一批是安全的
+ */
+public class UploadBatch {
+
+    public List<MessagePayload> messages;
+
+    public UploadBatch(List<MessagePayload> messages) {
+        this.messages = messages;
+    }
+}
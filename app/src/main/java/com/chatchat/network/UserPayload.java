@@ -0,0 +1,27 @@
+package com.chatchat.network;
+
+import com.chatchat.model.User;
+
+/**
+ * 拉取同步中的用户资料；只有公开资料，不包含登录信息
+ */
+public class UserPayload {
+
+    public String travelerId;
+    public String username;
+    public String avatarUrl;
+    public String avatarAccessory;
+    public long lastSeen;
+    public String publicKey;
+
+    public User toUser() {
+        User user = new User();
+        user.setTravelerId(travelerId);
+        user.setUsername(username);
+        user.setAvatarUrl(avatarUrl);
+        user.setAvatarAccessory(avatarAccessory);
+        user.setLastSeen(lastSeen);
+        user.setPublicKey(publicKey);
+        return user;
+    }
+}
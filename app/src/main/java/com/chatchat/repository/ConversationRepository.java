@@ -0,0 +1,169 @@
+package com.chatchat.repository;
+
+import android.content.Context;
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+import com.chatchat.database.AppDatabase;
+import com.chatchat.model.ChatGroup;
+import com.chatchat.model.ConversationSummary;
+import com.chatchat.model.User;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 会话仓库：缓存聊天列表第一页以及用户、群组信息，所有页面共享
+ * 相关表有写入时对应的缓存被清空，下一次读取重新查询数据库；消息写入只清除显示了涉及会话的第一页
+ */
+public class ConversationRepository {
+
+    private static final int MAX_USERS = 200;
+    private static final int MAX_GROUPS = 50;
+    private static final int MAX_FIRST_PAGES = 2;
+
+    private static volatile ConversationRepository instance;
+
+    private final AppDatabase database;
+    private final LruCache<String, User> users = new LruCache<>(MAX_USERS);
+    private final LruCache<String, GroupInfo> groups = new LruCache<>(MAX_GROUPS);
+    private final LruCache<String, FirstPage> firstPages = new LruCache<>(MAX_FIRST_PAGES);
+    // Bumped on every invalidation so a query that raced with a write is not cached
+    private final AtomicInteger usersVersion = new AtomicInteger();
+    private final AtomicInteger groupsVersion = new AtomicInteger();
+    private final AtomicInteger firstPagesVersion = new AtomicInteger();
+
+    private ConversationRepository(AppDatabase database) {
+        this.database = database;
+        InvalidationTracker tracker = database.getInvalidationTracker();
+        tracker.addObserver(new InvalidationTracker.Observer("users") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                usersVersion.incrementAndGet();
+                users.evictAll();
+            }
+        });
+        tracker.addObserver(new InvalidationTracker.Observer("chat_groups", "group_members") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                groupsVersion.incrementAndGet();
+                groups.evictAll();
+            }
+        });
+        // Every table the summaries query reads from except messages. A new last message also rewrites its
+        // conversations row, so reordering is seen here; other message writes only change one unread count
+        tracker.addObserver(new InvalidationTracker.Observer("conversations", "read_state",
+                "users", "chat_groups", "group_members") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                firstPagesVersion.incrementAndGet();
+                firstPages.evictAll();
+            }
+        });
+        database.getConversationChanges().addListener(conversationIds -> {
+            firstPagesVersion.incrementAndGet();
+            for (Map.Entry<String, FirstPage> entry : firstPages.snapshot().entrySet()) {
+                if (entry.getValue().showsAny(conversationIds)) firstPages.remove(entry.getKey());
+            }
+        });
+    }
+
+    public static ConversationRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ConversationRepository.class) {
+                if (instance == null) {
+                    instance = new ConversationRepository(AppDatabase.getDatabase(context));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 查询用户，优先使用缓存；需要在后台线程调用
+     */
+    public User getUser(String userId) {
+        User user = users.get(userId);
+        if (user == null) {
+            int loadedAt = usersVersion.get();
+            user = database.userDao().getUserById(userId);
+            if (user != null && usersVersion.get() == loadedAt) users.put(userId, user);
+        }
+        return user;
+    }
+
+    /**
+     * 查询群组及成员数，优先使用缓存；需要在后台线程调用
+     */
+    public GroupInfo getGroup(String groupId) {
+        GroupInfo info = groups.get(groupId);
+        if (info == null) {
+            int loadedAt = groupsVersion.get();
+            ChatGroup group = database.chatGroupDao().getChatGroupById(groupId);
+            if (group == null) return null;
+            info = new GroupInfo(group, database.groupMemberDao().getMemberCount(groupId));
+            if (groupsVersion.get() == loadedAt) groups.put(groupId, info);
+        }
+        return info;
+    }
+
+    /**
+     * 返回缓存的聊天列表第一页，没有缓存时返回 null；可以在主线程调用
+     */
+    public FirstPage peekFirstPage(String userId, String pinnedConversationId) {
+        return firstPages.get(userId + '\n' + pinnedConversationId);
+    }
+
+    /**
+     * 加载聊天列表第一页：置顶会话的摘要（可能为 null）和其余会话按最后消息时间倒序的前 pageSize 条
+     */
+    public FirstPage loadFirstPage(String userId, String pinnedConversationId, int pageSize) {
+        String key = userId + '\n' + pinnedConversationId;
+        FirstPage page = firstPages.get(key);
+        if (page == null) {
+            int loadedAt = firstPagesVersion.get();
+            ConversationSummary pinned = database.conversationDao().getConversationSummary(userId, pinnedConversationId);
+            List<ConversationSummary> summaries = database.conversationDao().getConversationSummaries(
+                    userId, pinnedConversationId, Long.MAX_VALUE, "", pageSize);
+            page = new FirstPage(pinned, summaries);
+            if (firstPagesVersion.get() == loadedAt) firstPages.put(key, page);
+        }
+        return page;
+    }
+
+    public static final class GroupInfo {
+        private final ChatGroup group;
+        private final int memberCount;
+
+        GroupInfo(ChatGroup group, int memberCount) {
+            this.group = group;
+            this.memberCount = memberCount;
+        }
+
+        public ChatGroup getGroup() { return group; }
+        public int getMemberCount() { return memberCount; }
+    }
+
+    public static final class FirstPage {
+        private final ConversationSummary pinned;
+        private final List<ConversationSummary> summaries;
+
+        FirstPage(ConversationSummary pinned, List<ConversationSummary> summaries) {
+            this.pinned = pinned;
+            this.summaries = Collections.unmodifiableList(summaries);
+        }
+
+        public ConversationSummary getPinned() { return pinned; }
+        public List<ConversationSummary> getSummaries() { return summaries; }
+
+        boolean showsAny(Set<String> conversationIds) {
+            if (pinned != null && conversationIds.contains(pinned.getConversationId())) return true;
+            for (ConversationSummary summary : summaries) {
+                if (conversationIds.contains(summary.getConversationId())) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.chatchat.repository;
+
+import android.content.Context;
+import android.util.LruCache;
+import com.chatchat.database.AppDatabase;
+import com.chatchat.database.MessagePagingSource;
+import com.chatchat.model.Message;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 消息仓库：所有页面共享的最近打开会话的最新一页消息缓存
+ * 旋转屏幕或返回后重新打开最近的会话时，直接用缓存的一页填充列表，数据库观察查询随后再校正。
+ * 消息写入只清除涉及的会话（见 ConversationChanges），当前打开的会话会在重新查询后立即写回
+ */
+public class MessageRepository {
+
+    private static final int MAX_CONVERSATIONS = 16;
+
+    private static volatile MessageRepository instance;
+
+    private final LruCache<String, List<Message>> latestPages = new LruCache<>(MAX_CONVERSATIONS);
+    // Bumped on every change so a query that raced with a write is not cached
+    private final AtomicInteger version = new AtomicInteger();
+
+    private MessageRepository(AppDatabase database) {
+        database.getConversationChanges().addListener(conversationIds -> {
+            version.incrementAndGet();
+            for (String conversationId : conversationIds) {
+                latestPages.remove(conversationId);
+            }
+        });
+    }
+
+    public static MessageRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MessageRepository.class) {
+                if (instance == null) {
+                    instance = new MessageRepository(AppDatabase.getDatabase(context));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 返回缓存的最新一页（时间正序，不可修改），没有缓存时返回 null；可以在主线程调用
+     */
+    public List<Message> peekLatest(String conversationId) {
+        return latestPages.get(conversationId);
+    }
+
+    /**
+     * 从数据库加载最新一页并放入缓存，需要在后台线程调用
+     */
+    public List<Message> loadLatest(MessagePagingSource source, int pageSize) {
+        int loadedAt = version.get();
+        List<Message> page = source.loadLatest(pageSize);
+        if (!page.isEmpty() && version.get() == loadedAt) {
+            latestPages.put(source.getConversationId(), Collections.unmodifiableList(new ArrayList<>(page)));
+        }
+        return page;
+    }
+
+    /**
+     * 用观察查询得到的最新消息刷新缓存，只保留末尾 pageSize 条
+     */
+    public void updateLatest(String conversationId, List<Message> rows, int pageSize) {
+        if (rows.isEmpty()) return;
+        List<Message> tail = rows.subList(Math.max(0, rows.size() - pageSize), rows.size());
+        latestPages.put(conversationId, Collections.unmodifiableList(new ArrayList<>(tail)));
+    }
+}
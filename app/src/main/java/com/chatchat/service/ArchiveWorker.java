@@ -0,0 +1,69 @@
+package com.chatchat.service;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.chatchat.database.AppDatabase;
+import com.chatchat.database.MessageArchiver;
+import com.chatchat.utils.LocalMediaStore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冷消息归档任务：设备空闲且充电时把旧消息压缩归档，清理不再被引用的媒体文件，然后增量回收数据库空闲页
+ */
+public class ArchiveWorker extends Worker {
+
+    private static final String TAG = "ArchiveWorker";
+    private static final String ARCHIVE_WORK_NAME = "message_archive_work";
+
+    public static final String KEY_MAX_AGE_DAYS = "max_age_days";
+    public static final int DEFAULT_MAX_AGE_DAYS = 90;
+
+    public ArchiveWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * 每天最多执行一次；重复调用不会重复排队
+     */
+    public static void schedule(Context context, int maxAgeDays) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .build();
+
+        PeriodicWorkRequest archiveRequest = new PeriodicWorkRequest.Builder(
+                ArchiveWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .setInputData(new Data.Builder().putInt(KEY_MAX_AGE_DAYS, maxAgeDays).build())
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                ARCHIVE_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, archiveRequest);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        int maxAgeDays = getInputData().getInt(KEY_MAX_AGE_DAYS, DEFAULT_MAX_AGE_DAYS);
+        try {
+            MessageArchiver archiver = new MessageArchiver(AppDatabase.getDatabase(getApplicationContext()));
+            int archived = archiver.archiveOlderThan(TimeUnit.DAYS.toMillis(maxAgeDays));
+            int mediaDeleted = new LocalMediaStore(getApplicationContext()).collectGarbage();
+            archiver.incrementalVacuum();
+            Log.i(TAG, "Archived " + archived + " messages older than " + maxAgeDays + " days, deleted "
+                    + mediaDeleted + " unreferenced media files");
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Archive failed", e);
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.chatchat.service;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.chatchat.backup.BackupProgressListener;
+import com.chatchat.backup.ChatHistoryExporter;
+import com.chatchat.backup.ChatHistoryImporter;
+import com.chatchat.database.AppDatabase;
+import com.chatchat.utils.LocalMediaStore;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * 聊天记录导出/导入任务，目标文件由系统文件选择器提供的 Uri 指定（入口在 MainActivity 的菜单中）。
+ * 调用方需要先对 Uri 调用 takePersistableUriPermission，任务结束后在这里释放。
+ * 进度通过 WorkInfo 的 progress 发布（KEY_DONE / KEY_TOTAL）
+ */
+public class BackupWorker extends Worker {
+
+    private static final String TAG = "BackupWorker";
+    private static final String BACKUP_WORK_NAME = "chat_history_backup_work";
+    private static final long PROGRESS_INTERVAL_MS = 500;
+
+    public static final String KEY_DIRECTION = "direction";
+    public static final String KEY_URI = "uri";
+    public static final String KEY_DONE = "done";
+    public static final String KEY_TOTAL = "total";
+
+    private static final String DIRECTION_EXPORT = "export";
+    private static final String DIRECTION_IMPORT = "import";
+
+    private long lastProgressAt;
+
+    public BackupWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * 导出全部聊天记录到 uri，返回任务 id 以便观察进度
+     */
+    public static UUID exportTo(Context context, Uri uri) {
+        return enqueue(context, DIRECTION_EXPORT, uri);
+    }
+
+    /**
+     * 从 uri 导入聊天记录，返回任务 id 以便观察进度
+     */
+    public static UUID importFrom(Context context, Uri uri) {
+        return enqueue(context, DIRECTION_IMPORT, uri);
+    }
+
+    // Export and import share one unique queue so they never run against each other
+    private static UUID enqueue(Context context, String direction, Uri uri) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(BackupWorker.class)
+                .setInputData(new Data.Builder()
+                        .putString(KEY_DIRECTION, direction)
+                        .putString(KEY_URI, uri.toString())
+                        .build())
+                .build();
+        WorkManager.getInstance(context).beginUniqueWork(BACKUP_WORK_NAME,
+                ExistingWorkPolicy.APPEND_OR_REPLACE, request).enqueue();
+        return request.getId();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String direction = getInputData().getString(KEY_DIRECTION);
+        String uriString = getInputData().getString(KEY_URI);
+        if (direction == null || uriString == null) {
+            return Result.failure();
+        }
+        Uri uri = Uri.parse(uriString);
+        AppDatabase database = AppDatabase.getDatabase(getApplicationContext());
+        LocalMediaStore mediaStore = new LocalMediaStore(getApplicationContext());
+        BackupProgressListener listener = this::publishProgress;
+        try {
+            long records;
+            if (DIRECTION_EXPORT.equals(direction)) {
+                try (ParcelFileDescriptor fd = open(uri, "wt");
+                     FileOutputStream out = new FileOutputStream(fd.getFileDescriptor())) {
+                    records = new ChatHistoryExporter(database, mediaStore, listener).export(out.getChannel());
+                }
+            } else {
+                try (ParcelFileDescriptor fd = open(uri, "r");
+                     FileInputStream in = new FileInputStream(fd.getFileDescriptor())) {
+                    records = new ChatHistoryImporter(database, mediaStore, listener).importFrom(in.getChannel());
+                }
+            }
+            Log.i(TAG, "Chat history " + direction + " finished, " + records + " records");
+            return Result.success(new Data.Builder().putLong(KEY_DONE, records).putLong(KEY_TOTAL, records).build());
+        } catch (IOException | RuntimeException e) {
+            // A broken file will not get better by retrying
+            Log.e(TAG, "Chat history " + direction + " failed", e);
+            return Result.failure();
+        } finally {
+            releaseUriPermission(uri, DIRECTION_EXPORT.equals(direction)
+                    ? Intent.FLAG_GRANT_WRITE_URI_PERMISSION : Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        }
+    }
+
+    // The caller persisted this grant so the work could outlive its Activity; it is not needed any more
+    private void releaseUriPermission(Uri uri, int flags) {
+        try {
+            getApplicationContext().getContentResolver().releasePersistableUriPermission(uri, flags);
+        } catch (SecurityException e) {
+            // Never persisted
+        }
+    }
+
+    private ParcelFileDescriptor open(Uri uri, String mode) throws IOException {
+        ParcelFileDescriptor fd = getApplicationContext().getContentResolver().openFileDescriptor(uri, mode);
+        if (fd == null) {
+            throw new IOException("Cannot open " + uri);
+        }
+        return fd;
+    }
+
+    private void publishProgress(long done, long total) {
+        long now = SystemClock.elapsedRealtime();
+        if (now - lastProgressAt < PROGRESS_INTERVAL_MS) return;
+        lastProgressAt = now;
+        setProgressAsync(new Data.Builder().putLong(KEY_DONE, done).putLong(KEY_TOTAL, total).build());
+    }
+}
@@ -1,57 +1,56 @@
 package com.chatchat.service;
 
 import android.content.Context;
+import android.util.Log;
+import androidx.work.Data;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 import androidx.annotation.NonNull;
 import com.chatchat.database.AppDatabase;
-import com.chatchat.database.MessageDao;
-import com.chatchat.model.Message;
-import java.util.List;
+import com.chatchat.network.ApiClients;
+import com.chatchat.network.CloudSyncApi;
+import com.chatchat.sync.MessageUploader;
+import com.chatchat.sync.PullSyncer;
 
+/**
+ * 云端同步：先把未同步的消息批量上传，再按游标增量拉取其他设备写入的变更，失败时由 WorkManager 退避重试
+ * 已确认的上传批次和已应用的拉取页都立即提交，重试从中断的位置继续
+ */
 public class CloudSyncWorker extends Worker {
 
-    private AppDatabase database;
-    private MessageDao messageDao;
+    private static final String TAG = "CloudSyncWorker";
+
+    public static final String KEY_SYNCED = "synced";
+    public static final String KEY_PULLED = "pulled";
+
+    private final MessageUploader uploader;
+    private final PullSyncer puller; // null when no cloud endpoint is configured
 
     public CloudSyncWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
         super(context, workerParams);
-        database = AppDatabase.getDatabase(context);
-        messageDao = database.messageDao();
+        AppDatabase database = AppDatabase.getDatabase(context);
+        CloudSyncApi api = ApiClients.cloudSync(context);
+        uploader = new MessageUploader(database.messageDao(), api);
+        puller = api == null ? null : new PullSyncer(database, api);
     }
 
     @NonNull
     @Override
     public Result doWork() {
         try {
-            // Get unsynced messages
-            List<Message> unsyncedMessages = messageDao.getUnsyncedMessages();
-            
-            for (Message message : unsyncedMessages) {
-                // Simulate cloud sync
-                boolean synced = syncMessageToCloud(message);
-                if (synced) {
-                    messageDao.markMessageAsSynced(message.getMessageId());
-                }
+            int synced = uploader.uploadAll(this::isStopped);
+            int pulled = puller == null ? 0 : puller.pullAll(this::isStopped);
+            if (puller != null && puller.getSkipped() > 0) {
+                Log.w(TAG, "Skipped " + puller.getSkipped() + " malformed items while pulling");
             }
-            
-            return Result.success();
+            return Result.success(new Data.Builder()
+                    .putInt(KEY_SYNCED, synced)
+                    .putInt(KEY_PULLED, pulled)
+                    .build());
         } catch (Exception e) {
+            // Network, malformed responses and database errors alike: retry with backoff
+            Log.w(TAG, "Cloud sync failed, will retry", e);
             return Result.retry();
         }
     }
-
-    private boolean syncMessageToCloud(Message message) {
-        try {
-            // Simulate network call to cloud service
-            Thread.sleep(100); // Simulate network delay
-            
-            // In a real implementation, this would make an HTTP request
-            // to your cloud backend service
-            return true;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package com.chatchat.sync;
+
+import com.chatchat.database.MessageDao;
+import com.chatchat.model.Message;
+import com.chatchat.network.CloudSyncApi;
+import com.chatchat.network.MessagePayload;
+import com.chatchat.network.UploadBatch;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import retrofit2.Response;
+
+/**
+ * 未同步消息的批量上传
+ * 按 messageId 键集分块读取未同步消息，每块再按条数和估算的请求体大小切成批次，
+ * 每批一个 gzip 压缩的请求；服务端确认后把整批中撤回状态未变的消息标记为已同步。
+ * 内存中最多只有一块数据，与积压的消息总量无关
+ */
+public class MessageUploader {
+
+    static final int READ_CHUNK_SIZE = 500;
+    static final int MAX_BATCH_MESSAGES = 200;
+    static final int MAX_BATCH_BYTES = 256 * 1024;
+    // Field names, ids and JSON punctuation of one serialized message
+    private static final int MESSAGE_OVERHEAD_BYTES = 256;
+
+    private final MessageDao messageDao;
+    private final CloudSyncApi api;
+
+    /**
+     * api 为 null 时不上传，只在本地标记为已同步（未配置云端地址时的行为，归档依赖这个标记）
+     */
+    public MessageUploader(MessageDao messageDao, CloudSyncApi api) {
+        this.messageDao = messageDao;
+        this.api = api;
+    }
+
+    /**
+     * 上传全部未同步消息，返回标记为已同步的条数；stopped 返回 true 时在当前批次结束后停止。
+     * 请求失败时抛出 IOException，已确认的批次保持已同步
+     */
+    public int uploadAll(BooleanSupplier stopped) throws IOException {
+        int synced = 0;
+        long after = 0;
+        List<Message> chunk;
+        do {
+            chunk = messageDao.getUnsyncedMessagesAfter(after, READ_CHUNK_SIZE);
+            for (List<Message> batch : splitIntoBatches(chunk, MAX_BATCH_MESSAGES, MAX_BATCH_BYTES)) {
+                if (stopped.getAsBoolean()) return synced;
+                upload(batch);
+                synced += markSynced(batch, false) + markSynced(batch, true);
+            }
+            if (!chunk.isEmpty()) after = chunk.get(chunk.size() - 1).getMessageId();
+        } while (chunk.size() == READ_CHUNK_SIZE);
+        return synced;
+    }
+
+    private void upload(List<Message> batch) throws IOException {
+        if (api == null) return;
+        List<MessagePayload> payloads = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            payloads.add(MessagePayload.from(message));
+        }
+        Response<Void> response = api.uploadMessages(new UploadBatch(payloads)).execute();
+        if (!response.isSuccessful()) {
+            throw new IOException("Upload failed with HTTP " + response.code());
+        }
+    }
+
+    /**
+     * 按条数和估算大小切分；单条超过大小上限的消息单独成批
+     */
+    static List<List<Message>> splitIntoBatches(List<Message> messages, int maxMessages, int maxBytes) {
+        List<List<Message>> batches = new ArrayList<>();
+        List<Message> current = new ArrayList<>();
+        int currentBytes = 0;
+        for (Message message : messages) {
+            int bytes = estimateBytes(message);
+            if (!current.isEmpty() && (current.size() >= maxMessages || currentBytes + bytes > maxBytes)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(message);
+            currentBytes += bytes;
+        }
+        if (!current.isEmpty()) batches.add(current);
+        return batches;
+    }
+
+    // Estimated JSON size without serializing: 3 bytes per char covers UTF-8 encoded BMP text
+    static int estimateBytes(Message message) {
+        return MESSAGE_OVERHEAD_BYTES + 3 * (length(message.getContent()) + length(message.getMediaUrl())
+                + length(message.getMediaHash())
+                + length(message.getConversationId()) + length(message.getSenderId())
+                + length(message.getReceiverId()) + length(message.getGroupId()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    // Marks the messages uploaded with the given recall state, skipping the statement when there are none
+    private int markSynced(List<Message> batch, boolean recalled) {
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            if (message.isRecalled() == recalled) ids.add(message.getMessageId());
+        }
+        return ids.isEmpty() ? 0 : messageDao.markMessagesAsSynced(ids, recalled);
+    }
+}
@@ -0,0 +1,183 @@
+package com.chatchat.sync;
+
+import com.chatchat.database.AppDatabase;
+import com.chatchat.database.ChatGroupDao;
+import com.chatchat.database.MessageDao;
+import com.chatchat.database.SyncCursorDao;
+import com.chatchat.database.UserDao;
+import com.chatchat.model.ChatGroup;
+import com.chatchat.model.GroupMember;
+import com.chatchat.model.Message;
+import com.chatchat.model.SyncCursor;
+import com.chatchat.model.User;
+import com.chatchat.network.CloudSyncApi;
+import com.chatchat.network.GroupPayload;
+import com.chatchat.network.MessagePayload;
+import com.chatchat.network.SyncPage;
+import com.chatchat.network.UserPayload;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * 增量拉取同步
+ * 用户资料、群组和消息各是一个数据流，每个数据流在 sync_cursors 中保存服务端游标，只拉取游标之后的变更。
+ * 每页数据和新游标在同一个事务中写入，中断（网络失败、任务被停止、进程被杀）后从最后提交的页继续，
+ * 离线多久都只传输期间的增量。无法解析或缺少主键的条目被跳过并计入 getSkipped()，所在页照常提交
+ */
+public class PullSyncer {
+
+    public static final String STREAM_USERS = "users";
+    public static final String STREAM_GROUPS = "groups";
+    public static final String STREAM_MESSAGES = "messages";
+
+    static final int PAGE_SIZE = 500;
+
+    private final SyncCursorDao cursorDao;
+    private final UserDao userDao;
+    private final ChatGroupDao chatGroupDao;
+    private final MessageDao messageDao;
+    private final CloudSyncApi api;
+    private int skipped;
+
+    public PullSyncer(AppDatabase database, CloudSyncApi api) {
+        this(database.syncCursorDao(), database.userDao(), database.chatGroupDao(), database.messageDao(), api);
+    }
+
+    PullSyncer(SyncCursorDao cursorDao, UserDao userDao, ChatGroupDao chatGroupDao, MessageDao messageDao,
+               CloudSyncApi api) {
+        this.cursorDao = cursorDao;
+        this.userDao = userDao;
+        this.chatGroupDao = chatGroupDao;
+        this.messageDao = messageDao;
+        this.api = api;
+    }
+
+    /**
+     * 依次拉取全部数据流，返回应用的变更条数；资料和群组先于消息，新消息的会话能立即显示名称
+     */
+    public int pullAll(BooleanSupplier stopped) throws IOException {
+        skipped = 0;
+        int applied = pull(STREAM_USERS, api::pullUsers, this::applyUsers, stopped);
+        applied += pull(STREAM_GROUPS, api::pullGroups, this::applyGroups, stopped);
+        applied += pull(STREAM_MESSAGES, api::pullMessages, this::applyMessages, stopped);
+        return applied;
+    }
+
+    /**
+     * 上一次 pullAll 中被跳过的条目数
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    private interface PageFetcher<T> {
+        Call<SyncPage<T>> fetch(String cursor, int limit);
+    }
+
+    private interface PageApplier<T> {
+        // Returns how many of the items were applied
+        int apply(List<T> items, SyncCursor cursor);
+    }
+
+    private <T> int pull(String stream, PageFetcher<T> fetcher, PageApplier<T> applier, BooleanSupplier stopped)
+            throws IOException {
+        SyncCursor saved = cursorDao.getCursor(stream);
+        String cursor = saved == null ? null : saved.getCursor();
+        int applied = 0;
+        while (!stopped.getAsBoolean()) {
+            Response<SyncPage<T>> response;
+            try {
+                response = fetcher.fetch(cursor, PAGE_SIZE).execute();
+            } catch (JsonParseException e) {
+                // The page itself is malformed, there is no cursor to move past it
+                throw new IOException("Pull of " + stream + " returned a malformed page", e);
+            }
+            SyncPage<T> page = response.body();
+            if (!response.isSuccessful() || page == null) {
+                throw new IOException("Pull of " + stream + " failed with HTTP " + response.code());
+            }
+            List<T> items = page.items == null ? Collections.emptyList() : page.items;
+            skipped += page.skipped;
+            String next = page.nextCursor == null ? cursor : page.nextCursor;
+            if (!items.isEmpty() || next != null && !next.equals(cursor)) {
+                applied += applier.apply(items, new SyncCursor(stream, next));
+            }
+            if (!page.hasMore) break;
+            if (next == null || next.equals(cursor)) {
+                // Asking again with the same cursor would return the same page forever
+                throw new IOException("Pull of " + stream + " did not advance its cursor");
+            }
+            cursor = next;
+        }
+        return applied;
+    }
+
+    private int applyUsers(List<UserPayload> items, SyncCursor cursor) {
+        List<User> users = new ArrayList<>(items.size());
+        for (UserPayload item : items) {
+            User user = convert(() -> item.toUser());
+            if (user != null && user.getTravelerId() != null) {
+                users.add(user);
+            } else {
+                skipped++;
+            }
+        }
+        userDao.applyPulledProfiles(users, cursor);
+        return users.size();
+    }
+
+    private int applyGroups(List<GroupPayload> items, SyncCursor cursor) {
+        List<ChatGroup> groups = new ArrayList<>(items.size());
+        List<GroupMember> members = new ArrayList<>();
+        for (GroupPayload item : items) {
+            ChatGroup group = convert(() -> item.toGroup());
+            List<GroupMember> groupMembers = convert(() -> item.toMembers());
+            if (group != null && group.getGroupId() != null && groupMembers != null && hasUserIds(groupMembers)) {
+                groups.add(group);
+                members.addAll(groupMembers);
+            } else {
+                skipped++;
+            }
+        }
+        chatGroupDao.applyPulledGroups(groups, members, cursor);
+        return groups.size();
+    }
+
+    private int applyMessages(List<MessagePayload> items, SyncCursor cursor) {
+        List<Message> messages = new ArrayList<>(items.size());
+        for (MessagePayload item : items) {
+            Message message = convert(() -> item.toMessage());
+            // Without a conversation the row could not be listed or previewed, without a client key not deduplicated
+            if (message != null && message.getConversationId() != null && message.getClientKey() != 0) {
+                messages.add(message);
+            } else {
+                skipped++;
+            }
+        }
+        messageDao.applyPulledMessages(messages, cursor);
+        return messages.size();
+    }
+
+    // One bad item must not keep the rest of its page (and every later page) from being committed
+    private static <R> R convert(Supplier<R> conversion) {
+        try {
+            return conversion.get();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean hasUserIds(List<GroupMember> members) {
+        for (GroupMember member : members) {
+            if (member.getUserId() == null) return false;
+        }
+        return true;
+    }
+}
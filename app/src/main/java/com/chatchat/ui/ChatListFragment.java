@@ -12,19 +12,16 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.chatchat.R;
 import com.chatchat.database.AppDatabase;
-import com.chatchat.database.MessageDao;
-import com.chatchat.database.UserDao;
-import com.chatchat.database.ChatGroupDao;
+import com.chatchat.database.ConversationDao;
+import com.chatchat.model.ConversationSummary;
 import com.chatchat.model.Message;
-import com.chatchat.model.User;
-import com.chatchat.model.ChatGroup;
+import com.chatchat.repository.ConversationRepository;
 import com.chatchat.ui.adapter.ChatListAdapter;
 import com.chatchat.ui.chat.GroupChatActivity;
 import com.chatchat.utils.GpuOptimizationManager;
+import com.chatchat.utils.TaskDispatcher;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class ChatListFragment extends Fragment {
 
@@ -32,10 +29,18 @@ public class ChatListFragment extends Fragment {
     private TextView textViewEmptyState;
     private ChatListAdapter chatListAdapter;
     private AppDatabase database;
-    private MessageDao messageDao;
-    private UserDao userDao;
-    private ChatGroupDao chatGroupDao;
-    private ExecutorService executor;
+    private ConversationDao conversationDao;
+    private ConversationRepository repository;
+    private String currentUserId;
+
+    private static final int PAGE_SIZE = 50;
+    private static final String AI_USER_ID = "ai_assistant";
+
+    // Only touched on the UI thread
+    private ConversationSummary lastLoaded;
+    private boolean loadingMore;
+    private boolean hasMore;
+    private int generation;
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
@@ -44,11 +49,17 @@ public class ChatListFragment extends Fragment {
         initViews(root);
         initDatabase();
         setupRecyclerView();
-        loadChats();
 
         return root;
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        // Previews and unread counts change while a chat screen is open
+        loadChats();
+    }
+
     private void initViews(View root) {
         recyclerViewChats = root.findViewById(R.id.recyclerViewChats);
         textViewEmptyState = root.findViewById(R.id.textViewEmptyState);
@@ -56,17 +67,26 @@ public class ChatListFragment extends Fragment {
 
     private void initDatabase() {
         database = AppDatabase.getDatabase(requireContext());
-        messageDao = database.messageDao();
-        userDao = database.userDao();
-        chatGroupDao = database.chatGroupDao();
-        executor = Executors.newSingleThreadExecutor();
+        conversationDao = database.conversationDao();
+        repository = ConversationRepository.getInstance(requireContext());
+        currentUserId = requireActivity().getSharedPreferences("ChatChatPrefs", 0)
+                .getString("current_user_id", "");
     }
 
     private void setupRecyclerView() {
         chatListAdapter = new ChatListAdapter(new ArrayList<>());
         chatListAdapter.setOnChatItemClickListener(this::openChat);
-        recyclerViewChats.setLayoutManager(new LinearLayoutManager(getContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        recyclerViewChats.setLayoutManager(layoutManager);
         recyclerViewChats.setAdapter(chatListAdapter);
+        recyclerViewChats.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= chatListAdapter.getItemCount() - 10) {
+                    loadMoreChats();
+                }
+            }
+        });
         
         // 为RecyclerView启用GPU优化
         GpuOptimizationManager.optimizeRecyclerViewForGpu(recyclerViewChats);
@@ -87,70 +107,111 @@ public class ChatListFragment extends Fragment {
         startActivity(intent);
     }
 
+    /**
+     * 重新加载聊天列表第一页：AI助手固定在最前，其余会话来自 conversations 表的一条分页查询
+     * 第一页由 ConversationRepository 缓存，会话没有变化时返回列表不需要再查询数据库
+     */
     private void loadChats() {
-        executor.execute(() -> {
-            // For now, load some demo data including AI chat
-            List<ChatItem> chatItems = new ArrayList<>();
-            
-            // Add AI Assistant as the first chat
-            ChatItem aiChat = new ChatItem();
-            aiChat.setName("AI助手");
+        int requestGeneration = ++generation;
+        String aiConversationId = Message.directConversationId(currentUserId, AI_USER_ID);
+        ConversationRepository.FirstPage cached = repository.peekFirstPage(currentUserId, aiConversationId);
+        if (cached != null) {
+            loadingMore = false;
+            showFirstPage(cached);
+            return;
+        }
+        loadingMore = true;
+        TaskDispatcher.getInstance().execute(TaskDispatcher.Lane.DB_READ, getViewLifecycleOwner(), () -> {
+            ConversationRepository.FirstPage firstPage = repository.loadFirstPage(
+                    currentUserId, aiConversationId, PAGE_SIZE);
+
+            if (getActivity() == null) return;
+            requireActivity().runOnUiThread(() -> {
+                if (requestGeneration != generation) return;
+                loadingMore = false;
+                showFirstPage(firstPage);
+            });
+        });
+    }
+
+    private void showFirstPage(ConversationRepository.FirstPage firstPage) {
+        List<ChatItem> chatItems = new ArrayList<>();
+
+        ConversationSummary aiSummary = firstPage.getPinned();
+        ChatItem aiChat = new ChatItem();
+        aiChat.setName("AI助手");
+        aiChat.setUserId(AI_USER_ID);
+        aiChat.setIsAiChat(true);
+        if (aiSummary != null && aiSummary.getLastMessagePreview() != null) {
+            aiChat.setLastMessage(aiSummary.getLastMessagePreview());
+            aiChat.setTimestamp(aiSummary.getLastMessageTime());
+            aiChat.setUnreadCount(aiSummary.getUnreadCount());
+        } else {
             aiChat.setLastMessage("我是您的智能助手，有什么可以帮助您的吗？");
             aiChat.setTimestamp(System.currentTimeMillis());
-            aiChat.setUnreadCount(0);
-            aiChat.setIsAiChat(true);
-            chatItems.add(aiChat);
-
-            // Load group chats
-            List<ChatGroup> groups = chatGroupDao.getAllChatGroups();
-            for (ChatGroup group : groups) {
-                ChatItem chatItem = new ChatItem();
-                chatItem.setName(group.getGroupName());
-                chatItem.setGroupId(group.getGroupId());
-                chatItem.setLastMessage("群聊消息");
-                chatItem.setTimestamp(group.getLastMessageTime());
-                chatItem.setUnreadCount(group.getUnreadCount());
-                chatItem.setIsGroupChat(true);
-                chatItems.add(chatItem);
-            }
+        }
+        chatItems.add(aiChat);
 
-            // Load actual user chats would go here
-            List<User> users = userDao.getAllUsers();
-            for (User user : users) {
-                // Skip current user
-                String currentUserId = requireActivity().getSharedPreferences("ChatChatPrefs", 0)
-                    .getString("current_user_id", "");
-                if (!user.getTravelerId().equals(currentUserId)) {
-                    ChatItem chatItem = new ChatItem();
-                    chatItem.setName(user.getUsername());
-                    chatItem.setUserId(user.getTravelerId());
-                    chatItem.setLastMessage("点击开始对话");
-                    chatItem.setTimestamp(user.getLastSeen());
-                    chatItem.setUnreadCount(0);
-                    chatItem.setIsOnline(user.isOnline());
-                    chatItems.add(chatItem);
-                }
+        List<ConversationSummary> page = firstPage.getSummaries();
+        for (ConversationSummary summary : page) {
+            chatItems.add(toChatItem(summary));
+        }
+
+        hasMore = page.size() == PAGE_SIZE;
+        lastLoaded = page.isEmpty() ? null : page.get(page.size() - 1);
+        if (chatItems.isEmpty()) {
+            textViewEmptyState.setVisibility(View.VISIBLE);
+            recyclerViewChats.setVisibility(View.GONE);
+        } else {
+            textViewEmptyState.setVisibility(View.GONE);
+            recyclerViewChats.setVisibility(View.VISIBLE);
+            chatListAdapter.updateChats(chatItems);
+        }
+    }
+
+    private void loadMoreChats() {
+        if (loadingMore || !hasMore || lastLoaded == null) return;
+        int requestGeneration = generation;
+        ConversationSummary anchor = lastLoaded;
+        loadingMore = true;
+        TaskDispatcher.getInstance().execute(TaskDispatcher.Lane.DB_READ, getViewLifecycleOwner(), () -> {
+            String aiConversationId = Message.directConversationId(currentUserId, AI_USER_ID);
+            List<ConversationSummary> page = conversationDao.getConversationSummaries(currentUserId, aiConversationId,
+                    anchor.getLastMessageTime(), anchor.getConversationId(), PAGE_SIZE);
+            List<ChatItem> chatItems = new ArrayList<>();
+            for (ConversationSummary summary : page) {
+                chatItems.add(toChatItem(summary));
             }
 
+            if (getActivity() == null) return;
             requireActivity().runOnUiThread(() -> {
-                if (chatItems.isEmpty()) {
-                    textViewEmptyState.setVisibility(View.VISIBLE);
-                    recyclerViewChats.setVisibility(View.GONE);
-                } else {
-                    textViewEmptyState.setVisibility(View.GONE);
-                    recyclerViewChats.setVisibility(View.VISIBLE);
-                    chatListAdapter.updateChats(chatItems);
+                if (requestGeneration != generation) return;
+                loadingMore = false;
+                hasMore = page.size() == PAGE_SIZE;
+                if (!page.isEmpty()) {
+                    lastLoaded = page.get(page.size() - 1);
+                    chatListAdapter.appendChats(chatItems);
                 }
             });
         });
     }
 
-    @Override
-    public void onDestroyView() {
-        super.onDestroyView();
-        if (executor != null) {
-            executor.shutdown();
+    private ChatItem toChatItem(ConversationSummary summary) {
+        ChatItem chatItem = new ChatItem();
+        chatItem.setLastMessage(summary.getLastMessagePreview() != null ? summary.getLastMessagePreview() : "");
+        chatItem.setTimestamp(summary.getLastMessageTime());
+        chatItem.setUnreadCount(summary.getUnreadCount());
+        if (summary.getGroupId() != null) {
+            chatItem.setName(summary.getTitle());
+            chatItem.setGroupId(summary.getGroupId());
+            chatItem.setIsGroupChat(true);
+        } else {
+            // The peer may not be in the local users table yet
+            chatItem.setName(summary.getTitle() != null ? summary.getTitle() : summary.getPeerId());
+            chatItem.setUserId(summary.getPeerId());
+            chatItem.setIsOnline(summary.isPeerOnline());
         }
+        return chatItem;
     }
 
     // Helper class for chat list items
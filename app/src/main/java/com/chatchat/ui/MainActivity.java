@@ -3,6 +3,7 @@ package com.chatchat.ui;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.View;
 import android.view.Menu;
@@ -23,6 +24,8 @@ import androidx.drawerlayout.widget.DrawerLayout;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.fragment.app.FragmentContainerView;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 import com.chatchat.R;
 import com.chatchat.auth.JwtUtils;
 import com.chatchat.ui.auth.LoginActivity;
@@ -30,20 +33,25 @@ import com.chatchat.ui.settings.SettingsActivity;
 import com.chatchat.database.AppDatabase;
 import com.chatchat.database.ChatGroupDao;
 import com.chatchat.model.ChatGroup;
+import com.chatchat.model.GroupMember;
+import com.chatchat.service.ArchiveWorker;
+import com.chatchat.service.BackupWorker;
 import com.chatchat.service.CloudSyncManager;
 import com.chatchat.utils.GpuOptimizationManager;
 import com.chatchat.utils.PermissionManager;
+import com.chatchat.utils.TaskDispatcher;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final int REQUEST_EXPORT_HISTORY = 2001;
+    private static final int REQUEST_IMPORT_HISTORY = 2002;
+    private static final String BACKUP_MIME_TYPE = "application/octet-stream";
+
     private AppBarConfiguration mAppBarConfiguration;
     private SharedPreferences sharedPreferences;
-    private ExecutorService executor;
     private CloudSyncManager cloudSyncManager;
 
     @Override
@@ -139,6 +147,7 @@ public class MainActivity extends AppCompatActivity {
         // Initialize cloud sync
         cloudSyncManager = new CloudSyncManager(this);
         cloudSyncManager.startPeriodicSync();
+        ArchiveWorker.schedule(this, ArchiveWorker.DEFAULT_MAX_AGE_DAYS);
     }
 
     private boolean isUserLoggedIn() {
@@ -211,6 +220,23 @@ public class MainActivity extends AppCompatActivity {
             Intent intent = new Intent(this, com.chatchat.ui.search.UserSearchActivity.class);
             startActivity(intent);
             return true;
+        } else if (id == R.id.action_search_messages) {
+            Intent intent = new Intent(this, com.chatchat.ui.search.MessageSearchActivity.class);
+            startActivity(intent);
+            return true;
+        } else if (id == R.id.action_export_history) {
+            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType(BACKUP_MIME_TYPE);
+            intent.putExtra(Intent.EXTRA_TITLE, "chatchat_history.ccbp");
+            startActivityForResult(intent, REQUEST_EXPORT_HISTORY);
+            return true;
+        } else if (id == R.id.action_import_history) {
+            Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("*/*");
+            startActivityForResult(intent, REQUEST_IMPORT_HISTORY);
+            return true;
         } else if (id == R.id.action_settings) {
             Intent intent = new Intent(this, SettingsActivity.class);
             startActivity(intent);
@@ -220,6 +246,44 @@ public class MainActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode != RESULT_OK || data == null || data.getData() == null) return;
+
+        Uri uri = data.getData();
+        if (requestCode == REQUEST_EXPORT_HISTORY) {
+            keepUriPermission(uri, Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+            observeBackup(BackupWorker.exportTo(this, uri), "导出");
+        } else if (requestCode == REQUEST_IMPORT_HISTORY) {
+            keepUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            observeBackup(BackupWorker.importFrom(this, uri), "导入");
+        }
+    }
+
+    /**
+     * 备份任务可能在页面关闭甚至进程重启后才执行，需要持久化对文件的访问权限；任务结束后由 BackupWorker 释放
+     */
+    private void keepUriPermission(Uri uri, int flags) {
+        try {
+            getContentResolver().takePersistableUriPermission(uri, flags);
+        } catch (SecurityException e) {
+            // Provider does not offer persistable grants; the worker can still open it while this process lives
+        }
+    }
+
+    private void observeBackup(UUID workId, String action) {
+        Toast.makeText(this, "正在" + action + "聊天记录", Toast.LENGTH_SHORT).show();
+        WorkManager.getInstance(this).getWorkInfoByIdLiveData(workId).observe(this, info -> {
+            if (info == null || !info.getState().isFinished()) return;
+            long records = info.getOutputData().getLong(BackupWorker.KEY_DONE, 0);
+            String text = info.getState() == WorkInfo.State.SUCCEEDED
+                    ? "聊天记录" + action + "完成，共 " + records + " 条记录"
+                    : "聊天记录" + action + "失败";
+            Toast.makeText(this, text, Toast.LENGTH_LONG).show();
+        });
+    }
+
     @Override
     public boolean onSupportNavigateUp() {
         NavHostFragment navHostFragment = (NavHostFragment) getSupportFragmentManager()
@@ -230,11 +294,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void createDemoGroupChat() {
-        if (executor == null) {
-            executor = Executors.newSingleThreadExecutor();
-        }
-        
-        executor.execute(() -> {
+        TaskDispatcher.getInstance().execute(TaskDispatcher.Lane.DB_WRITE, () -> {
             AppDatabase database = AppDatabase.getDatabase(this);
             ChatGroupDao chatGroupDao = database.chatGroupDao();
             
@@ -248,19 +308,17 @@ public class MainActivity extends AppCompatActivity {
             );
             
             demoGroup.setDescription("这是一个演示群聊");
-            demoGroup.setMemberIds(Arrays.asList(currentUserId, "ai_assistant", "demo_user"));
-            demoGroup.setAdminIds(Arrays.asList(currentUserId));
-            
-            chatGroupDao.insertChatGroup(demoGroup);
+            String groupId = demoGroup.getGroupId();
+            chatGroupDao.createChatGroup(demoGroup, Arrays.asList(
+                    new GroupMember(groupId, currentUserId, GroupMember.Role.OWNER),
+                    new GroupMember(groupId, "ai_assistant", GroupMember.Role.MEMBER),
+                    new GroupMember(groupId, "demo_user", GroupMember.Role.MEMBER)));
         });
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (executor != null) {
-            executor.shutdown();
-        }
         if (cloudSyncManager != null) {
             cloudSyncManager.stopPeriodicSync();
         }
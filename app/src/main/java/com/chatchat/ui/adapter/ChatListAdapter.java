@@ -36,6 +36,12 @@ public class ChatListAdapter extends RecyclerView.Adapter<ChatListAdapter.ChatVi
         notifyDataSetChanged();
     }
 
+    public void appendChats(List<ChatItem> moreChatItems) {
+        int start = chatItems.size();
+        chatItems.addAll(moreChatItems);
+        notifyItemRangeInserted(start, moreChatItems.size());
+    }
+
     @NonNull
     @Override
     public ChatViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -3,25 +3,49 @@ package com.chatchat.ui.adapter;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
+import com.bumptech.glide.Glide;
 import com.chatchat.R;
 import com.chatchat.model.Message;
 import com.chatchat.utils.GpuOptimizationManager;
+import com.chatchat.utils.LocalMediaStore;
 import io.noties.markwon.Markwon;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     private static final int TYPE_MESSAGE_SENT = 1;
     private static final int TYPE_MESSAGE_RECEIVED = 2;
 
-    private List<Message> messages;
+    private static final DiffUtil.ItemCallback<Message> DIFF_CALLBACK = new DiffUtil.ItemCallback<Message>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Message oldItem, @NonNull Message newItem) {
+            return oldItem.getMessageId() == newItem.getMessageId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Message oldItem, @NonNull Message newItem) {
+            return oldItem.isRecalled() == newItem.isRecalled()
+                    && oldItem.isRead() == newItem.isRead()
+                    && oldItem.getTimestamp() == newItem.getTimestamp()
+                    && oldItem.getType() == newItem.getType()
+                    && Objects.equals(oldItem.getContent(), newItem.getContent())
+                    && Objects.equals(oldItem.getMediaUrl(), newItem.getMediaUrl())
+                    && Objects.equals(oldItem.getMediaHash(), newItem.getMediaHash());
+        }
+    };
+
+    private final AsyncListDiffer<Message> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private String currentUserId;
     private OnMessageActionListener messageActionListener;
 
@@ -29,8 +53,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         void onMessageRecall(Message message);
     }
 
-    public MessageAdapter(List<Message> messages, String currentUserId) {
-        this.messages = messages;
+    public MessageAdapter(String currentUserId) {
         this.currentUserId = currentUserId;
     }
 
@@ -38,19 +61,24 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         this.messageActionListener = listener;
     }
 
-    public void updateMessages(List<Message> newMessages) {
-        this.messages = newMessages;
-        notifyDataSetChanged();
+    /**
+     * 提交新的消息列表；差异在后台线程计算，只有变化的条目会被重新绑定
+     */
+    public void submitMessages(List<Message> newMessages, Runnable commitCallback) {
+        differ.submitList(newMessages, commitCallback);
+    }
+
+    public List<Message> getCurrentMessages() {
+        return differ.getCurrentList();
     }
 
-    public void addMessage(Message message) {
-        messages.add(message);
-        notifyItemInserted(messages.size() - 1);
+    public Message getMessage(int position) {
+        return differ.getCurrentList().get(position);
     }
 
     @Override
     public int getItemViewType(int position) {
-        Message message = messages.get(position);
+        Message message = getMessage(position);
         return message.getSenderId().equals(currentUserId) ? TYPE_MESSAGE_SENT : TYPE_MESSAGE_RECEIVED;
     }
 
@@ -73,7 +101,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        Message message = messages.get(position);
+        Message message = getMessage(position);
         
         if (holder instanceof SentMessageViewHolder) {
             ((SentMessageViewHolder) holder).bind(message);
@@ -84,7 +112,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
 
     @Override
     public int getItemCount() {
-        return messages.size();
+        return differ.getCurrentList().size();
     }
 
     private static void displayMessageContent(Message message, TextView textView) {
@@ -117,6 +145,20 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         }
     }
 
+    // Only the pre-generated thumbnail is decoded here, never the original attachment
+    private static void displayMessageMedia(Message message, ImageView imageView) {
+        if (message.getType() == Message.MessageType.IMAGE && !message.isRecalled()
+                && message.getMediaHash() != null) {
+            imageView.setVisibility(View.VISIBLE);
+            Glide.with(imageView)
+                    .load(LocalMediaStore.getThumbnailFile(imageView.getContext(), message.getMediaHash()))
+                    .into(imageView);
+        } else {
+            Glide.with(imageView).clear(imageView);
+            imageView.setVisibility(View.GONE);
+        }
+    }
+
     private void showMessageOptions(Message message, View view) {
         // Only allow recall for sent messages that are less than 2 minutes old
         long currentTime = System.currentTimeMillis();
@@ -138,6 +180,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     }
 
     static class SentMessageViewHolder extends RecyclerView.ViewHolder {
+        private ImageView imageViewMedia;
         private TextView textViewMessage;
         private TextView textViewTime;
         private TextView textViewStatus;
@@ -146,12 +189,14 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         public SentMessageViewHolder(@NonNull View itemView, MessageAdapter adapter) {
             super(itemView);
             this.adapter = adapter;
+            imageViewMedia = itemView.findViewById(R.id.imageViewMedia);
             textViewMessage = itemView.findViewById(R.id.textViewMessage);
             textViewTime = itemView.findViewById(R.id.textViewTime);
             textViewStatus = itemView.findViewById(R.id.textViewStatus);
         }
 
         public void bind(Message message) {
+            displayMessageMedia(message, imageViewMedia);
             if (message.isRecalled()) {
                 textViewMessage.setText("消息已撤回");
                 textViewMessage.setTextColor(itemView.getContext().getColor(R.color.dark_gray));
@@ -176,18 +221,21 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     }
 
     static class ReceivedMessageViewHolder extends RecyclerView.ViewHolder {
+        private ImageView imageViewMedia;
         private TextView textViewMessage;
         private TextView textViewTime;
         private TextView textViewSender;
 
         public ReceivedMessageViewHolder(@NonNull View itemView) {
             super(itemView);
+            imageViewMedia = itemView.findViewById(R.id.imageViewMedia);
             textViewMessage = itemView.findViewById(R.id.textViewMessage);
             textViewTime = itemView.findViewById(R.id.textViewTime);
             textViewSender = itemView.findViewById(R.id.textViewSender);
         }
 
         public void bind(Message message) {
+            displayMessageMedia(message, imageViewMedia);
             if (message.isRecalled()) {
                 textViewMessage.setText("消息已撤回");
                 textViewMessage.setTextColor(itemView.getContext().getColor(R.color.dark_gray));
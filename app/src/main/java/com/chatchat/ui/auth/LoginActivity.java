@@ -14,11 +14,10 @@ import com.chatchat.database.UserDao;
 import com.chatchat.model.User;
 import com.chatchat.ui.MainActivity;
 import com.chatchat.utils.CryptoUtils;
+import com.chatchat.utils.TaskDispatcher;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 import android.widget.ProgressBar;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class LoginActivity extends AppCompatActivity {
     private TextInputEditText editTextTravelerId;
@@ -28,7 +27,6 @@ public class LoginActivity extends AppCompatActivity {
     
     private AppDatabase database;
     private UserDao userDao;
-    private ExecutorService executor;
     private SharedPreferences sharedPreferences;
 
     @Override
@@ -52,7 +50,6 @@ public class LoginActivity extends AppCompatActivity {
     private void initDatabase() {
         database = AppDatabase.getDatabase(this);
         userDao = database.userDao();
-        executor = Executors.newSingleThreadExecutor();
         sharedPreferences = getSharedPreferences("ChatChatPrefs", MODE_PRIVATE);
     }
 
@@ -90,7 +87,8 @@ public class LoginActivity extends AppCompatActivity {
 
         showLoading(true);
 
-        executor.execute(() -> {
+        // Password hashing dominates, so this goes to the CPU lane rather than a database lane
+        TaskDispatcher.getInstance().execute(TaskDispatcher.Lane.CPU, this, () -> {
             try {
                 User existingUser = userDao.getUserById(travelerId);
                 
@@ -173,12 +171,4 @@ public class LoginActivity extends AppCompatActivity {
         startActivity(intent);
         finish();
     }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (executor != null) {
-            executor.shutdown();
-        }
-    }
 }
\ No newline at end of file
@@ -2,8 +2,11 @@ package com.chatchat.ui.chat;
 
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.ImageButton;
@@ -13,6 +16,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import android.provider.MediaStore;
@@ -22,15 +26,15 @@ import androidx.core.content.ContextCompat;
 import android.Manifest;
 import com.chatchat.R;
 import com.chatchat.database.AppDatabase;
-import com.chatchat.database.MessageDao;
+import com.chatchat.database.ReadStateDao;
 import com.chatchat.model.Message;
+import com.chatchat.model.User;
+import com.chatchat.repository.ConversationRepository;
 import com.chatchat.ui.adapter.MessageAdapter;
+import com.chatchat.ui.search.MessageSearchActivity;
 import com.chatchat.utils.GpuOptimizationManager;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import com.chatchat.utils.MessageIdGenerator;
+import com.chatchat.utils.TaskDispatcher;
 
 public class ChatActivity extends AppCompatActivity {
     
@@ -53,14 +57,16 @@ public class ChatActivity extends AppCompatActivity {
     private ImageButton buttonVoice;
     
     private MessageAdapter messageAdapter;
+    private MessagePager messagePager;
     private AppDatabase database;
-    private MessageDao messageDao;
-    private ExecutorService executor;
+    private ChatViewModel viewModel;
+    private MessageIdGenerator messageIdGenerator;
     private SharedPreferences sharedPreferences;
     
     private String chatName;
     private String chatUserId;
     private boolean isAiChat;
+    private String conversationId;
     private String currentUserId;
 
     @Override
@@ -78,7 +84,6 @@ public class ChatActivity extends AppCompatActivity {
         setupToolbar();
         setupRecyclerView();
         setupClickListeners();
-        loadMessages();
     }
 
     private void getIntentData() {
@@ -105,8 +110,8 @@ public class ChatActivity extends AppCompatActivity {
 
     private void initDatabase() {
         database = AppDatabase.getDatabase(this);
-        messageDao = database.messageDao();
-        executor = Executors.newSingleThreadExecutor();
+        viewModel = new ViewModelProvider(this).get(ChatViewModel.class);
+        messageIdGenerator = MessageIdGenerator.getInstance(this);
         sharedPreferences = getSharedPreferences("ChatChatPrefs", MODE_PRIVATE);
         currentUserId = sharedPreferences.getString("current_user_id", "unknown");
     }
@@ -120,15 +125,31 @@ public class ChatActivity extends AppCompatActivity {
         
         textViewChatName.setText(chatName);
         textViewChatStatus.setText(isAiChat ? "AI助手" : "在线");
+        if (!isAiChat) {
+            loadPeerStatus();
+        }
+    }
+
+    private void loadPeerStatus() {
+        TaskDispatcher.getInstance().execute(TaskDispatcher.Lane.DB_READ, this, () -> {
+            User peer = ConversationRepository.getInstance(this).getUser(chatUserId);
+            if (peer == null) return;
+            runOnUiThread(() -> textViewChatStatus.setText(peer.isOnline() ? "在线" : "离线"));
+        });
     }
 
     private void setupRecyclerView() {
-        messageAdapter = new MessageAdapter(new ArrayList<>(), currentUserId);
+        messageAdapter = new MessageAdapter(currentUserId);
         messageAdapter.setOnMessageActionListener(this::recallMessage);
         LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         layoutManager.setStackFromEnd(true);
         recyclerViewMessages.setLayoutManager(layoutManager);
         recyclerViewMessages.setAdapter(messageAdapter);
+
+        String peerId = isAiChat ? "ai_assistant" : chatUserId;
+        conversationId = Message.directConversationId(currentUserId, peerId);
+        viewModel.init(conversationId, peerId);
+        messagePager = new MessagePager(this, recyclerViewMessages, messageAdapter, viewModel);
         
         // 为消息RecyclerView启用GPU优化
         GpuOptimizationManager.optimizeRecyclerViewForGpu(recyclerViewMessages);
@@ -152,22 +173,21 @@ public class ChatActivity extends AppCompatActivity {
         });
     }
 
-    private void loadMessages() {
-        executor.execute(() -> {
-            List<Message> messages;
-            if (isAiChat) {
-                messages = messageDao.getAiMessages(currentUserId);
-            } else {
-                messages = messageDao.getDirectMessages(currentUserId, chatUserId);
-            }
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.chat, menu);
+        return true;
+    }
 
-            runOnUiThread(() -> {
-                messageAdapter.updateMessages(messages);
-                if (!messages.isEmpty()) {
-                    recyclerViewMessages.scrollToPosition(messages.size() - 1);
-                }
-            });
-        });
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_search_messages) {
+            Intent intent = new Intent(this, MessageSearchActivity.class);
+            intent.putExtra(MessageSearchActivity.EXTRA_CONVERSATION_ID, conversationId);
+            startActivity(intent);
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
     }
 
     private void sendMessage() {
@@ -180,7 +200,7 @@ public class ChatActivity extends AppCompatActivity {
         
         // Create and save user message
         Message userMessage = new Message(
-            UUID.randomUUID().toString(),
+            messageIdGenerator.nextId(),
             currentUserId,
             messageText,
             Message.MessageType.TEXT
@@ -193,66 +213,27 @@ public class ChatActivity extends AppCompatActivity {
             userMessage.setReceiverId(chatUserId);
         }
 
-        executor.execute(() -> {
-            messageDao.insertMessage(userMessage);
-            
-            runOnUiThread(() -> {
-                messageAdapter.addMessage(userMessage);
-                recyclerViewMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
-            });
-
-            // Handle AI response
-            if (isAiChat) {
-                handleAiResponse(messageText);
-            }
-        });
-    }
+        if (!isAiChat) {
+            viewModel.send(userMessage, null);
+            return;
+        }
 
-    private void handleAiResponse(String userMessage) {
-        // Simple AI response logic
-        String aiResponse = generateAiResponse(userMessage);
-        
+        // Capture only what the task needs so it does not hold on to the activity
+        ReadStateDao readStateDao = database.readStateDao();
+        String conversation = conversationId;
+        long userMessageId = userMessage.getMessageId();
+        viewModel.send(userMessage, () -> readStateDao.markReadUpTo("ai_assistant", conversation, userMessageId));
+
+        // The reply id is taken now so the streaming draft and the stored reply are the same row
         Message aiMessage = new Message(
-            UUID.randomUUID().toString(),
+            messageIdGenerator.nextId(),
             "ai_assistant",
-            aiResponse,
+            "",
             Message.MessageType.TEXT
         );
         aiMessage.setReceiverId(currentUserId);
         aiMessage.setAiMessage(true);
-
-        // Simulate a small delay for AI response
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        messageDao.insertMessage(aiMessage);
-        
-        runOnUiThread(() -> {
-            messageAdapter.addMessage(aiMessage);
-            recyclerViewMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
-        });
-    }
-
-    private String generateAiResponse(String userMessage) {
-        // Simple AI response generator
-        String lowerMessage = userMessage.toLowerCase();
-        
-        if (lowerMessage.contains("你好") || lowerMessage.contains("hello")) {
-            return "你好！我是AI助手，很高兴为您服务！有什么可以帮助您的吗？";
-        } else if (lowerMessage.contains("天气")) {
-            return "抱歉，我目前无法获取实时天气信息。建议您查看天气应用获取准确信息。";
-        } else if (lowerMessage.contains("时间")) {
-            return "当前时间是 " + new java.text.SimpleDateFormat("HH:mm", java.util.Locale.getDefault()).format(new java.util.Date());
-        } else if (lowerMessage.contains("谢谢") || lowerMessage.contains("thank")) {
-            return "不客气！很高兴能帮助到您。还有其他问题吗？";
-        } else if (lowerMessage.contains("再见") || lowerMessage.contains("bye")) {
-            return "再见！期待下次与您的对话！";
-        } else {
-            return "我理解您说的是：" + userMessage + "\n\n这是一个演示AI回复。在完整版本中，这里会接入真正的AI API来提供更智能的对话。";
-        }
+        viewModel.requestAiReply(userMessage, aiMessage);
     }
 
     private void showEmojiPicker() {
@@ -268,7 +249,7 @@ public class ChatActivity extends AppCompatActivity {
 
     private void sendEmojiMessage(String emoji) {
         Message emojiMessage = new Message(
-            UUID.randomUUID().toString(),
+            messageIdGenerator.nextId(),
             currentUserId,
             emoji,
             Message.MessageType.EMOJI
@@ -280,14 +261,7 @@ public class ChatActivity extends AppCompatActivity {
             emojiMessage.setReceiverId(chatUserId);
         }
 
-        executor.execute(() -> {
-            messageDao.insertMessage(emojiMessage);
-            
-            runOnUiThread(() -> {
-                messageAdapter.addMessage(emojiMessage);
-                recyclerViewMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
-            });
-        });
+        viewModel.send(emojiMessage, null);
     }
 
     private void selectImage() {
@@ -312,20 +286,18 @@ public class ChatActivity extends AppCompatActivity {
         super.onActivityResult(requestCode, resultCode, data);
         
         if (requestCode == REQUEST_IMAGE_PICK && resultCode == RESULT_OK && data != null) {
-            String imageUri = data.getData().toString();
-            sendImageMessage(imageUri);
+            sendImageMessage(data.getData());
         }
     }
 
-    private void sendImageMessage(String imageUri) {
+    private void sendImageMessage(Uri imageUri) {
         Message imageMessage = new Message(
-            UUID.randomUUID().toString(),
+            messageIdGenerator.nextId(),
             currentUserId,
             "[图片]",
             Message.MessageType.IMAGE
         );
         
-        imageMessage.setMediaUrl(imageUri);
         
         if (isAiChat) {
             imageMessage.setReceiverId("ai_assistant");
@@ -333,14 +305,7 @@ public class ChatActivity extends AppCompatActivity {
             imageMessage.setReceiverId(chatUserId);
         }
 
-        executor.execute(() -> {
-            messageDao.insertMessage(imageMessage);
-            
-            runOnUiThread(() -> {
-                messageAdapter.addMessage(imageMessage);
-                recyclerViewMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
-            });
-        });
+        viewModel.sendImage(imageMessage, imageUri);
     }
 
     private void sendMarkdownMessage() {
@@ -353,7 +318,7 @@ public class ChatActivity extends AppCompatActivity {
         
         // Create and save markdown message
         Message markdownMessage = new Message(
-            UUID.randomUUID().toString(),
+            messageIdGenerator.nextId(),
             currentUserId,
             messageText,
             Message.MessageType.MARKDOWN
@@ -365,28 +330,13 @@ public class ChatActivity extends AppCompatActivity {
             markdownMessage.setReceiverId(chatUserId);
         }
 
-        executor.execute(() -> {
-            messageDao.insertMessage(markdownMessage);
-            
-            runOnUiThread(() -> {
-                messageAdapter.addMessage(markdownMessage);
-                recyclerViewMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
-                Toast.makeText(this, "Markdown消息已发送", Toast.LENGTH_SHORT).show();
-            });
-        });
+        viewModel.send(markdownMessage, null);
+        Toast.makeText(this, "Markdown消息已发送", Toast.LENGTH_SHORT).show();
     }
 
     private void recallMessage(Message message) {
-        executor.execute(() -> {
-            messageDao.recallMessage(message.getMessageId());
-            
-            runOnUiThread(() -> {
-                // Update the message in the adapter
-                message.setRecalled(true);
-                messageAdapter.notifyDataSetChanged();
-                Toast.makeText(this, "消息已撤回", Toast.LENGTH_SHORT).show();
-            });
-        });
+        viewModel.recall(message.getMessageId());
+        Toast.makeText(this, "消息已撤回", Toast.LENGTH_SHORT).show();
     }
 
     @Override
@@ -403,10 +353,20 @@ public class ChatActivity extends AppCompatActivity {
     }
 
     @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (executor != null) {
-            executor.shutdown();
-        }
+    protected void onResume() {
+        super.onResume();
+        markConversationRead();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Messages that arrived while the screen was visible have been seen too
+        markConversationRead();
+        messagePager.saveScrollAnchor();
+    }
+
+    private void markConversationRead() {
+        viewModel.markConversationRead(currentUserId);
     }
 }
\ No newline at end of file
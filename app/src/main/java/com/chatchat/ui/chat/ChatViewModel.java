@@ -0,0 +1,475 @@
+package com.chatchat.ui.chat;
+
+import android.app.Application;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.Toast;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.SavedStateHandle;
+import androidx.lifecycle.Transformations;
+import com.chatchat.ai.AiBackends;
+import com.chatchat.ai.AiCall;
+import com.chatchat.ai.AiContextBuilder;
+import com.chatchat.ai.AiRequest;
+import com.chatchat.ai.AiStreamListener;
+import com.chatchat.database.AppDatabase;
+import com.chatchat.database.MessageArchiver;
+import com.chatchat.database.MessageDao;
+import com.chatchat.database.MessagePagingSource;
+import com.chatchat.database.MessageWriteQueue;
+import com.chatchat.model.AiSummary;
+import com.chatchat.model.Message;
+import com.chatchat.repository.MessageRepository;
+import com.chatchat.utils.LocalMediaStore;
+import com.chatchat.utils.TaskDispatcher;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 聊天页面状态：当前会话、消息窗口位置和待写入的发送任务
+ * 屏幕旋转等配置变化时页面直接重新绑定到内存中的状态，不重新查询；
+ * 窗口边界和滚动锚点写入 SavedStateHandle，进程被回收后恢复到原来的位置。
+ * 正在生成的AI回复作为草稿追加在列表末尾，完整回复写入数据库后由持久化的行替换
+ */
+public class ChatViewModel extends AndroidViewModel {
+
+    static final int PAGE_SIZE = 50;
+    private static final int MAX_WINDOW_SIZE = PAGE_SIZE * 4;
+
+    private static final String KEY_WINDOW_START = "window_start";
+    private static final String KEY_WINDOW_END = "window_end";
+    private static final String KEY_HAS_OLDER = "has_older";
+    private static final String KEY_HAS_NEWER = "has_newer";
+    private static final String KEY_ANCHOR_MESSAGE_ID = "anchor_message_id";
+    private static final String KEY_ANCHOR_OFFSET = "anchor_offset";
+
+    private final SavedStateHandle state;
+    private final AppDatabase database;
+    private final MessageDao messageDao;
+    private final MessageRepository repository;
+    private final TaskDispatcher dispatcher = TaskDispatcher.getInstance();
+    private final MessageWriteQueue writeQueue;
+    private final AiContextBuilder contextBuilder;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MutableLiveData<Window> window = new MutableLiveData<>();
+    private final MediatorLiveData<List<Message>> messages = new MediatorLiveData<>();
+
+    private MessagePagingSource pagingSource;
+    private String conversationId;
+
+    // Only touched on the main thread
+    private boolean loading;
+    private boolean hasOlder;
+    private boolean hasNewer;
+    private boolean scrollToBottomPending;
+    private int generation;
+    private List<Message> lastRows = Collections.emptyList();
+    private Message draftReply;
+    private AiCall aiCall;
+    private boolean cleared;
+
+    public ChatViewModel(@NonNull Application application, @NonNull SavedStateHandle state) {
+        super(application);
+        this.state = state;
+        this.database = AppDatabase.getDatabase(application);
+        this.messageDao = database.messageDao();
+        this.repository = MessageRepository.getInstance(application);
+        this.writeQueue = MessageWriteQueue.getInstance(application);
+        this.contextBuilder = new AiContextBuilder(database);
+        messages.addSource(Transformations.switchMap(window,
+                w -> pagingSource.observeRange(w.startMessageId, w.endMessageId)), rows -> {
+                    lastRows = rows;
+                    publishMessages();
+                });
+    }
+
+    @Override
+    protected void onCleared() {
+        cleared = true;
+        if (aiCall != null) aiCall.cancel();
+    }
+
+    /**
+     * 绑定会话，readerId 不为空时按其已读位置标记消息。同一个 ViewModel 只有第一次调用生效，
+     * 之后（配置变化重建页面）直接沿用已有状态
+     */
+    void init(String conversationId, String readerId) {
+        if (pagingSource != null) return;
+        this.conversationId = conversationId;
+        pagingSource = new MessagePagingSource(messageDao, readerId == null ? null : database.readStateDao(),
+                new MessageArchiver(database), conversationId, readerId);
+
+        Long start = state.get(KEY_WINDOW_START);
+        Long end = state.get(KEY_WINDOW_END);
+        if (start != null && end != null) {
+            // Process was recreated: reopen the same window instead of jumping to the newest page
+            hasOlder = Boolean.TRUE.equals(state.get(KEY_HAS_OLDER));
+            hasNewer = Boolean.TRUE.equals(state.get(KEY_HAS_NEWER));
+            window.setValue(new Window(start, end));
+        } else {
+            loadLatest();
+        }
+    }
+
+    String getConversationId() {
+        return conversationId;
+    }
+
+    LiveData<List<Message>> getMessages() {
+        return messages;
+    }
+
+    /**
+     * 把窗口移动到最新一页并滚动到底部
+     */
+    void loadLatest() {
+        int requestGeneration = ++generation;
+        List<Message> cached = repository.peekLatest(conversationId);
+        if (cached != null) {
+            // Show the cached page right away, the observed query then confirms or corrects it
+            lastRows = cached;
+            publishMessages();
+            showLatest(cached);
+            return;
+        }
+        loading = true;
+        dispatcher.execute(TaskDispatcher.Lane.DB_READ, () -> {
+            List<Message> page = repository.loadLatest(pagingSource, PAGE_SIZE);
+            restoreIfShort(page, Long.MAX_VALUE, () -> repository.loadLatest(pagingSource, PAGE_SIZE),
+                    loaded -> mainHandler.post(() -> {
+                        if (requestGeneration != generation) return;
+                        loading = false;
+                        showLatest(loaded);
+                    }));
+        });
+    }
+
+    /**
+     * 读通道上加载的页不满时，更早的消息可能在归档中：恢复归档是写事务，在写通道上执行，
+     * 恢复了消息再回到读通道重新加载这一页。onLoaded 在后台线程上调用
+     */
+    private void restoreIfShort(List<Message> page, long beforeMessageId, Supplier<List<Message>> reload,
+                                Consumer<List<Message>> onLoaded) {
+        if (page.size() == PAGE_SIZE || !pagingSource.canRestore()) {
+            onLoaded.accept(page);
+            return;
+        }
+        dispatcher.execute(TaskDispatcher.Lane.DB_WRITE, () -> {
+            if (pagingSource.restoreBefore(beforeMessageId, PAGE_SIZE)) {
+                dispatcher.execute(TaskDispatcher.Lane.DB_READ, () -> onLoaded.accept(reload.get()));
+            } else {
+                onLoaded.accept(page);
+            }
+        });
+    }
+
+    private void showLatest(List<Message> page) {
+        hasOlder = page.size() == PAGE_SIZE;
+        hasNewer = false;
+        scrollToBottomPending = true;
+        setWindow(page.isEmpty() ? Window.ALL : Window.tailFrom(page.get(0)));
+    }
+
+    boolean canLoadOlder() {
+        return !loading && hasOlder && window.getValue() != null;
+    }
+
+    boolean canLoadNewer() {
+        return !loading && hasNewer && window.getValue() != null;
+    }
+
+    boolean isTail() {
+        Window current = window.getValue();
+        return current != null && current.isTail();
+    }
+
+    /**
+     * 返回并清除"提交后滚动到底部"的请求
+     */
+    boolean consumeScrollToBottom() {
+        boolean pending = scrollToBottomPending;
+        scrollToBottomPending = false;
+        return pending;
+    }
+
+    /**
+     * 新的一批消息已显示；跟随最新消息时把窗口起点前移，保持窗口有界
+     */
+    void onRowsShown(boolean followTail) {
+        Window current = window.getValue();
+        if (current == null || !current.isTail()) return;
+        // Work from the persisted rows, the streaming draft is not part of the window
+        repository.updateLatest(conversationId, lastRows, PAGE_SIZE);
+        if (followTail && !loading && lastRows.size() > MAX_WINDOW_SIZE + PAGE_SIZE) {
+            hasOlder = true;
+            setWindow(current.withStart(lastRows.get(lastRows.size() - MAX_WINDOW_SIZE)));
+        }
+    }
+
+    void loadOlder() {
+        List<Message> current = lastRows;
+        if (current.isEmpty()) return;
+        int requestGeneration = generation;
+        Window currentWindow = window.getValue();
+        loading = true;
+        Message anchor = current.get(0);
+        dispatcher.execute(TaskDispatcher.Lane.DB_READ, () -> {
+            List<Message> page = pagingSource.loadBefore(anchor, PAGE_SIZE);
+            restoreIfShort(page, anchor.getMessageId(), () -> pagingSource.loadBefore(anchor, PAGE_SIZE),
+                    loaded -> mainHandler.post(() -> showOlder(requestGeneration, currentWindow, current, loaded)));
+        });
+    }
+
+    private void showOlder(int requestGeneration, Window currentWindow, List<Message> current, List<Message> page) {
+        if (requestGeneration != generation) return;
+        loading = false;
+        hasOlder = page.size() == PAGE_SIZE;
+        if (page.isEmpty()) {
+            state.set(KEY_HAS_OLDER, false);
+            return;
+        }
+
+        Window next = currentWindow.withStart(page.get(0));
+        int overflow = current.size() + page.size() - MAX_WINDOW_SIZE;
+        if (overflow > 0) {
+            next = next.withEnd(current.get(current.size() - 1 - overflow));
+            hasNewer = true;
+        }
+        setWindow(next);
+    }
+
+    void loadNewer() {
+        List<Message> current = lastRows;
+        if (current.isEmpty()) return;
+        int requestGeneration = generation;
+        Window currentWindow = window.getValue();
+        loading = true;
+        dispatcher.execute(TaskDispatcher.Lane.DB_READ, () -> {
+            List<Message> page = pagingSource.loadAfter(current.get(current.size() - 1), PAGE_SIZE);
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) return;
+                loading = false;
+                hasNewer = page.size() == PAGE_SIZE;
+
+                Window next = hasNewer ? currentWindow.withEnd(page.get(page.size() - 1)) : currentWindow.asTail();
+                int overflow = current.size() + page.size() - MAX_WINDOW_SIZE;
+                if (overflow > 0) {
+                    next = next.withStart(current.get(overflow));
+                    hasOlder = true;
+                }
+                setWindow(next);
+            });
+        });
+    }
+
+    private void setWindow(Window next) {
+        state.set(KEY_WINDOW_START, next.startMessageId);
+        state.set(KEY_WINDOW_END, next.endMessageId);
+        state.set(KEY_HAS_OLDER, hasOlder);
+        state.set(KEY_HAS_NEWER, hasNewer);
+        window.setValue(next);
+    }
+
+    /**
+     * 记录第一条可见消息及其偏移，用于进程恢复后回到同一位置；messageId 为 0 表示停在底部
+     */
+    void saveScrollAnchor(long messageId, int offset) {
+        state.set(KEY_ANCHOR_MESSAGE_ID, messageId);
+        state.set(KEY_ANCHOR_OFFSET, offset);
+    }
+
+    long getScrollAnchorMessageId() {
+        Long messageId = state.get(KEY_ANCHOR_MESSAGE_ID);
+        return messageId == null ? 0 : messageId;
+    }
+
+    int getScrollAnchorOffset() {
+        Integer offset = state.get(KEY_ANCHOR_OFFSET);
+        return offset == null ? 0 : offset;
+    }
+
+    /**
+     * 发送一条消息；afterInsert 在写入成功后于后台通道执行，可以为 null
+     * 连续发送的消息由写入队列合并提交，且不绑定页面生命周期
+     */
+    void send(Message message, Runnable afterInsert) {
+        onMessageSent();
+        writeQueue.enqueue(message, afterInsert == null ? null : (written, error) -> {
+            // Callbacks run on the writer thread, keep follow-up work off it
+            if (error == null) dispatcher.execute(TaskDispatcher.Lane.BACKGROUND, afterInsert);
+        });
+    }
+
+    /**
+     * 把图片导入应用存储后发送；导入在低优先级后台通道进行，页面重建不影响
+     */
+    void sendImage(Message message, Uri imageUri) {
+        onMessageSent();
+        LocalMediaStore localMediaStore = new LocalMediaStore(getApplication());
+        dispatcher.execute(TaskDispatcher.Lane.BACKGROUND, () -> {
+            try {
+                // Copied into app storage once; the picker's content:// grant does not outlive this screen
+                message.setMediaHash(localMediaStore.importFromUri(imageUri));
+            } catch (IOException | SecurityException e) {
+                mainHandler.post(() -> Toast.makeText(getApplication(), "图片读取失败", Toast.LENGTH_SHORT).show());
+                return;
+            }
+            writeQueue.enqueue(message);
+        });
+    }
+
+    void recall(long messageId) {
+        dispatcher.execute(TaskDispatcher.Lane.DB_WRITE, () -> messageDao.recallMessageWithConversation(messageId));
+    }
+
+    void markConversationRead(String userId) {
+        dispatcher.execute(TaskDispatcher.Lane.DB_WRITE, () -> database.readStateDao().markConversationRead(userId, conversationId));
+    }
+
+    /**
+     * 请求AI回复。reply 是预先分配好 messageId 的回复消息，生成过程中以草稿显示并随内容增长刷新；
+     * 只有完整的回复写入数据库，且与草稿使用同一个 messageId，替换时列表不会跳动
+     */
+    void requestAiReply(Message userMessage, Message reply) {
+        if (aiCall != null) aiCall.cancel();
+        aiCall = null;
+        reply.setContent("");
+        draftReply = reply;
+        publishMessages();
+
+        // Reads a bounded slice of history; folding older turns into the stored summary is a write
+        dispatcher.execute(TaskDispatcher.Lane.DB_READ, () -> {
+            AiContextBuilder.Result built = contextBuilder.build(conversationId, userMessage);
+            AiSummary summaryUpdate = built.getSummaryUpdate();
+            if (summaryUpdate != null) {
+                dispatcher.execute(TaskDispatcher.Lane.DB_WRITE, () -> contextBuilder.saveSummary(summaryUpdate));
+            }
+            mainHandler.post(() -> {
+                if (cleared || draftReply == null || draftReply.getMessageId() != reply.getMessageId()) return;
+                streamAiReply(built.getRequest(), reply);
+            });
+        });
+    }
+
+    private void streamAiReply(AiRequest request, Message reply) {
+        aiCall = AiBackends.create(getApplication()).stream(request, new AiStreamListener() {
+            // Listener callbacks arrive serially on the backend's thread
+            private final StringBuilder text = new StringBuilder();
+
+            @Override
+            public void onToken(String token) {
+                text.append(token);
+                String snapshot = text.toString();
+                mainHandler.post(() -> updateDraft(reply.getMessageId(), snapshot));
+            }
+
+            @Override
+            public void onComplete(String fullText) {
+                Message aiMessage = reply.copy();
+                aiMessage.setContent(fullText);
+                aiMessage.setTimestamp(System.currentTimeMillis());
+                // The draft stays up until the persisted row arrives through the observed query
+                writeQueue.enqueue(aiMessage);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                mainHandler.post(() -> {
+                    if (draftReply != null && draftReply.getMessageId() == reply.getMessageId()) {
+                        draftReply = null;
+                        publishMessages();
+                    }
+                    Toast.makeText(getApplication(), "AI回复失败", Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
+    private void updateDraft(long messageId, String text) {
+        if (draftReply == null || draftReply.getMessageId() != messageId) return;
+        Message next = draftReply.copy();
+        next.setContent(text);
+        draftReply = next;
+        publishMessages();
+    }
+
+    /**
+     * 合并数据库中的行和正在生成的草稿；草稿只在窗口跟随最新消息时显示
+     */
+    private void publishMessages() {
+        Message draft = draftReply;
+        if (draft != null && !lastRows.isEmpty()
+                && lastRows.get(lastRows.size() - 1).getMessageId() >= draft.getMessageId()) {
+            for (int i = lastRows.size() - 1; i >= 0 && lastRows.get(i).getMessageId() >= draft.getMessageId(); i--) {
+                if (lastRows.get(i).getMessageId() == draft.getMessageId()) {
+                    // The final reply has been written, the draft is no longer needed
+                    draftReply = null;
+                    draft = null;
+                    break;
+                }
+            }
+        }
+        if (draft == null || !isTail()) {
+            messages.setValue(lastRows);
+            return;
+        }
+        List<Message> rows = new ArrayList<>(lastRows.size() + 1);
+        rows.addAll(lastRows);
+        rows.add(draft);
+        messages.setValue(rows);
+    }
+
+    private void onMessageSent() {
+        Window current = window.getValue();
+        if (current != null && !current.isTail()) {
+            // The window no longer ends at the newest message, jump back to the tail
+            loadLatest();
+        } else {
+            scrollToBottomPending = true;
+        }
+    }
+
+    /**
+     * 消息窗口边界（messageId），两端均包含；end 为 Long.MAX_VALUE 时窗口跟随最新消息
+     */
+    static final class Window {
+        static final Window ALL = new Window(Long.MIN_VALUE, Long.MAX_VALUE);
+
+        final long startMessageId;
+        final long endMessageId;
+
+        private Window(long startMessageId, long endMessageId) {
+            this.startMessageId = startMessageId;
+            this.endMessageId = endMessageId;
+        }
+
+        static Window tailFrom(Message start) {
+            return ALL.withStart(start);
+        }
+
+        boolean isTail() {
+            return endMessageId == Long.MAX_VALUE;
+        }
+
+        Window withStart(Message start) {
+            return new Window(start.getMessageId(), endMessageId);
+        }
+
+        Window withEnd(Message end) {
+            return new Window(startMessageId, end.getMessageId());
+        }
+
+        Window asTail() {
+            return new Window(startMessageId, Long.MAX_VALUE);
+        }
+    }
+}
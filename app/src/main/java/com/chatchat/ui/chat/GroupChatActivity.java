@@ -2,8 +2,11 @@ package com.chatchat.ui.chat;
 
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.ImageButton;
@@ -13,6 +16,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import android.provider.MediaStore;
@@ -21,18 +25,14 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import android.Manifest;
 import com.chatchat.R;
-import com.chatchat.database.AppDatabase;
-import com.chatchat.database.MessageDao;
-import com.chatchat.database.ChatGroupDao;
 import com.chatchat.model.Message;
+import com.chatchat.repository.ConversationRepository;
 import com.chatchat.model.ChatGroup;
 import com.chatchat.ui.adapter.MessageAdapter;
+import com.chatchat.ui.search.MessageSearchActivity;
 import com.chatchat.utils.GpuOptimizationManager;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import com.chatchat.utils.MessageIdGenerator;
+import com.chatchat.utils.TaskDispatcher;
 
 public class GroupChatActivity extends AppCompatActivity {
     
@@ -54,14 +54,14 @@ public class GroupChatActivity extends AppCompatActivity {
     private ImageButton buttonVoice;
     
     private MessageAdapter messageAdapter;
-    private AppDatabase database;
-    private MessageDao messageDao;
-    private ChatGroupDao chatGroupDao;
-    private ExecutorService executor;
+    private MessagePager messagePager;
+    private ChatViewModel viewModel;
+    private MessageIdGenerator messageIdGenerator;
     private SharedPreferences sharedPreferences;
     
     private String groupId;
     private String groupName;
+    private String conversationId;
     private String currentUserId;
     private ChatGroup currentGroup;
 
@@ -74,25 +74,25 @@ public class GroupChatActivity extends AppCompatActivity {
         
         setContentView(R.layout.activity_chat);
 
-        getIntentData();
+        if (!getIntentData()) {
+            finish();
+            return;
+        }
         initViews();
         initDatabase();
         setupToolbar();
         setupRecyclerView();
         setupClickListeners();
-        loadMessages();
         loadGroupInfo();
     }
 
-    private void getIntentData() {
+    private boolean getIntentData() {
         groupId = getIntent().getStringExtra(EXTRA_GROUP_ID);
         groupName = getIntent().getStringExtra(EXTRA_GROUP_NAME);
         
-        if (groupId == null) {
-            finish();
-            return;
-        }
+        if (groupId == null) return false;
         if (groupName == null) groupName = "群聊";
+        return true;
     }
 
     private void initViews() {
@@ -109,10 +109,8 @@ public class GroupChatActivity extends AppCompatActivity {
     }
 
     private void initDatabase() {
-        database = AppDatabase.getDatabase(this);
-        messageDao = database.messageDao();
-        chatGroupDao = database.chatGroupDao();
-        executor = Executors.newSingleThreadExecutor();
+        viewModel = new ViewModelProvider(this).get(ChatViewModel.class);
+        messageIdGenerator = MessageIdGenerator.getInstance(this);
         sharedPreferences = getSharedPreferences("ChatChatPrefs", MODE_PRIVATE);
         currentUserId = sharedPreferences.getString("current_user_id", "");
     }
@@ -129,12 +127,16 @@ public class GroupChatActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        messageAdapter = new MessageAdapter(new ArrayList<>(), currentUserId);
+        messageAdapter = new MessageAdapter(currentUserId);
         messageAdapter.setOnMessageActionListener(this::recallMessage);
         LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         layoutManager.setStackFromEnd(true);
         recyclerViewMessages.setLayoutManager(layoutManager);
         recyclerViewMessages.setAdapter(messageAdapter);
+
+        conversationId = Message.groupConversationId(groupId);
+        viewModel.init(conversationId, null);
+        messagePager = new MessagePager(this, recyclerViewMessages, messageAdapter, viewModel);
         
         // 为群聊消息RecyclerView启用GPU优化
         GpuOptimizationManager.optimizeRecyclerViewForGpu(recyclerViewMessages);
@@ -158,30 +160,33 @@ public class GroupChatActivity extends AppCompatActivity {
         });
     }
 
-    private void loadMessages() {
-        executor.execute(() -> {
-            List<Message> messages = messageDao.getGroupMessages(groupId);
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.chat, menu);
+        return true;
+    }
 
-            runOnUiThread(() -> {
-                messageAdapter.updateMessages(messages);
-                if (!messages.isEmpty()) {
-                    recyclerViewMessages.scrollToPosition(messages.size() - 1);
-                }
-            });
-        });
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_search_messages) {
+            Intent intent = new Intent(this, MessageSearchActivity.class);
+            intent.putExtra(MessageSearchActivity.EXTRA_CONVERSATION_ID, conversationId);
+            startActivity(intent);
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
     }
 
     private void loadGroupInfo() {
-        executor.execute(() -> {
-            currentGroup = chatGroupDao.getChatGroupById(groupId);
-            if (currentGroup != null) {
+        TaskDispatcher.getInstance().execute(TaskDispatcher.Lane.DB_READ, this, () -> {
+            ConversationRepository.GroupInfo groupInfo = ConversationRepository.getInstance(this).getGroup(groupId);
+            if (groupInfo != null) {
+                currentGroup = groupInfo.getGroup();
+                int memberCount = groupInfo.getMemberCount();
                 runOnUiThread(() -> {
                     textViewChatName.setText(currentGroup.getGroupName());
                     // Update member count status
-                    if (currentGroup.getMemberIds() != null) {
-                        int memberCount = currentGroup.getMemberIds().size();
-                        textViewChatStatus.setText(memberCount + "人");
-                    }
+                    textViewChatStatus.setText(memberCount + "人");
                 });
             }
         });
@@ -197,7 +202,7 @@ public class GroupChatActivity extends AppCompatActivity {
         
         // Create and save group message
         Message groupMessage = new Message(
-            UUID.randomUUID().toString(),
+            messageIdGenerator.nextId(),
             currentUserId,
             messageText,
             Message.MessageType.TEXT
@@ -205,18 +210,7 @@ public class GroupChatActivity extends AppCompatActivity {
         
         groupMessage.setGroupId(groupId);
 
-        executor.execute(() -> {
-            messageDao.insertMessage(groupMessage);
-            
-            // Update group's last message
-            chatGroupDao.updateLastMessage(groupId, groupMessage.getMessageId(), 
-                    groupMessage.getTimestamp());
-            
-            runOnUiThread(() -> {
-                messageAdapter.addMessage(groupMessage);
-                recyclerViewMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
-            });
-        });
+        viewModel.send(groupMessage, null);
     }
 
     private void showEmojiPicker() {
@@ -232,7 +226,7 @@ public class GroupChatActivity extends AppCompatActivity {
 
     private void sendEmojiMessage(String emoji) {
         Message emojiMessage = new Message(
-            UUID.randomUUID().toString(),
+            messageIdGenerator.nextId(),
             currentUserId,
             emoji,
             Message.MessageType.EMOJI
@@ -240,16 +234,7 @@ public class GroupChatActivity extends AppCompatActivity {
         
         emojiMessage.setGroupId(groupId);
 
-        executor.execute(() -> {
-            messageDao.insertMessage(emojiMessage);
-            chatGroupDao.updateLastMessage(groupId, emojiMessage.getMessageId(), 
-                    emojiMessage.getTimestamp());
-            
-            runOnUiThread(() -> {
-                messageAdapter.addMessage(emojiMessage);
-                recyclerViewMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
-            });
-        });
+        viewModel.send(emojiMessage, null);
     }
 
     private void selectImage() {
@@ -274,32 +259,21 @@ public class GroupChatActivity extends AppCompatActivity {
         super.onActivityResult(requestCode, resultCode, data);
         
         if (requestCode == REQUEST_IMAGE_PICK && resultCode == RESULT_OK && data != null) {
-            String imageUri = data.getData().toString();
-            sendImageMessage(imageUri);
+            sendImageMessage(data.getData());
         }
     }
 
-    private void sendImageMessage(String imageUri) {
+    private void sendImageMessage(Uri imageUri) {
         Message imageMessage = new Message(
-            UUID.randomUUID().toString(),
+            messageIdGenerator.nextId(),
             currentUserId,
             "[图片]",
             Message.MessageType.IMAGE
         );
         
-        imageMessage.setMediaUrl(imageUri);
         imageMessage.setGroupId(groupId);
 
-        executor.execute(() -> {
-            messageDao.insertMessage(imageMessage);
-            chatGroupDao.updateLastMessage(groupId, imageMessage.getMessageId(), 
-                    imageMessage.getTimestamp());
-            
-            runOnUiThread(() -> {
-                messageAdapter.addMessage(imageMessage);
-                recyclerViewMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
-            });
-        });
+        viewModel.sendImage(imageMessage, imageUri);
     }
 
     private void sendMarkdownMessage() {
@@ -312,7 +286,7 @@ public class GroupChatActivity extends AppCompatActivity {
         
         // Create and save markdown message
         Message markdownMessage = new Message(
-            UUID.randomUUID().toString(),
+            messageIdGenerator.nextId(),
             currentUserId,
             messageText,
             Message.MessageType.MARKDOWN
@@ -320,30 +294,13 @@ public class GroupChatActivity extends AppCompatActivity {
         
         markdownMessage.setGroupId(groupId);
 
-        executor.execute(() -> {
-            messageDao.insertMessage(markdownMessage);
-            chatGroupDao.updateLastMessage(groupId, markdownMessage.getMessageId(), 
-                    markdownMessage.getTimestamp());
-            
-            runOnUiThread(() -> {
-                messageAdapter.addMessage(markdownMessage);
-                recyclerViewMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
-                Toast.makeText(this, "Markdown消息已发送", Toast.LENGTH_SHORT).show();
-            });
-        });
+        viewModel.send(markdownMessage, null);
+        Toast.makeText(this, "Markdown消息已发送", Toast.LENGTH_SHORT).show();
     }
 
     private void recallMessage(Message message) {
-        executor.execute(() -> {
-            messageDao.recallMessage(message.getMessageId());
-            
-            runOnUiThread(() -> {
-                // Update the message in the adapter
-                message.setRecalled(true);
-                messageAdapter.notifyDataSetChanged();
-                Toast.makeText(this, "消息已撤回", Toast.LENGTH_SHORT).show();
-            });
-        });
+        viewModel.recall(message.getMessageId());
+        Toast.makeText(this, "消息已撤回", Toast.LENGTH_SHORT).show();
     }
 
     @Override
@@ -360,10 +317,20 @@ public class GroupChatActivity extends AppCompatActivity {
     }
 
     @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (executor != null) {
-            executor.shutdown();
-        }
+    protected void onResume() {
+        super.onResume();
+        markConversationRead();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Messages that arrived while the screen was visible have been seen too
+        markConversationRead();
+        messagePager.saveScrollAnchor();
+    }
+
+    private void markConversationRead() {
+        viewModel.markConversationRead(currentUserId);
     }
 }
\ No newline at end of file
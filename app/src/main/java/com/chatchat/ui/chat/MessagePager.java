@@ -0,0 +1,103 @@
+package com.chatchat.ui.chat;
+
+import android.view.View;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import com.chatchat.model.Message;
+import com.chatchat.ui.adapter.MessageAdapter;
+import java.util.List;
+
+/**
+ * 聊天消息分页加载器
+ * 界面展示的是会话中一个有界的消息窗口 [start, end]，窗口由 ChatViewModel 持有，内容由数据库观察查询驱动：
+ * 任何来源的写入（本页面、同步任务、其他页面）都会让窗口重新查询，
+ * 再由 MessageAdapter 计算差异，只重新绑定发生变化的条目。
+ * 这里只负责把列表绑定到 ViewModel：滚动到边缘时翻页、跟随最新消息、保存和恢复滚动位置
+ */
+class MessagePager extends RecyclerView.OnScrollListener {
+
+    private static final int PREFETCH_DISTANCE = 10;
+
+    private final RecyclerView recyclerView;
+    private final LinearLayoutManager layoutManager;
+    private final MessageAdapter adapter;
+    private final ChatViewModel viewModel;
+
+    // Only touched on the UI thread
+    private boolean restoreAnchor;
+
+    MessagePager(AppCompatActivity activity, RecyclerView recyclerView, MessageAdapter adapter,
+                 ChatViewModel viewModel) {
+        this.recyclerView = recyclerView;
+        this.layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        this.adapter = adapter;
+        this.viewModel = viewModel;
+        this.restoreAnchor = viewModel.getScrollAnchorMessageId() != 0;
+        recyclerView.addOnScrollListener(this);
+        viewModel.getMessages().observe(activity, this::onRowsChanged);
+    }
+
+    /**
+     * 记录当前滚动位置，在页面进入后台时调用
+     */
+    void saveScrollAnchor() {
+        if (adapter.getItemCount() == 0 || isAtBottom()) {
+            viewModel.saveScrollAnchor(0, 0);
+            return;
+        }
+        int position = layoutManager.findFirstVisibleItemPosition();
+        if (position == RecyclerView.NO_POSITION) return;
+        View child = layoutManager.findViewByPosition(position);
+        int offset = child == null ? 0 : child.getTop() - recyclerView.getPaddingTop();
+        viewModel.saveScrollAnchor(adapter.getMessage(position).getMessageId(), offset);
+    }
+
+    private void onRowsChanged(List<Message> rows) {
+        boolean anchor = restoreAnchor;
+        restoreAnchor = false;
+        boolean followTail = !anchor && viewModel.isTail() && isAtBottom();
+        boolean scroll = viewModel.consumeScrollToBottom() || followTail;
+        adapter.submitMessages(rows, () -> {
+            if (anchor && scrollToAnchor(rows)) return;
+            if (scroll) scrollToBottom();
+        });
+        viewModel.onRowsShown(followTail);
+    }
+
+    private boolean scrollToAnchor(List<Message> rows) {
+        long anchorId = viewModel.getScrollAnchorMessageId();
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).getMessageId() == anchorId) {
+                layoutManager.scrollToPositionWithOffset(i, viewModel.getScrollAnchorOffset());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (adapter.getItemCount() == 0) return;
+
+        if (dy < 0 && viewModel.canLoadOlder()
+                && layoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+            viewModel.loadOlder();
+        } else if (dy > 0 && viewModel.canLoadNewer()
+                && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - 1 - PREFETCH_DISTANCE) {
+            viewModel.loadNewer();
+        }
+    }
+
+    private boolean isAtBottom() {
+        int count = adapter.getItemCount();
+        return count == 0 || layoutManager.findLastVisibleItemPosition() >= count - 2;
+    }
+
+    private void scrollToBottom() {
+        if (adapter.getItemCount() > 0) {
+            recyclerView.scrollToPosition(adapter.getItemCount() - 1);
+        }
+    }
+}
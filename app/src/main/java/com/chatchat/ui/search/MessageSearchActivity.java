@@ -0,0 +1,209 @@
+package com.chatchat.ui.search;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import com.chatchat.R;
+import com.chatchat.database.AppDatabase;
+import com.chatchat.database.MessageSearchDao;
+import com.chatchat.model.MessageSearchResult;
+import com.chatchat.ui.chat.ChatActivity;
+import com.chatchat.ui.chat.GroupChatActivity;
+import com.chatchat.utils.TaskDispatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 消息全文搜索页面
+ * 传入 EXTRA_CONVERSATION_ID 时只搜索该会话，否则搜索全部消息
+ */
+public class MessageSearchActivity extends AppCompatActivity implements MessageSearchAdapter.OnResultClickListener {
+
+    public static final String EXTRA_CONVERSATION_ID = "conversation_id";
+
+    private static final int PAGE_SIZE = 30;
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+
+    private EditText editTextSearch;
+    private RecyclerView recyclerViewResults;
+    private TextView textViewEmptyState;
+    private MessageSearchAdapter resultAdapter;
+
+    private MessageSearchDao messageSearchDao;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable pendingSearch = this::startSearch;
+
+    private String conversationId;
+    private String currentUserId;
+
+    // Only touched on the UI thread
+    private String matchQuery;
+    private int generation;
+    private boolean loading;
+    private boolean hasMore;
+    private int loadedCount;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_message_search);
+
+        conversationId = getIntent().getStringExtra(EXTRA_CONVERSATION_ID);
+        currentUserId = getSharedPreferences("ChatChatPrefs", MODE_PRIVATE)
+                .getString("current_user_id", "");
+        AppDatabase database = AppDatabase.getDatabase(this);
+        messageSearchDao = database.messageSearchDao();
+
+        initViews();
+        setupToolbar();
+        setupRecyclerView();
+        setupSearchListener();
+    }
+
+    private void initViews() {
+        editTextSearch = findViewById(R.id.editTextSearch);
+        recyclerViewResults = findViewById(R.id.recyclerViewResults);
+        textViewEmptyState = findViewById(R.id.textViewEmptyState);
+    }
+
+    private void setupToolbar() {
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+            getSupportActionBar().setTitle(conversationId != null ? "搜索聊天记录" : "搜索消息");
+        }
+    }
+
+    private void setupRecyclerView() {
+        resultAdapter = new MessageSearchAdapter(new ArrayList<>(), this);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerViewResults.setLayoutManager(layoutManager);
+        recyclerViewResults.setAdapter(resultAdapter);
+        recyclerViewResults.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && hasMore && !loading
+                        && layoutManager.findLastVisibleItemPosition() >= resultAdapter.getItemCount() - 5) {
+                    loadPage();
+                }
+            }
+        });
+    }
+
+    private void setupSearchListener() {
+        editTextSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                handler.removeCallbacks(pendingSearch);
+                handler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MS);
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {}
+        });
+    }
+
+    private void startSearch() {
+        generation++;
+        matchQuery = toMatchQuery(editTextSearch.getText().toString());
+        loadedCount = 0;
+        loading = false;
+        hasMore = matchQuery != null;
+        resultAdapter.updateResults(new ArrayList<>());
+        textViewEmptyState.setVisibility(View.GONE);
+        if (matchQuery != null) {
+            loadPage();
+        }
+    }
+
+    private void loadPage() {
+        int requestGeneration = generation;
+        String query = matchQuery;
+        int offset = loadedCount;
+        loading = true;
+
+        // Searches are read-only and run on the shared read pool alongside the writer
+        TaskDispatcher.getInstance().execute(TaskDispatcher.Lane.DB_READ, this, () -> {
+            List<MessageSearchResult> page;
+            try {
+                page = conversationId != null
+                        ? messageSearchDao.searchInConversation(query, conversationId, PAGE_SIZE, offset)
+                        : messageSearchDao.search(query, PAGE_SIZE, offset);
+            } catch (RuntimeException e) {
+                // Malformed MATCH expressions surface as SQLite errors, treat them as no results
+                page = new ArrayList<>();
+            }
+
+            List<MessageSearchResult> results = page;
+            runOnUiThread(() -> {
+                if (requestGeneration != generation) return;
+                loading = false;
+                hasMore = results.size() == PAGE_SIZE;
+                loadedCount += results.size();
+                resultAdapter.appendResults(results);
+                textViewEmptyState.setVisibility(loadedCount == 0 ? View.VISIBLE : View.GONE);
+            });
+        });
+    }
+
+    /**
+     * 把用户输入转换为 FTS MATCH 表达式：按空白拆分，每个词作为前缀短语，多个词之间为 AND
+     * 返回 null 表示输入中没有可搜索的内容
+     */
+    private static String toMatchQuery(String input) {
+        StringBuilder query = new StringBuilder();
+        for (String term : input.trim().split("\\s+")) {
+            // Quotes and FTS operators in user input would otherwise change the query syntax
+            String cleaned = term.replaceAll("[\"*^():]", "");
+            if (cleaned.isEmpty()) continue;
+            if (query.length() > 0) query.append(' ');
+            query.append('"').append(cleaned).append("*\"");
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+    @Override
+    public void onResultClick(MessageSearchResult result) {
+        Intent intent;
+        if (result.getGroupId() != null) {
+            intent = new Intent(this, GroupChatActivity.class);
+            intent.putExtra(GroupChatActivity.EXTRA_GROUP_ID, result.getGroupId());
+        } else {
+            String peerId = currentUserId.equals(result.getSenderId())
+                    ? result.getReceiverId() : result.getSenderId();
+            boolean isAiChat = "ai_assistant".equals(peerId);
+            intent = new Intent(this, ChatActivity.class);
+            intent.putExtra(ChatActivity.EXTRA_CHAT_NAME, isAiChat ? "AI助手" : peerId);
+            intent.putExtra(ChatActivity.EXTRA_CHAT_USER_ID, peerId);
+            intent.putExtra(ChatActivity.EXTRA_IS_AI_CHAT, isAiChat);
+        }
+        startActivity(intent);
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        onBackPressed();
+        return true;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        handler.removeCallbacks(pendingSearch);
+    }
+}
@@ -0,0 +1,123 @@
+package com.chatchat.ui.search;
+
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import com.chatchat.R;
+import com.chatchat.model.MessageSearchResult;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 消息搜索结果适配器
+ */
+public class MessageSearchAdapter extends RecyclerView.Adapter<MessageSearchAdapter.ResultViewHolder> {
+
+    private List<MessageSearchResult> results;
+    private OnResultClickListener listener;
+
+    public interface OnResultClickListener {
+        void onResultClick(MessageSearchResult result);
+    }
+
+    public MessageSearchAdapter(List<MessageSearchResult> results, OnResultClickListener listener) {
+        this.results = results;
+        this.listener = listener;
+    }
+
+    public void updateResults(List<MessageSearchResult> newResults) {
+        this.results = newResults;
+        notifyDataSetChanged();
+    }
+
+    public void appendResults(List<MessageSearchResult> moreResults) {
+        if (moreResults.isEmpty()) return;
+        int start = results.size();
+        results.addAll(moreResults);
+        notifyItemRangeInserted(start, moreResults.size());
+    }
+
+    @NonNull
+    @Override
+    public ResultViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_message_search, parent, false);
+        return new ResultViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ResultViewHolder holder, int position) {
+        holder.bind(results.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return results.size();
+    }
+
+    /**
+     * 把 snippet 中的高亮标记转换为加粗着色的文本
+     */
+    private static CharSequence highlight(String snippet, int color) {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        if (snippet == null) return builder;
+
+        int highlightStart = -1;
+        for (int i = 0; i < snippet.length(); i++) {
+            char c = snippet.charAt(i);
+            if (c == MessageSearchResult.HIGHLIGHT_START) {
+                highlightStart = builder.length();
+            } else if (c == MessageSearchResult.HIGHLIGHT_END) {
+                if (highlightStart >= 0) {
+                    builder.setSpan(new StyleSpan(Typeface.BOLD), highlightStart, builder.length(),
+                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    builder.setSpan(new ForegroundColorSpan(color), highlightStart, builder.length(),
+                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+                highlightStart = -1;
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder;
+    }
+
+    class ResultViewHolder extends RecyclerView.ViewHolder {
+        private TextView textViewSender;
+        private TextView textViewTime;
+        private TextView textViewSnippet;
+
+        public ResultViewHolder(@NonNull View itemView) {
+            super(itemView);
+            textViewSender = itemView.findViewById(R.id.textViewSender);
+            textViewTime = itemView.findViewById(R.id.textViewTime);
+            textViewSnippet = itemView.findViewById(R.id.textViewSnippet);
+
+            itemView.setOnClickListener(v -> {
+                if (listener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
+                    listener.onResultClick(results.get(getAdapterPosition()));
+                }
+            });
+        }
+
+        public void bind(MessageSearchResult result) {
+            textViewSender.setText(result.getSenderId());
+
+            SimpleDateFormat timeFormat = new SimpleDateFormat("MM-dd HH:mm", Locale.getDefault());
+            textViewTime.setText(timeFormat.format(new Date(result.getTimestamp())));
+
+            int highlightColor = itemView.getContext().getColor(R.color.primary);
+            textViewSnippet.setText(highlight(result.getSnippet(), highlightColor));
+        }
+    }
+}
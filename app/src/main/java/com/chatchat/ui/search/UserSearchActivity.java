@@ -16,10 +16,9 @@ import com.chatchat.database.AppDatabase;
 import com.chatchat.database.UserDao;
 import com.chatchat.model.User;
 import com.chatchat.ui.profile.UserProfileActivity;
+import com.chatchat.utils.TaskDispatcher;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * 用户搜索页面
@@ -33,7 +32,6 @@ public class UserSearchActivity extends AppCompatActivity implements UserSearchA
     private List<User> filteredUsers;
     
     private UserDao userDao;
-    private ExecutorService executor;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -85,11 +83,7 @@ public class UserSearchActivity extends AppCompatActivity implements UserSearchA
     }
     
     private void loadUsers() {
-        if (executor == null) {
-            executor = Executors.newSingleThreadExecutor();
-        }
-        
-        executor.execute(() -> {
+        TaskDispatcher.getInstance().execute(TaskDispatcher.Lane.DB_READ, this, () -> {
             if (userDao == null) {
                 AppDatabase database = AppDatabase.getDatabase(this);
                 userDao = database.userDao();
@@ -162,12 +156,4 @@ public class UserSearchActivity extends AppCompatActivity implements UserSearchA
         onBackPressed();
         return true;
     }
-    
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (executor != null) {
-            executor.shutdown();
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.chatchat.utils;
+
+import android.util.Log;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一条执行通道的任务统计：排队等待时间和执行时间，超过 100ms 的任务会打印警告
+ */
+public final class LaneStats {
+
+    private static final String TAG = "LaneStats";
+    private static final long SLOW_TASK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String name;
+    private final AtomicLong taskCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    public LaneStats(String name) {
+        this.name = name;
+    }
+
+    public void record(long waitNanos, long runNanos) {
+        taskCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        totalRunNanos.addAndGet(runNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        maxRunNanos.accumulateAndGet(runNanos, Math::max);
+        if (waitNanos + runNanos > SLOW_TASK_NANOS) {
+            Log.w(TAG, String.format(Locale.US, "slow %s task: waited %.1f ms, ran %.1f ms",
+                    name, waitNanos / 1e6, runNanos / 1e6));
+        }
+    }
+
+    public void reset() {
+        taskCount.set(0);
+        totalWaitNanos.set(0);
+        maxWaitNanos.set(0);
+        totalRunNanos.set(0);
+        maxRunNanos.set(0);
+    }
+
+    public long getTaskCount() { return taskCount.get(); }
+
+    public double getAverageWaitMillis() {
+        long count = taskCount.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count;
+    }
+
+    public double getMaxWaitMillis() { return maxWaitNanos.get() / 1e6; }
+
+    public double getAverageRunMillis() {
+        long count = taskCount.get();
+        return count == 0 ? 0 : totalRunNanos.get() / 1e6 / count;
+    }
+
+    public double getMaxRunMillis() { return maxRunNanos.get() / 1e6; }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: %d tasks, wait avg %.2f ms / max %.2f ms, run avg %.2f ms / max %.2f ms",
+                name, getTaskCount(), getAverageWaitMillis(), getMaxWaitMillis(),
+                getAverageRunMillis(), getMaxRunMillis());
+    }
+}
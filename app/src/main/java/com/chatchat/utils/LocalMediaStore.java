@@ -0,0 +1,180 @@
+package com.chatchat.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.Log;
+import com.chatchat.database.AppDatabase;
+import com.chatchat.database.MediaBlobDao;
+import com.chatchat.model.MediaBlob;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内容寻址的本地媒体存储
+ * 附件在发送时复制一次到应用私有目录，以 SHA-256 命名，相同内容只保存一份；
+ * 图片同时生成缩略图，消息列表只加载缩略图，不再反复通过 ContentResolver 解码原图。
+ * 消息通过 mediaHash 引用文件，引用计数在写入/删除消息的事务中维护
+ */
+public class LocalMediaStore {
+
+    private static final String TAG = "LocalMediaStore";
+    private static final String MEDIA_DIR = "media";
+    private static final String THUMBNAIL_DIR = "thumbnails";
+    private static final int THUMBNAIL_SIZE = 320;
+    private static final long GC_GRACE_PERIOD = TimeUnit.HOURS.toMillis(1);
+
+    private final Context context;
+    private final MediaBlobDao mediaBlobDao;
+
+    public LocalMediaStore(Context context) {
+        this.context = context.getApplicationContext();
+        this.mediaBlobDao = AppDatabase.getDatabase(context).mediaBlobDao();
+    }
+
+    /**
+     * 复制附件到媒体库并返回内容哈希；已存在相同内容时直接复用。需在后台线程调用
+     */
+    public String importFromUri(Uri uri) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+        File tempFile = createTempFile();
+        try {
+            MessageDigest digest = newDigest();
+            long size = 0;
+            try (InputStream in = new DigestInputStream(resolver.openInputStream(uri), digest);
+                 OutputStream out = new FileOutputStream(tempFile)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            String hash = toHex(digest.digest());
+            store(tempFile, hash, resolver.getType(uri), size);
+            return hash;
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * 把内容已校验过的临时文件以 hash 存入媒体库；已存在相同内容时直接复用。调用方负责删除临时文件，需在后台线程调用
+     */
+    public void store(File tempFile, String hash, String mimeType, long size) throws IOException {
+        File mediaFile = getMediaFile(hash);
+        if (mediaFile.exists() && mediaBlobDao.touch(hash, System.currentTimeMillis()) > 0) {
+            return;
+        }
+
+        mediaFile.getParentFile().mkdirs();
+        if (!tempFile.renameTo(mediaFile)) {
+            throw new IOException("Failed to move media into " + mediaFile);
+        }
+
+        MediaBlob blob = new MediaBlob();
+        blob.setHash(hash);
+        blob.setMimeType(mimeType);
+        blob.setSize(size);
+        blob.setImportedAt(System.currentTimeMillis());
+        if (mimeType != null && mimeType.startsWith("image/")) {
+            writeThumbnail(mediaFile, getThumbnailFile(context, hash), blob);
+        }
+        mediaBlobDao.insertIfAbsent(blob);
+    }
+
+    /**
+     * 本地是否已有这份内容
+     */
+    public boolean contains(String hash) {
+        return getMediaFile(hash).exists() && mediaBlobDao.getByHash(hash) != null;
+    }
+
+    public File createTempFile() throws IOException {
+        return File.createTempFile("import", ".tmp", context.getCacheDir());
+    }
+
+    public File getMediaFile(String hash) {
+        return getMediaFile(context, hash);
+    }
+
+    // Two-character fan-out keeps directories small
+    public static File getMediaFile(Context context, String hash) {
+        return new File(new File(new File(context.getFilesDir(), MEDIA_DIR), hash.substring(0, 2)), hash);
+    }
+
+    public static File getThumbnailFile(Context context, String hash) {
+        return new File(new File(new File(context.getFilesDir(), MEDIA_DIR), THUMBNAIL_DIR), hash + ".jpg");
+    }
+
+    /**
+     * 删除不再被任何消息引用的文件，返回删除的数量
+     */
+    public int collectGarbage() {
+        int deleted = 0;
+        for (MediaBlob blob : mediaBlobDao.getUnreferenced(System.currentTimeMillis() - GC_GRACE_PERIOD)) {
+            // The row is deleted first; if a message grabbed a reference meanwhile the delete is a no-op
+            if (mediaBlobDao.deleteIfUnreferenced(blob.getHash()) > 0) {
+                getMediaFile(blob.getHash()).delete();
+                getThumbnailFile(context, blob.getHash()).delete();
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private void writeThumbnail(File source, File target, MediaBlob blob) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(source.getAbsolutePath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return;
+        }
+        blob.setWidth(bounds.outWidth);
+        blob.setHeight(bounds.outHeight);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (Math.max(bounds.outWidth, bounds.outHeight) / (options.inSampleSize * 2) >= THUMBNAIL_SIZE) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(source.getAbsolutePath(), options);
+        if (bitmap == null) {
+            return;
+        }
+        target.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(target)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 80, out);
+            blob.setHasThumbnail(true);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write thumbnail for " + blob.getHash(), e);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.chatchat.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.security.SecureRandom;
+
+/**
+ * 消息ID生成器
+ * 64位ID = 41位毫秒时间（自 EPOCH 起） | 16位设备节点 | 6位序号。
+ * 同一设备上严格递增（时钟回拨时沿用上一次的时间），不同设备之间按生成时间排序，
+ * 因此新消息总是追加在主键索引的最右端，会话内分页只需按 messageId 排序。
+ * 节点号是每个安装随机选取的，两台设备仍可能选到同一个节点并在同一毫秒生成相同的ID，
+ * 写入时由 MessageDao 检测这种冲突并为后写入的消息重新分配ID
+ */
+public class MessageIdGenerator {
+
+    public static final long EPOCH = 1577836800000L; // 2020-01-01T00:00:00Z
+
+    private static final int NODE_BITS = 16;
+    private static final int SEQUENCE_BITS = 6;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    // Node 0 is reserved for ids assigned to pre-existing messages during the database migration
+    public static final int MIGRATION_NODE = 0;
+
+    private static final String PREFS_NAME = "message_id_prefs";
+    private static final String KEY_NODE = "node";
+
+    private static volatile MessageIdGenerator instance;
+
+    private final long node;
+    private long lastMillis = -1;
+    private long sequence;
+
+    MessageIdGenerator(long node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node must be in [0, " + MAX_NODE + "]: " + node);
+        }
+        this.node = node;
+    }
+
+    /**
+     * 设备节点号在首次使用时随机生成并保存
+     */
+    public static MessageIdGenerator getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MessageIdGenerator.class) {
+                if (instance == null) {
+                    SharedPreferences prefs = context.getApplicationContext()
+                            .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                    int node = prefs.getInt(KEY_NODE, -1);
+                    if (node < 0) {
+                        node = 1 + new SecureRandom().nextInt((int) MAX_NODE);
+                        prefs.edit().putInt(KEY_NODE, node).apply();
+                    }
+                    instance = new MessageIdGenerator(node);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public synchronized long nextId() {
+        long millis = Math.max(System.currentTimeMillis() - EPOCH, lastMillis);
+        if (millis == lastMillis) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) {
+                // Sequence exhausted within this millisecond, borrow the next one
+                millis++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = millis;
+        return compose(millis + EPOCH, node, sequence);
+    }
+
+    public static long compose(long timestamp, long node, long sequence) {
+        long millis = Math.max(timestamp - EPOCH, 0);
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * ID 中包含的生成时间（毫秒时间戳）
+     */
+    public static long timestampOf(long messageId) {
+        return (messageId >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    public static long maxSequence() {
+        return MAX_SEQUENCE;
+    }
+}
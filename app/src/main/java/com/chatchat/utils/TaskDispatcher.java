@@ -0,0 +1,228 @@
+package com.chatchat.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 全局任务调度器，替代各页面各自创建的单线程执行器
+ * 任务按用途提交到固定的通道：串行的数据库写通道、有界的数据库读线程池、计算通道和低优先级后台通道。
+ * 数据库通道同时也是 Room 的查询和事务执行器。每条通道记录排队深度以及等待/执行耗时；
+ * 绑定 LifecycleOwner 提交的任务在其销毁时取消（尚未开始的不再执行，已开始的不会被中断）
+ */
+public final class TaskDispatcher {
+
+    public enum Lane {
+        /** 串行写通道：SQLite 同一时刻只允许一个写者 */
+        DB_WRITE,
+        /** 并发读线程池 */
+        DB_READ,
+        /** 解析、加解密、渲染前的数据准备等计算任务 */
+        CPU,
+        /** 低优先级后台任务：文件复制、清理等 */
+        BACKGROUND
+    }
+
+    private static final String TAG = "TaskDispatcher";
+
+    public static final int DB_READ_POOL_SIZE = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile TaskDispatcher instance;
+
+    private final Map<Lane, LaneExecutor> lanes = new EnumMap<>(Lane.class);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private TaskDispatcher() {
+        int cpuThreads = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        lanes.put(Lane.DB_WRITE, new LaneExecutor("db-write", 1, Process.THREAD_PRIORITY_DEFAULT));
+        lanes.put(Lane.DB_READ, new LaneExecutor("db-read", DB_READ_POOL_SIZE, Process.THREAD_PRIORITY_DEFAULT));
+        lanes.put(Lane.CPU, new LaneExecutor("cpu", cpuThreads, Process.THREAD_PRIORITY_DEFAULT));
+        lanes.put(Lane.BACKGROUND, new LaneExecutor("background", 1, Process.THREAD_PRIORITY_BACKGROUND));
+    }
+
+    public static TaskDispatcher getInstance() {
+        if (instance == null) {
+            synchronized (TaskDispatcher.class) {
+                if (instance == null) {
+                    instance = new TaskDispatcher();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 通道的执行器，用于需要 Executor 的接口（如 Room）
+     */
+    public Executor executor(Lane lane) {
+        return lanes.get(lane);
+    }
+
+    /**
+     * 提交一个不随页面取消的任务
+     */
+    public Future<?> execute(Lane lane, Runnable task) {
+        TrackedTask tracked = new TrackedTask(task);
+        lanes.get(lane).execute(tracked);
+        return tracked;
+    }
+
+    /**
+     * 提交一个绑定到 owner 生命周期的任务，owner 销毁时任务被取消；需要在主线程调用
+     */
+    public Future<?> execute(Lane lane, LifecycleOwner owner, Runnable task) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        LaneExecutor executor = lanes.get(lane);
+        TrackedTask tracked = new TrackedTask(task);
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            tracked.cancel(false);
+            return tracked;
+        }
+        LifecycleEventObserver observer = (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                tracked.cancel(false);
+                executor.remove(tracked);
+            }
+        };
+        lifecycle.addObserver(observer);
+        tracked.onDone = () -> mainHandler.post(() -> lifecycle.removeObserver(observer));
+        executor.execute(tracked);
+        return tracked;
+    }
+
+    public LaneStats getStats(Lane lane) {
+        return lanes.get(lane).stats;
+    }
+
+    /**
+     * 通道中排队等待执行的任务数
+     */
+    public int getQueueDepth(Lane lane) {
+        return lanes.get(lane).getQueue().size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<Lane, LaneExecutor> entry : lanes.entrySet()) {
+            LaneExecutor executor = entry.getValue();
+            builder.append(String.format(Locale.US, "%s (queued %d, active %d) %s%n", entry.getKey(),
+                    executor.getQueue().size(), executor.getActiveCount(), executor.stats));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 记录入队时间的任务
+     */
+    private interface Timed {
+        long getEnqueuedAt();
+    }
+
+    private static final class TimedRunnable implements Runnable, Timed {
+        private final Runnable delegate;
+        private final long enqueuedAt = System.nanoTime();
+
+        TimedRunnable(Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+
+        @Override
+        public long getEnqueuedAt() {
+            return enqueuedAt;
+        }
+    }
+
+    private static final class TrackedTask extends FutureTask<Void> implements Timed {
+        private final long enqueuedAt = System.nanoTime();
+        volatile Runnable onDone;
+
+        TrackedTask(Runnable task) {
+            super(task, null);
+        }
+
+        @Override
+        public long getEnqueuedAt() {
+            return enqueuedAt;
+        }
+
+        @Override
+        protected void done() {
+            if (!isCancelled()) {
+                try {
+                    get();
+                } catch (ExecutionException e) {
+                    // FutureTask would otherwise swallow the failure
+                    Log.e(TAG, "Task failed", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Runnable callback = onDone;
+            if (callback != null) callback.run();
+        }
+    }
+
+    private static final class LaneExecutor extends ThreadPoolExecutor {
+        final LaneStats stats;
+        private final ThreadLocal<Long> startedAt = new ThreadLocal<>();
+
+        LaneExecutor(String name, int threads, int priority) {
+            super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    threadFactory(name, priority));
+            allowCoreThreadTimeOut(true);
+            this.stats = new LaneStats(name);
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            super.execute(command instanceof Timed ? command : new TimedRunnable(command));
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable runnable) {
+            startedAt.set(System.nanoTime());
+        }
+
+        @Override
+        protected void afterExecute(Runnable runnable, Throwable throwable) {
+            long started = startedAt.get();
+            stats.record(started - ((Timed) runnable).getEnqueuedAt(), System.nanoTime() - started);
+        }
+
+        private static ThreadFactory threadFactory(String name, int priority) {
+            AtomicInteger counter = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(priority);
+                    runnable.run();
+                }, name + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
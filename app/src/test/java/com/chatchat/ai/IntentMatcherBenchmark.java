@@ -0,0 +1,143 @@
+package com.chatchat.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 意图匹配耗时基准测试
+ * legacyMatch 复现了改动前的做法（整条消息转小写后按规则顺序逐个 contains），作为对照。
+ * 规则集由随机生成的中英文关键字组成，每条规则 3 个关键字。在 IDE 中直接运行 main 方法即可
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntentMatcherBenchmark {
+
+    private static final String HAN = "的一是在不了有和人这中大为上个国我以要他时来用们生到作地于出就分对成会可主发年动同工也能下过子说产种面而方后多定行学法所民得经";
+    // Message text draws from a disjoint set so the miss case really misses
+    private static final String MESSAGE_HAN = "你好请问今天明天晚饭开项目进度怎么样谢谢周末电影";
+    private static final int KEYWORDS_PER_RULE = 3;
+
+    @Param({"10", "1000"})
+    public int ruleCount;
+
+    private List<IntentRule> rules;
+    private IntentMatcher matcher;
+    private String missMessage;
+    private String hitMessage;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rules = randomRules(random, ruleCount);
+        matcher = IntentMatcher.compile(rules);
+
+        // Typical chat message length; the miss case scans every rule in the legacy chain
+        missMessage = randomMessage(random, 60);
+        hitMessage = missMessage + rules.get(ruleCount / 2).getKeywords().get(1).toUpperCase(Locale.ROOT);
+    }
+
+    @Benchmark
+    public IntentRule legacyMatchMiss() {
+        return legacyMatch(rules, missMessage);
+    }
+
+    @Benchmark
+    public IntentRule matchMiss() {
+        return matcher.match(missMessage);
+    }
+
+    @Benchmark
+    public IntentRule legacyMatchHit() {
+        return legacyMatch(rules, hitMessage);
+    }
+
+    @Benchmark
+    public IntentRule matchHit() {
+        return matcher.match(hitMessage);
+    }
+
+    @Benchmark
+    public IntentMatcher compile() {
+        return IntentMatcher.compile(rules);
+    }
+
+    /**
+     * 基准测试用的规则集，IntentMatcherTest 用同一个规则集校验匹配结果
+     */
+    static List<IntentRule> randomRules(Random random, int ruleCount) {
+        List<IntentRule> rules = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            List<String> keywords = new ArrayList<>(KEYWORDS_PER_RULE);
+            for (int k = 0; k < KEYWORDS_PER_RULE; k++) {
+                keywords.add(k % 2 == 0 ? randomHan(random, HAN, 2 + random.nextInt(3)) : randomLatin(random, 4 + random.nextInt(5)));
+            }
+            rules.add(new IntentRule("rule" + i, random.nextInt(100), keywords, "reply " + i));
+        }
+        return rules;
+    }
+
+    static String randomMessage(Random random, int minLength) {
+        StringBuilder message = new StringBuilder();
+        while (message.length() < minLength) {
+            message.append(random.nextBoolean() ? randomHan(random, MESSAGE_HAN, 3) : " Zq" + random.nextInt(1000) + " ");
+        }
+        return message.toString();
+    }
+
+    static IntentRule legacyMatch(List<IntentRule> rules, String message) {
+        String lowerMessage = message.toLowerCase();
+        IntentRule best = null;
+        for (IntentRule rule : rules) {
+            for (String keyword : rule.getKeywords()) {
+                if (lowerMessage.contains(keyword.toLowerCase())) {
+                    if (best == null || rule.getPriority() > best.getPriority()) best = rule;
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static String randomHan(Random random, String alphabet, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+
+    private static String randomLatin(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IntentMatcherBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,91 @@
+package com.chatchat.ai;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * 意图匹配测试：重叠和互为后缀的关键字、优先级相同时的取舍、大小写，
+ * 以及在基准测试的规则集上与原来逐条 contains 的做法结果一致
+ */
+public class IntentMatcherTest {
+
+    @Test
+    public void overlappingKeywordsAreAllFound() {
+        IntentRule he = rule("he", 1, "he");
+        IntentRule she = rule("she", 3, "she");
+        IntentRule hers = rule("hers", 2, "hers");
+
+        assertSame(she, IntentMatcher.compile(Arrays.asList(he, she, hers)).match("ushers"));
+        assertSame(hers, IntentMatcher.compile(Arrays.asList(he, hers)).match("ushers"));
+        assertSame(he, IntentMatcher.compile(Collections.singletonList(he)).match("ushers"));
+    }
+
+    @Test
+    public void suffixKeywordIsFoundThroughFailureLinks() {
+        IntentRule whole = rule("long", 5, "abcd");
+        IntentRule suffix = rule("suffix", 1, "bc");
+        IntentMatcher matcher = IntentMatcher.compile(Arrays.asList(whole, suffix));
+
+        // The scan is inside "abcd" when "bc" completes, only the failure link of "abc" reaches it
+        assertSame(suffix, matcher.match("xabce"));
+        assertSame(whole, matcher.match("xabcd"));
+        assertNull(matcher.match("abdc"));
+    }
+
+    @Test
+    public void tiesGoToTheRuleDefinedFirst() {
+        IntentRule first = rule("first", 2, "later");
+        IntentRule second = rule("second", 2, "early");
+        IntentRule lower = rule("lower", 1, "any");
+        IntentMatcher matcher = IntentMatcher.compile(Arrays.asList(first, second, lower));
+
+        assertSame(first, matcher.match("early any later"));
+        assertSame(second, matcher.match("any early"));
+    }
+
+    @Test
+    public void matchingIgnoresCase() {
+        IntentRule greeting = rule("greeting", 1, "Hello", "你好");
+        IntentMatcher matcher = IntentMatcher.compile(Collections.singletonList(greeting));
+
+        assertSame(greeting, matcher.match("HELLO there"));
+        assertSame(greeting, matcher.match("say hElLo"));
+        assertSame(greeting, matcher.match("你好呀"));
+        assertNull(matcher.match("help"));
+        assertNull(matcher.match(""));
+    }
+
+    @Test
+    public void agreesWithTheContainsChainOnTheBenchmarkRules() {
+        Random random = new Random(42);
+        List<IntentRule> rules = IntentMatcherBenchmark.randomRules(random, 1000);
+        IntentMatcher matcher = IntentMatcher.compile(rules);
+
+        int hits = 0;
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder message = new StringBuilder(IntentMatcherBenchmark.randomMessage(random, 20 + random.nextInt(60)));
+            // Most messages carry a few keywords of random rules, in random case, at random positions
+            int keywords = random.nextInt(4);
+            for (int k = 0; k < keywords; k++) {
+                List<String> pool = rules.get(random.nextInt(rules.size())).getKeywords();
+                String keyword = pool.get(random.nextInt(pool.size()));
+                if (random.nextBoolean()) keyword = keyword.toUpperCase(Locale.ROOT);
+                message.insert(random.nextInt(message.length() + 1), keyword);
+            }
+            String text = message.toString();
+            IntentRule expected = IntentMatcherBenchmark.legacyMatch(rules, text);
+            assertSame(text, expected, matcher.match(text));
+            if (expected != null) hits++;
+        }
+        assertTrue(hits > 1000);
+    }
+
+    private static IntentRule rule(String id, int priority, String... keywords) {
+        return new IntentRule(id, priority, Arrays.asList(keywords), id);
+    }
+}
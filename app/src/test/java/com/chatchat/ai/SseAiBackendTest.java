@@ -0,0 +1,143 @@
+package com.chatchat.ai;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * SseAiBackend 流式解析、取消和超时测试
+ * 使用进程内的 MockWebServer 作为服务端，不依赖网络
+ */
+public class SseAiBackendTest {
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        client.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    public void streamsTokensUntilDone() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(": keep-alive\n\n"
+                        + "data: {\"token\":\"你好\"}\n\n"
+                        + "data: {\"choices\":[{\"delta\":{\"content\":\"，世界\"}}]}\n\n"
+                        + "data: [DONE]\n\n"
+                        + "data: {\"token\":\"ignored\"}\n\n"));
+
+        RecordingListener listener = new RecordingListener();
+        backend(5_000).stream(AiRequest.of("d:a:ai_assistant", "hello"), listener);
+
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertNull(listener.error.get());
+        assertEquals("你好，世界", listener.tokens.toString());
+        assertEquals("你好，世界", listener.fullText.get());
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("Bearer token", request.getHeader("Authorization"));
+        assertTrue(request.getBody().readUtf8().contains("\"stream\":true"));
+    }
+
+    @Test
+    public void httpErrorIsReported() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        RecordingListener listener = new RecordingListener();
+        backend(5_000).stream(AiRequest.of("d:a:ai_assistant", "hello"), listener);
+
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertNotNull(listener.error.get());
+        assertNull(listener.fullText.get());
+    }
+
+    @Test
+    public void stalledStreamTimesOut() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody("data: {\"token\":\"a\"}\n\n")
+                .setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        RecordingListener listener = new RecordingListener();
+        backend(300).stream(AiRequest.of("d:a:ai_assistant", "hello"), listener);
+
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertNotNull(listener.error.get());
+    }
+
+    @Test
+    public void canceledCallReportsNothing() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody("data: {\"token\":\"a\"}\n\ndata: [DONE]\n\n")
+                .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+
+        RecordingListener listener = new RecordingListener();
+        AiCall call = backend(5_000).stream(AiRequest.of("d:a:ai_assistant", "hello"), listener);
+        call.cancel();
+
+        assertTrue(call.isCanceled());
+        assertFalse(listener.done.await(1, TimeUnit.SECONDS));
+        assertEquals(0, listener.tokens.length());
+    }
+
+    @Test
+    public void parseTokenIgnoresUnknownEvents() {
+        SseAiBackend backend = backend(5_000);
+        assertEquals("x", backend.parseToken("{\"token\":\"x\"}"));
+        assertNull(backend.parseToken("{\"choices\":[{\"delta\":{}}]}"));
+        assertNull(backend.parseToken("{\"other\":1}"));
+        assertNull(backend.parseToken("not json"));
+        assertNull(backend.parseToken("{\"token\":null}"));
+        assertNull(backend.parseToken("{\"token\":{}}"));
+        assertNull(backend.parseToken("{\"choices\":[1]}"));
+        assertNull(backend.parseToken("{\"choices\":{}}"));
+    }
+
+    private SseAiBackend backend(long timeoutMillis) {
+        return new SseAiBackend(client, server.url("/v1/chat").toString(), "token", timeoutMillis, timeoutMillis);
+    }
+
+    private static final class RecordingListener implements AiStreamListener {
+        final StringBuffer tokens = new StringBuffer();
+        final AtomicReference<String> fullText = new AtomicReference<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        public void onToken(String token) {
+            tokens.append(token);
+        }
+
+        @Override
+        public void onComplete(String text) {
+            fullText.set(text);
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            done.countDown();
+        }
+    }
+}
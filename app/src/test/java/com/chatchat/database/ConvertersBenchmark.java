@@ -0,0 +1,56 @@
+package com.chatchat.database;
+
+import com.chatchat.model.Message;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Converters 单行解码耗时基准测试
+ * legacy* 方法复现了改动前的实现（按枚举名保存，读取时 Enum.valueOf），作为对照。
+ * 在 IDE 中直接运行 main 方法即可
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertersBenchmark {
+
+    private String legacyEncodedType;
+    private Integer encodedType;
+
+    @Setup
+    public void setUp() {
+        legacyEncodedType = Message.MessageType.MARKDOWN.name();
+        encodedType = Converters.fromMessageType(Message.MessageType.MARKDOWN);
+    }
+
+    @Benchmark
+    public Message.MessageType legacyDecodeMessageType() {
+        return Message.MessageType.valueOf(legacyEncodedType);
+    }
+
+    @Benchmark
+    public Message.MessageType decodeMessageType() {
+        return Converters.toMessageType(encodedType);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConvertersBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,206 @@
+package com.chatchat.sync;
+
+import androidx.lifecycle.LiveData;
+import com.chatchat.database.ChatGroupDao;
+import com.chatchat.database.MessageDao;
+import com.chatchat.database.SyncCursorDao;
+import com.chatchat.database.UserDao;
+import com.chatchat.model.ChatGroup;
+import com.chatchat.model.GroupMember;
+import com.chatchat.model.Message;
+import com.chatchat.model.SyncCursor;
+import com.chatchat.model.User;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 同步测试共用的内存 DAO：消息表和游标表放在内存中，DAO 的默认方法（事务）照常运行在这些表上。
+ * 同步用不到的查询抛出 UnsupportedOperationException；会话摘要、群组和媒体引用计数不做记录
+ */
+class InMemoryDaos {
+
+    final TreeMap<Long, Message> messages = new TreeMap<>();
+    final Map<String, String> cursors = new HashMap<>();
+
+    final MessageDao messageDao = new Messages();
+    final UserDao userDao = new Users();
+    final ChatGroupDao chatGroupDao = new Groups();
+    final SyncCursorDao syncCursorDao = new Cursors();
+
+    void put(Message message) {
+        // Rows are copied in and out, like a real query returns fresh objects
+        messages.put(message.getMessageId(), message.copy());
+    }
+
+    private void saveCursor(SyncCursor cursor) {
+        cursors.put(cursor.getStream(), cursor.getCursor());
+    }
+
+    class Messages implements MessageDao {
+        @Override public void insertMessage(Message message) { put(message); }
+        @Override public void insertMessages(List<Message> list) { for (Message m : list) put(m); }
+        @Override public void upsertMessage(Message message) { put(message); }
+        @Override public void upsertMessages(List<Message> list) { for (Message m : list) put(m); }
+
+        @Override
+        public long insertMessageIfAbsent(Message message) {
+            if (messages.containsKey(message.getMessageId())) return -1;
+            put(message);
+            return message.getMessageId();
+        }
+
+        @Override
+        public Message getMessageById(long messageId) {
+            Message message = messages.get(messageId);
+            return message == null ? null : message.copy();
+        }
+
+        @Override
+        public Message getMessageByClientKey(long clientKey) {
+            for (Message message : messages.values()) {
+                if (message.getClientKey() == clientKey) return message.copy();
+            }
+            return null;
+        }
+
+        @Override
+        public void recallMessage(long messageId) {
+            Message message = messages.get(messageId);
+            if (message != null && !message.isRecalled()) {
+                message.setRecalled(true);
+                message.setSentToCloud(false);
+            }
+        }
+
+        @Override
+        public void applyPulledRecall(long messageId) {
+            Message message = messages.get(messageId);
+            if (message != null) message.setRecalled(true);
+        }
+
+        @Override
+        public List<Message> getUnsyncedMessagesAfter(long afterMessageId, int limit) {
+            List<Message> page = new ArrayList<>();
+            for (Message message : messages.tailMap(afterMessageId, false).values()) {
+                if (page.size() == limit) break;
+                if (!message.isSentToCloud()) page.add(message.copy());
+            }
+            return page;
+        }
+
+        @Override
+        public int markMessagesAsSynced(List<Long> messageIds, boolean uploadedRecalled) {
+            int updated = 0;
+            for (Long messageId : messageIds) {
+                Message message = messages.get(messageId);
+                if (message != null && message.isRecalled() == uploadedRecalled) {
+                    message.setSentToCloud(true);
+                    updated++;
+                }
+            }
+            return updated;
+        }
+
+        @Override public boolean isArchived(String conversationId, long messageId) { return false; }
+        @Override public void saveSyncCursor(SyncCursor cursor) { InMemoryDaos.this.saveCursor(cursor); }
+
+        @Override public void updateGroupLastMessageIfNewer(String groupId, long messageId, long time) {}
+        @Override public void ensureConversation(String conversationId, String groupId, String userId1,
+                                                 String userId2) {}
+        @Override public void updateConversationLastMessageIfNewer(String conversationId, long messageId,
+                                                                   String preview, String senderId, long time) {}
+        @Override public void updateConversationPreviewFor(long messageId, String preview) {}
+        @Override public void acquireMedia(String hash) {}
+        @Override public void releaseMedia(String hash) {}
+
+        @Override public void updateMessage(Message message) { throw new UnsupportedOperationException(); }
+        @Override public void deleteMessage(Message message) { throw new UnsupportedOperationException(); }
+        @Override public void deleteMessageById(long messageId) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public List<Message> getConversationMessages(String conversationId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Message> getConversationMessagesBefore(String conversationId, long messageId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Message> getConversationMessagesAfter(String conversationId, long messageId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public LiveData<List<Message>> observeConversationRange(String conversationId, long startMessageId,
+                                                                long endMessageId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    class Users implements UserDao {
+        @Override public void saveSyncCursor(SyncCursor cursor) { InMemoryDaos.this.saveCursor(cursor); }
+        @Override public void insertUserIfAbsent(User user) {}
+        @Override public void updateProfile(String travelerId, String username, String avatarUrl,
+                                            String avatarAccessory, String publicKey, long lastSeen) {}
+
+        @Override public void insertUser(User user) { throw new UnsupportedOperationException(); }
+        @Override public void updateUser(User user) { throw new UnsupportedOperationException(); }
+        @Override public void deleteUser(User user) { throw new UnsupportedOperationException(); }
+        @Override public User getUserById(String travelerId) { throw new UnsupportedOperationException(); }
+        @Override public List<User> getAllUsers() { throw new UnsupportedOperationException(); }
+        @Override public List<User> getOnlineUsers() { throw new UnsupportedOperationException(); }
+        @Override public void updateUserStatus(String travelerId, boolean isOnline, long lastSeen) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void updateUserToken(String travelerId, String token) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void deleteUserById(String travelerId) { throw new UnsupportedOperationException(); }
+    }
+
+    class Groups implements ChatGroupDao {
+        @Override public void saveSyncCursor(SyncCursor cursor) { InMemoryDaos.this.saveCursor(cursor); }
+        @Override public void insertChatGroupIfAbsent(ChatGroup chatGroup) {}
+        @Override public void updateGroupProfile(String groupId, String groupName, String groupAvatarUrl,
+                                                 String description) {}
+        @Override public void ensureGroupConversation(String groupId, long createdAt) {}
+        @Override public void deleteGroupMembers(String groupId) {}
+        @Override public void insertGroupMembers(List<GroupMember> members) {}
+
+        @Override public void insertChatGroup(ChatGroup chatGroup) { throw new UnsupportedOperationException(); }
+        @Override public void insertChatGroups(List<ChatGroup> chatGroups) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void upsertChatGroup(ChatGroup chatGroup) { throw new UnsupportedOperationException(); }
+        @Override public void upsertChatGroups(List<ChatGroup> chatGroups) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void updateChatGroup(ChatGroup chatGroup) { throw new UnsupportedOperationException(); }
+        @Override public void deleteChatGroup(ChatGroup chatGroup) { throw new UnsupportedOperationException(); }
+        @Override public ChatGroup getChatGroupById(String groupId) { throw new UnsupportedOperationException(); }
+        @Override public List<ChatGroup> getAllChatGroups() { throw new UnsupportedOperationException(); }
+        @Override public void updateUnreadCount(String groupId, int count) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void updateLastMessage(String groupId, long messageId, long time) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void deleteChatGroupById(String groupId) { throw new UnsupportedOperationException(); }
+        @Override public void deleteGroupConversation(String groupId) { throw new UnsupportedOperationException(); }
+    }
+
+    class Cursors implements SyncCursorDao {
+        @Override
+        public SyncCursor getCursor(String stream) {
+            String cursor = cursors.get(stream);
+            return cursor == null ? null : new SyncCursor(stream, cursor);
+        }
+
+        @Override public void clear() { cursors.clear(); }
+    }
+}
@@ -0,0 +1,158 @@
+package com.chatchat.sync;
+
+import com.chatchat.database.MessageDao;
+import com.chatchat.model.Message;
+import com.chatchat.network.ApiClients;
+import com.chatchat.network.CloudSyncApi;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.GzipSource;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * 批量上传测试：进程内的 MockWebServer 作为云端，MessageDao 用内存中的表代替（InMemoryDaos）
+ */
+public class MessageUploaderTest {
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private CloudSyncApi api;
+    private final InMemoryDaos daos = new InMemoryDaos();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient();
+        api = ApiClients.cloudSync(client, server.url("/api").toString(), "token");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        client.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    public void uploadsInGzipBatchesAndMarksEachBatch() throws Exception {
+        int count = MessageUploader.READ_CHUNK_SIZE * 2 + 100;
+        addMessages(count, "hello");
+        // Each chunk read is split on its own: 200 + 200 + 100 per 500 rows, then 100
+        int expectedRequests = 2 * batchesFor(MessageUploader.READ_CHUNK_SIZE) + batchesFor(100);
+        for (int i = 0; i < expectedRequests; i++) {
+            server.enqueue(new MockResponse().setResponseCode(204));
+        }
+
+        int synced = new MessageUploader(daos.messageDao, api).uploadAll(() -> false);
+
+        assertEquals(count, synced);
+        assertEquals(expectedRequests, server.getRequestCount());
+        for (Message message : daos.messages.values()) {
+            assertTrue(message.isSentToCloud());
+        }
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/api/messages/batch", request.getPath());
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+        assertEquals("Bearer token", request.getHeader("Authorization"));
+        String json = Okio.buffer(new GzipSource(request.getBody())).readUtf8();
+        assertTrue(json.contains("\"messageId\":1,"));
+        assertTrue(json.contains("\"content\":\"hello\""));
+    }
+
+    @Test
+    public void failedBatchStaysUnsynced() {
+        addMessages(MessageUploader.MAX_BATCH_MESSAGES * 2, "hello");
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        try {
+            new MessageUploader(daos.messageDao, api).uploadAll(() -> false);
+            fail("Expected the second batch to fail");
+        } catch (IOException expected) {
+            // The worker retries from here
+        }
+
+        int synced = 0;
+        for (Message message : daos.messages.values()) {
+            if (message.isSentToCloud()) synced++;
+        }
+        assertEquals(MessageUploader.MAX_BATCH_MESSAGES, synced);
+    }
+
+    @Test
+    public void batchesAreBoundedBySize() {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) large.append('长');
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            messages.add(newMessage(i + 1, large.toString()));
+        }
+
+        List<List<Message>> batches = MessageUploader.splitIntoBatches(messages,
+                MessageUploader.MAX_BATCH_MESSAGES, MessageUploader.MAX_BATCH_BYTES);
+
+        int total = 0;
+        for (List<Message> batch : batches) {
+            int bytes = 0;
+            for (Message message : batch) bytes += MessageUploader.estimateBytes(message);
+            assertTrue(batch.size() == 1 || bytes <= MessageUploader.MAX_BATCH_BYTES);
+            total += batch.size();
+        }
+        assertEquals(10, total);
+        assertTrue(batches.size() > 1);
+    }
+
+    @Test
+    public void recallDuringUploadIsUploadedAgain() throws Exception {
+        addMessages(3, "hello");
+        MessageDao racing = daos.new Messages() {
+            @Override
+            public List<Message> getUnsyncedMessagesAfter(long afterMessageId, int limit) {
+                List<Message> page = super.getUnsyncedMessagesAfter(afterMessageId, limit);
+                // The recall commits after the batch was read and before the server confirms it
+                if (!page.isEmpty()) recallMessage(2);
+                return page;
+            }
+        };
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(new MockResponse().setResponseCode(204));
+
+        assertEquals(2, new MessageUploader(racing, api).uploadAll(() -> false));
+        Message recalled = daos.messages.get(2L);
+        assertTrue(recalled.isRecalled());
+        assertFalse(recalled.isSentToCloud());
+
+        assertEquals(1, new MessageUploader(daos.messageDao, api).uploadAll(() -> false));
+        assertTrue(daos.messages.get(2L).isSentToCloud());
+        server.takeRequest();
+        String json = Okio.buffer(new GzipSource(server.takeRequest().getBody())).readUtf8();
+        assertTrue(json.contains("\"messageId\":2,"));
+        assertTrue(json.contains("\"recalled\":true"));
+    }
+
+    private static int batchesFor(int messages) {
+        return (messages + MessageUploader.MAX_BATCH_MESSAGES - 1) / MessageUploader.MAX_BATCH_MESSAGES;
+    }
+
+    private void addMessages(int count, String content) {
+        for (int i = 0; i < count; i++) {
+            daos.put(newMessage(i + 1, content));
+        }
+    }
+
+    private static Message newMessage(long messageId, String content) {
+        Message message = new Message(messageId, "a", content, Message.MessageType.TEXT);
+        message.setReceiverId("b");
+        return message;
+    }
+}
@@ -0,0 +1,168 @@
+package com.chatchat.sync;
+
+import com.chatchat.model.Message;
+import com.chatchat.network.ApiClients;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * 拉取同步测试：进程内的 MockWebServer 按页返回变更，DAO 用内存中的游标表和消息表代替（InMemoryDaos）
+ */
+public class PullSyncerTest {
+
+    private static final String EMPTY_PAGE = "{\"items\":[],\"nextCursor\":null,\"hasMore\":false}";
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private final InMemoryDaos daos = new InMemoryDaos();
+    private PullSyncer syncer;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient();
+        syncer = new PullSyncer(daos.syncCursorDao, daos.userDao, daos.chatGroupDao, daos.messageDao,
+                ApiClients.cloudSync(client, server.url("/api/").toString(), null));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        client.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    public void resumesFromLastCommittedPage() throws Exception {
+        server.enqueue(new MockResponse().setBody(EMPTY_PAGE));
+        server.enqueue(new MockResponse().setBody(EMPTY_PAGE));
+        server.enqueue(new MockResponse().setBody(messagePage("c1", true, 1, 2)));
+        server.enqueue(new MockResponse().setBody(messagePage("c2", true, 3)));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        try {
+            syncer.pullAll(() -> false);
+            fail("Expected the third page to fail");
+        } catch (IOException expected) {
+            // Interrupted part-way through the message stream
+        }
+        assertEquals("c2", daos.cursors.get(PullSyncer.STREAM_MESSAGES));
+        assertEquals(Arrays.asList(1L, 2L, 3L), applied());
+
+        server.enqueue(new MockResponse().setBody(EMPTY_PAGE));
+        server.enqueue(new MockResponse().setBody(EMPTY_PAGE));
+        server.enqueue(new MockResponse().setBody(messagePage("c3", false, 4)));
+        assertEquals(1, syncer.pullAll(() -> false));
+
+        for (int i = 0; i < 7; i++) server.takeRequest();
+        RecordedRequest resumed = server.takeRequest();
+        assertEquals("/api/sync/messages?cursor=c2&limit=" + PullSyncer.PAGE_SIZE, resumed.getPath());
+        assertEquals("c3", daos.cursors.get(PullSyncer.STREAM_MESSAGES));
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), applied());
+    }
+
+    @Test
+    public void cursorThatDoesNotAdvanceIsAnError() {
+        server.enqueue(new MockResponse().setBody("{\"items\":[],\"nextCursor\":null,\"hasMore\":true}"));
+
+        try {
+            syncer.pullAll(() -> false);
+            fail("Expected a stuck cursor to fail");
+        } catch (IOException expected) {
+            // Would otherwise loop on the same page
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void malformedItemsAreSkippedAndThePageCommits() throws Exception {
+        server.enqueue(new MockResponse().setBody(EMPTY_PAGE));
+        server.enqueue(new MockResponse().setBody(EMPTY_PAGE));
+        server.enqueue(new MockResponse().setBody("{\"items\":["
+                + "{\"messageId\":1,\"clientKey\":1,\"senderId\":\"a\",\"receiverId\":\"b\",\"type\":99,\"timestamp\":1},"
+                + "{\"messageId\":\"two\",\"senderId\":\"a\",\"receiverId\":\"b\"},"
+                + "null,"
+                + "{\"messageId\":4,\"senderId\":\"a\"},"
+                + "{\"messageId\":6,\"senderId\":\"a\",\"receiverId\":\"b\",\"type\":0,\"timestamp\":6},"
+                + "{\"messageId\":5,\"clientKey\":5,\"senderId\":\"a\",\"receiverId\":\"b\",\"type\":0,\"timestamp\":5}"
+                + "],\"nextCursor\":\"c1\",\"hasMore\":false}"));
+
+        assertEquals(2, syncer.pullAll(() -> false));
+
+        assertEquals("c1", daos.cursors.get(PullSyncer.STREAM_MESSAGES));
+        assertEquals(Arrays.asList(1L, 5L), applied());
+        assertEquals(4, syncer.getSkipped());
+    }
+
+    @Test
+    public void pulledRecallKeepsTheStoredCopySynced() throws Exception {
+        Message stored = new Message(1, "a", "m1", Message.MessageType.TEXT);
+        stored.setReceiverId("b");
+        stored.setTimestamp(1);
+        stored.setClientKey(7);
+        stored.setSentToCloud(true);
+        daos.put(stored);
+        server.enqueue(new MockResponse().setBody(EMPTY_PAGE));
+        server.enqueue(new MockResponse().setBody(EMPTY_PAGE));
+        server.enqueue(new MockResponse().setBody("{\"items\":[{\"messageId\":1,\"clientKey\":7,"
+                + "\"senderId\":\"a\",\"receiverId\":\"b\",\"content\":\"m1\",\"type\":0,\"timestamp\":1,\"recalled\":true}],"
+                + "\"nextCursor\":\"c1\",\"hasMore\":false}"));
+
+        syncer.pullAll(() -> false);
+
+        Message recalled = daos.messages.get(1L);
+        assertTrue(recalled.isRecalled());
+        // Not queued for upload: the recall came from the server
+        assertTrue(recalled.isSentToCloud());
+    }
+
+    @Test
+    public void messageWithTakenIdIsKeptUnderTheNextFreeId() throws Exception {
+        Message local = new Message(1, "a", "local", Message.MessageType.TEXT);
+        local.setReceiverId("b");
+        local.setSentToCloud(true);
+        daos.put(local);
+        for (int pass = 0; pass < 2; pass++) {
+            server.enqueue(new MockResponse().setBody(EMPTY_PAGE));
+            server.enqueue(new MockResponse().setBody(EMPTY_PAGE));
+            // Same id and conversation from another device, a different message; pulled twice, stored once
+            server.enqueue(new MockResponse().setBody(messagePage("c" + pass, false, 1)));
+            syncer.pullAll(() -> false);
+        }
+
+        assertEquals(2, daos.messages.size());
+        assertEquals("local", daos.messages.get(1L).getContent());
+        assertEquals("m1", daos.messages.get(2L).getContent());
+    }
+
+    private static String messagePage(String nextCursor, boolean hasMore, long... messageIds) {
+        StringBuilder items = new StringBuilder();
+        for (long messageId : messageIds) {
+            if (items.length() > 0) items.append(',');
+            items.append("{\"messageId\":").append(messageId).append(",\"clientKey\":").append(messageId)
+                    .append(",\"senderId\":\"a\",\"receiverId\":\"b\",\"content\":\"m").append(messageId)
+                    .append("\",\"type\":0,\"timestamp\":").append(messageId).append('}');
+        }
+        return "{\"items\":[" + items + "],\"nextCursor\":\"" + nextCursor + "\",\"hasMore\":" + hasMore + "}";
+    }
+
+    // Ids of the stored messages; every pulled message is stored as already synced
+    private List<Long> applied() {
+        List<Long> ids = new ArrayList<>();
+        for (Message message : daos.messages.values()) {
+            assertTrue(message.isSentToCloud());
+            ids.add(message.getMessageId());
+        }
+        return ids;
+    }
+}